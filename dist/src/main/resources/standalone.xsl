@@ -109,6 +109,14 @@
         <xsl:with-param name="deployment.name" select="'hawkular-rest-api.war'" />
         <xsl:with-param name="credential.secret" select="*[local-name()='secure-deployment']/*[local-name()='credential' and @name='secret']/text()"/>
       </xsl:call-template>
+      <xsl:call-template name="secure-deployment">
+        <xsl:with-param name="deployment.name" select="'hawkular-pinger.war'" />
+        <xsl:with-param name="credential.secret" select="*[local-name()='secure-deployment']/*[local-name()='credential' and @name='secret']/text()"/>
+      </xsl:call-template>
+      <xsl:call-template name="secure-deployment">
+        <xsl:with-param name="deployment.name" select="'hawkular-avail-creator.war'" />
+        <xsl:with-param name="credential.secret" select="*[local-name()='secure-deployment']/*[local-name()='credential' and @name='secret']/text()"/>
+      </xsl:call-template>
     </xsl:copy>
   </xsl:template>
 
@@ -246,6 +254,8 @@
       <jms-topic name="HawkularInventoryChanges" entries="java:/topic/HawkularInventoryChanges"/>
       <jms-topic name="HawkularAlertData" entries="java:/topic/HawkularAlertData"/>
       <jms-topic name="HawkularMetricData" entries="java:/topic/HawkularMetricData"/>
+      <jms-topic name="HawkularStatusCodes" entries="java:/topic/HawkularStatusCodes"/>
+      <jms-topic name="HawkularPingerAlerts" entries="java:/topic/HawkularPingerAlerts"/>
       <jms-queue name="HawkularAlertsPluginsQueue" entries="java:/queue/HawkularAlertsPluginsQueue"/>
       <jms-queue name="HawkularAlertsActionsResponseQueue" entries="java:/queue/HawkularAlertsActionsResponseQueue"/>
       <jms-topic name="HawkularAvailData" entries="java:/topic/HawkularAvailData"/>
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A request body for the multi-metric availability data endpoint of Hawkular Metrics. The JSON is written straight
+ * to the connection while the request is being sent and the content length is unknown upfront, so the body goes out
+ * chunked without ever being buffered as a whole. The entity is repeatable because it can be written again from the
+ * same list of {@link SingleAvail}s. Only {@link #getContent()} buffers the whole body, for the rare callers that need
+ * to read it rather than send it.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class AvailBatchEntity extends AbstractHttpEntity {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<SingleAvail> availabilities;
+
+    /**
+     * @param availabilities the availabilities to send, all of a single tenant
+     */
+    AvailBatchEntity(List<SingleAvail> availabilities) {
+        super();
+        this.availabilities = availabilities;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * @return a new {@link InputStream} over a buffered copy of what {@link #writeTo(OutputStream)} writes
+     * @see org.apache.http.HttpEntity#getContent()
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * availabilities.size() + 2);
+        writeTo(buffer);
+        return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+    /**
+     * Writes {@code [{"id":"<rid>","data":[{"timestamp":<timestamp>,"value":"<avail>"}]}, ...]}.
+     *
+     * @see org.apache.http.HttpEntity#writeTo(java.io.OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (SingleAvail availability : availabilities) {
+                generator.writeStartObject();
+                generator.writeStringField("id", availability.id);
+                generator.writeArrayFieldStart("data");
+                generator.writeStartObject();
+                generator.writeNumberField("timestamp", availability.timestamp);
+                generator.writeStringField("value", availability.avail.toLowerCase());
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+/**
+ * Registers the {@link AvailCreatorStatisticsMXBean} as {@value #OBJECT_NAME} for the lifetime of the deployment.
+ * The same statistics are served over REST by {@link StatisticsEndpoint}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AvailCreatorStatistics implements AvailCreatorStatisticsMXBean {
+
+    /** The name under which the {@link AvailCreatorStatisticsMXBean} is registered */
+    public static final String OBJECT_NAME = "org.hawkular.component.availcreator:type=Statistics";
+
+    @PostConstruct
+    public void init() {
+        MBeans.register(this, OBJECT_NAME);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        MBeans.unregister(OBJECT_NAME);
+    }
+
+    @Override
+    public ReceiverStatistics getReceiver() {
+        return MetricReceiver.getStatistics();
+    }
+
+    @Override
+    public BatchStatistics getPublisher() {
+        return AvailPublisher.getStatistics();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+/**
+ * The management interface exposing the {@link ReceiverStatistics} and {@link BatchStatistics} of avail-creator.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public interface AvailCreatorStatisticsMXBean {
+
+    /**
+     * @return the statistics of the messages delivered to {@link MetricReceiver}
+     */
+    ReceiverStatistics getReceiver();
+
+    /**
+     * @return the statistics of the batches posted by {@link AvailPublisher}
+     */
+    BatchStatistics getPublisher();
+}
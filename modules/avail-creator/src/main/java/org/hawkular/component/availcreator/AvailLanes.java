@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * A fixed set of single-threaded lanes that damp and publish the availabilities handed over by
+ * {@link MetricReceiver}. Every availability is hashed by its tenant and resource ID onto a lane, so that the
+ * resources are processed in parallel while the availabilities of a single resource are processed strictly in the
+ * order in which they were dispatched. Each lane owns its own {@link AvailStateTable}, because no resource is ever
+ * seen by two lanes, and posts through {@link AvailPublisher#publish(CloseableHttpClient, List, AvailStateTable)}
+ * synchronously, so that the order is kept until the availabilities reach Hawkular Metrics and a failed post is
+ * reverted in the lane's table before the lane damps the next samples.
+ * <p>
+ * The number of lanes is set by the {@value #LANES_PROPERTY} system property; the default {@code 0} disables the
+ * lanes and {@link MetricReceiver} damps and publishes in the delivering thread as before. Each lane queues up to
+ * {@value #QUEUE_CAPACITY} dispatched chunks, a full lane blocks the dispatching {@link MetricReceiver}. The lane
+ * threads are created by the default {@link ManagedThreadFactory} of the server. The queue depths and the processing
+ * latencies are available through {@link AvailLanesMXBean} registered as {@value #OBJECT_NAME}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Singleton
+@Startup
+@DependsOn("MetricsHttpClient")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AvailLanes implements AvailLanesMXBean {
+
+    /** The system property holding the number of lanes, {@code 0} to disable the lanes */
+    public static final String LANES_PROPERTY = "hawkular.avail-creator.lanes";
+
+    /** The name under which the {@link AvailLanesMXBean} is registered */
+    public static final String OBJECT_NAME = "org.hawkular.component.availcreator:type=AvailLanes";
+
+    /** The maximal number of chunks waiting in a lane */
+    static final int QUEUE_CAPACITY = 1024;
+
+    private static final long POLL_MILLIS = 100;
+    private static final long STOP_MILLIS = 5000;
+
+    /**
+     * The availabilities of one message that fell to one lane.
+     */
+    private static class Chunk {
+        private final List<SingleAvail> availabilities;
+        private final long dispatchedNanos;
+
+        private Chunk(List<SingleAvail> availabilities, long dispatchedNanos) {
+            super();
+            this.availabilities = availabilities;
+            this.dispatchedNanos = dispatchedNanos;
+        }
+    }
+
+    private class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AvailStateTable states;
+        private final Thread thread;
+
+        private Lane(int index, AvailStateTable states, ThreadFactory threadFactory) {
+            super();
+            this.index = index;
+            this.states = states;
+            this.thread = threadFactory.newThread(this);
+            thread.setName("hawkular-avail-lane-" + index);
+        }
+
+        private void put(List<SingleAvail> availabilities, long now) throws InterruptedException {
+            depth.addAndGet(availabilities.size());
+            queue.put(new Chunk(availabilities, now));
+        }
+
+        @Override
+        public void run() {
+            List<Chunk> chunks = new ArrayList<>();
+            List<SingleAvail> batch = new ArrayList<>();
+            while (running || !queue.isEmpty()) {
+                try {
+                    Chunk first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    chunks.add(first);
+                    queue.drainTo(chunks);
+                    for (Chunk chunk : chunks) {
+                        batch.addAll(chunk.availabilities);
+                    }
+                    depth.addAndGet(-batch.size());
+                    MetricReceiver.damp(states, batch);
+                    if (!batch.isEmpty()) {
+                        publisher.accept(batch, states);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    Log.LOG.eLaneFailed(index, e);
+                } finally {
+                    long now = System.nanoTime();
+                    for (Chunk chunk : chunks) {
+                        long latencyMicros = (now - chunk.dispatchedNanos) / 1000;
+                        int size = chunk.availabilities.size();
+                        processed.add(size);
+                        totalLatencyMicros.add(latencyMicros * size);
+                        maxLatencyMicros.accumulateAndGet(latencyMicros, Math::max);
+                    }
+                    chunks.clear();
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder totalLatencyMicros = new LongAdder();
+    private final AtomicLong maxLatencyMicros = new AtomicLong();
+
+    private volatile boolean running;
+    private Lane[] lanes = new Lane[0];
+    private BiConsumer<List<SingleAvail>, AvailStateTable> publisher;
+
+    @EJB
+    MetricsHttpClient metricsHttpClient;
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    @PostConstruct
+    public void init() {
+        int count = Math.max(0, Integer.getInteger(LANES_PROPERTY, 0));
+        if (count > 0) {
+            final CloseableHttpClient client = metricsHttpClient.getClient();
+            start(count, threadFactory,
+                    (availabilities, states) -> AvailPublisher.publish(client, availabilities, states));
+            MBeans.register(this, OBJECT_NAME);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (lanes.length > 0) {
+            MBeans.unregister(OBJECT_NAME);
+            stop();
+        }
+    }
+
+    /**
+     * Starts the given number of lanes.
+     *
+     * @param count the number of lanes
+     * @param threadFactory the factory to create the lane threads with
+     * @param publisher the consumer to post the damped availabilities with, called by the lane threads with the
+     *        availabilities and the lane's {@link AvailStateTable} to revert the failed emissions in
+     */
+    void start(int count, ThreadFactory threadFactory, BiConsumer<List<SingleAvail>, AvailStateTable> publisher) {
+        this.publisher = publisher;
+        Lane[] newLanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            newLanes[i] = new Lane(i, MetricReceiver.createStateTable(), threadFactory);
+        }
+        this.lanes = newLanes;
+        this.running = true;
+        for (Lane lane : newLanes) {
+            lane.thread.start();
+        }
+        Log.LOG.iLanesStarted(count);
+    }
+
+    /**
+     * Lets the lanes process what was dispatched so far and waits for them to finish.
+     */
+    void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + STOP_MILLIS;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            lane.thread.interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} if the lanes were started and not stopped yet
+     */
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Hands the given availabilities over to their lanes. Blocks while the queue of a lane is full.
+     *
+     * @param availabilities the availabilities to dispatch
+     * @throws InterruptedException if interrupted while waiting for a full lane
+     */
+    public void dispatch(List<SingleAvail> availabilities) throws InterruptedException {
+        Lane[] ls = this.lanes;
+        int count = ls.length;
+        if (count == 1) {
+            ls[0].put(availabilities, System.nanoTime());
+            return;
+        }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<SingleAvail>[] chunks = new List[count];
+        for (SingleAvail avail : availabilities) {
+            int i = lane(avail.tenantId, avail.id, count);
+            if (chunks[i] == null) {
+                chunks[i] = new ArrayList<>();
+            }
+            chunks[i].add(avail);
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (chunks[i] != null) {
+                ls[i].put(chunks[i], now);
+            }
+        }
+    }
+
+    static int lane(String tenantId, String resourceId, int count) {
+        int h = (tenantId == null ? 0 : tenantId.hashCode()) * 31 + resourceId.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % count;
+    }
+
+    @Override
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public int[] getQueueDepths() {
+        Lane[] ls = this.lanes;
+        int[] result = new int[ls.length];
+        for (int i = 0; i < ls.length; i++) {
+            result[i] = ls[i].depth.get();
+        }
+        return result;
+    }
+
+    @Override
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    @Override
+    public long getAverageLatencyMicros() {
+        long count = processed.sum();
+        return count == 0 ? 0 : totalLatencyMicros.sum() / count;
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros.get();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+/**
+ * The management interface of {@link AvailLanes}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public interface AvailLanesMXBean {
+
+    /**
+     * @return the number of lanes, {@code 0} if the lanes are disabled
+     */
+    int getLaneCount();
+
+    /**
+     * @return the number of availabilities waiting in the queue of each lane
+     */
+    int[] getQueueDepths();
+
+    /**
+     * @return the number of availabilities processed by all lanes
+     */
+    long getProcessed();
+
+    /**
+     * @return the average time in microseconds between dispatching an availability to a lane and the end of its
+     *         publication, {@code 0} if nothing was processed yet
+     */
+    long getAverageLatencyMicros();
+
+    /**
+     * @return the maximal time in microseconds between dispatching an availability to a lane and the end of its
+     *         publication
+     */
+    long getMaxLatencyMicros();
+}
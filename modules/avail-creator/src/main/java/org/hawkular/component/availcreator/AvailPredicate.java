@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+/**
+ * A compiled availability rule, see {@link AvailRuleCompiler}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@FunctionalInterface
+public interface AvailPredicate {
+
+    /** A value of {@code duration} meaning that the duration of the ping is not known. The value is {@value} */
+    int UNKNOWN_DURATION = -1;
+
+    /**
+     * @param code the status code of the ping
+     * @param duration the duration of the ping in milliseconds or {@value #UNKNOWN_DURATION}
+     * @return {@code true} if the resource is UP, {@code false} if it is DOWN
+     */
+    boolean isUp(int code, int duration);
+}
@@ -20,24 +20,24 @@ import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.Asynchronous;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 
 /**
- * Publish Avail data
+ * Publish Avail data. The availabilities are grouped by tenant and posted to the multi-metric availability data
+ * endpoint of Hawkular Metrics over the pooled keep-alive connections of {@link MetricsHttpClient}, in batches whose
+ * maximal size is set by the {@value #BATCH_SIZE_PROPERTY} system property (500 by default).
  *
  * @author Heiko W. Rupp
  */
@@ -45,47 +45,89 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @TransactionAttribute(NOT_SUPPORTED)
 public class AvailPublisher {
 
+    /** The system property holding the maximal number of availabilities sent in a single request */
+    public static final String BATCH_SIZE_PROPERTY = "hawkular.avail-creator.batch-size";
+
     private static final String METRICS_BASE_URI;
+    private static final int BATCH_SIZE;
+    private static final BatchStatistics STATISTICS = new BatchStatistics();
     static {
         String host = System.getProperty("jboss.bind.address", "localhost");
         String port = System.getProperty("jboss.http.port", "8080");
         METRICS_BASE_URI = "http://"+ host + ":"+ port + "/hawkular/metrics";
+        BATCH_SIZE = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, 500));
+    }
+
+    @EJB
+    MetricsHttpClient metricsHttpClient;
+
+    /**
+     * @return the statistics of the batches posted by all {@link AvailPublisher}s
+     */
+    public static BatchStatistics getStatistics() {
+        return STATISTICS;
     }
 
+    /**
+     * Posts the given availabilities damped by {@link MetricReceiver#getStateTable()} asynchronously.
+     *
+     * @param availabilities the availabilities to post
+     */
     @Asynchronous
     public void sendToMetricsViaRest(List<SingleAvail> availabilities) {
-        // Send it to metrics via rest
-
-        HttpClient client = HttpClientBuilder.create().build();
+        publish(metricsHttpClient.getClient(), availabilities, MetricReceiver.getStateTable());
+    }
 
+    /**
+     * Posts the given availabilities synchronously in the calling thread, so that the caller can rely on the order
+     * of the posts. The emission of the availabilities of a batch that could not be posted is reverted in the given
+     * {@link AvailStateTable}, so that they are emitted again with the next samples of their resources.
+     *
+     * @param client the client to post with, see {@link MetricsHttpClient#getClient()}
+     * @param availabilities the availabilities to post
+     * @param states the table the availabilities were damped by
+     */
+    static void publish(CloseableHttpClient client, List<SingleAvail> availabilities, AvailStateTable states) {
+        Map<String, List<SingleAvail>> byTenant = new LinkedHashMap<>();
         for (SingleAvail avr : availabilities) {
-
-            String rid = avr.id;
-            String tenantId = avr.tenantId;
-
-            HttpPost request = new HttpPost(METRICS_BASE_URI + "/availability/" + rid + "/data");
-            request.addHeader("Hawkular-Tenant", tenantId);
-
-            Availability availability = new Availability(avr.timestamp, avr.avail.toLowerCase());
-            List<Availability> list = new ArrayList<>(1);
-            list.add(availability);
-            String payload;
-            try {
-                payload = new ObjectMapper().writeValueAsString(list);
-            } catch (JsonProcessingException e) {
-                Log.LOG.eCouldNotParseMessage(e);
-                return;
+            byTenant.computeIfAbsent(avr.tenantId, k -> new ArrayList<>()).add(avr);
+        }
+        for (Map.Entry<String, List<SingleAvail>> entry : byTenant.entrySet()) {
+            List<SingleAvail> tenantAvails = entry.getValue();
+            for (int from = 0; from < tenantAvails.size(); from += BATCH_SIZE) {
+                List<SingleAvail> batch = tenantAvails.subList(from, Math.min(from + BATCH_SIZE, tenantAvails.size()));
+                if (!post(client, entry.getKey(), batch)) {
+                    states.emissionFailed(batch);
+                }
             }
-            request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
+        }
+    }
 
-            try {
-                HttpResponse response = client.execute(request);
-                if (response.getStatusLine().getStatusCode() > 399) {
-                    Log.LOG.wAvailPostStatus(response.getStatusLine().toString());
-                }
-            } catch (IOException e) {
-                Log.LOG.wAvailPostStatus(e.getMessage());
+    /**
+     * @return {@code true} if the batch was posted successfully, {@code false} otherwise
+     */
+    private static boolean post(CloseableHttpClient client, String tenantId, List<SingleAvail> batch) {
+        HttpPost request = new HttpPost(METRICS_BASE_URI + "/availability/data");
+        request.addHeader("Hawkular-Tenant", tenantId);
+        request.setEntity(new AvailBatchEntity(batch));
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (CloseableHttpResponse response = client.execute(request)) {
+            /* let the connection go back to the pool */
+            EntityUtils.consumeQuietly(response.getEntity());
+            if (response.getStatusLine().getStatusCode() > 399) {
+                Log.LOG.wAvailPostStatus(response.getStatusLine().toString());
+            } else {
+                failed = false;
             }
+        } catch (IOException e) {
+            Log.LOG.wAvailPostStatus(e.getMessage());
         }
+        long latencyMicros = (System.nanoTime() - start) / 1000;
+        STATISTICS.record(batch.size(), latencyMicros, failed);
+        Log.LOG.debugf("Posted %d availabilities of tenant %s in %d us", (Object) batch.size(), tenantId,
+                latencyMicros);
+        return !failed;
     }
 }
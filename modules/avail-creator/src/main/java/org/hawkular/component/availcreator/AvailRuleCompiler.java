@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+/**
+ * Compiles the textual availability rules into {@link AvailPredicate}s. A rule is a boolean expression over the
+ * {@code code} and the {@code duration} (in milliseconds) of a ping, for example
+ *
+ * <pre>
+ * code &lt;= 399 || code == 401
+ * code &lt;= 399 &amp;&amp; !(duration &gt; 2000)
+ * </pre>
+ *
+ * The comparisons {@code <}, {@code <=}, {@code >}, {@code >=}, {@code ==} and {@code !=} of a variable with an
+ * integer constant can be combined by {@code &&}, {@code ||}, {@code !} and parentheses. The expression is parsed
+ * once into a tree of lambdas, so that evaluating it costs just a few virtual calls and integer comparisons.
+ * Comparisons of an unknown duration ({@value AvailPredicate#UNKNOWN_DURATION}) are {@code false}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class AvailRuleCompiler {
+
+    /**
+     * @param rule the rule to compile
+     * @return a new {@link AvailPredicate}
+     * @throws IllegalArgumentException if the {@code rule} is not valid
+     */
+    static AvailPredicate compile(String rule) {
+        AvailRuleCompiler compiler = new AvailRuleCompiler(rule);
+        AvailPredicate result = compiler.parseOr();
+        compiler.skipWhitespace();
+        if (compiler.pos < rule.length()) {
+            throw compiler.error("Unexpected input");
+        }
+        return result;
+    }
+
+    private final String rule;
+    private int pos;
+
+    private AvailRuleCompiler(String rule) {
+        super();
+        this.rule = rule;
+    }
+
+    private AvailPredicate parseOr() {
+        AvailPredicate result = parseAnd();
+        while (consume("||")) {
+            final AvailPredicate left = result;
+            final AvailPredicate right = parseAnd();
+            result = (code, duration) -> left.isUp(code, duration) || right.isUp(code, duration);
+        }
+        return result;
+    }
+
+    private AvailPredicate parseAnd() {
+        AvailPredicate result = parseUnary();
+        while (consume("&&")) {
+            final AvailPredicate left = result;
+            final AvailPredicate right = parseUnary();
+            result = (code, duration) -> left.isUp(code, duration) && right.isUp(code, duration);
+        }
+        return result;
+    }
+
+    private AvailPredicate parseUnary() {
+        if (consume("!")) {
+            final AvailPredicate operand = parseUnary();
+            return (code, duration) -> !operand.isUp(code, duration);
+        } else if (consume("(")) {
+            AvailPredicate result = parseOr();
+            if (!consume(")")) {
+                throw error("Expected ')'");
+            }
+            return result;
+        }
+        return parseComparison();
+    }
+
+    private AvailPredicate parseComparison() {
+        final boolean isCode;
+        if (consume("code")) {
+            isCode = true;
+        } else if (consume("duration")) {
+            isCode = false;
+        } else {
+            throw error("Expected 'code' or 'duration'");
+        }
+        /* the two character operators first */
+        String operator = null;
+        for (String candidate : new String[] { "<=", ">=", "==", "!=", "<", ">" }) {
+            if (consume(candidate)) {
+                operator = candidate;
+                break;
+            }
+        }
+        if (operator == null) {
+            throw error("Expected a comparison operator");
+        }
+        final int value = parseInt();
+        if (isCode) {
+            switch (operator) {
+            case "<=":
+                return (code, duration) -> code <= value;
+            case ">=":
+                return (code, duration) -> code >= value;
+            case "==":
+                return (code, duration) -> code == value;
+            case "!=":
+                return (code, duration) -> code != value;
+            case "<":
+                return (code, duration) -> code < value;
+            default:
+                return (code, duration) -> code > value;
+            }
+        }
+        switch (operator) {
+        case "<=":
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration <= value;
+        case ">=":
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration >= value;
+        case "==":
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration == value;
+        case "!=":
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration != value;
+        case "<":
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration < value;
+        default:
+            return (code, duration) -> duration != AvailPredicate.UNKNOWN_DURATION && duration > value;
+        }
+    }
+
+    private int parseInt() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < rule.length() && Character.isDigit(rule.charAt(pos))) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("Expected a non-negative integer");
+        }
+        try {
+            return Integer.parseInt(rule.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Integer out of range");
+        }
+    }
+
+    private boolean consume(String token) {
+        skipWhitespace();
+        if (rule.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < rule.length() && Character.isWhitespace(rule.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in rule [" + rule + "]");
+    }
+}
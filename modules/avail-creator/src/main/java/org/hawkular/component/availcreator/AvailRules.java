@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The availability rules of all tenants and resources. The rules are read from a properties file, by default
+ * {@value #DEFAULT_RULES_FILE_NAME} in {@code jboss.server.config.dir}, or the file set by the
+ * {@value #RULES_FILE_PROPERTY} system property:
+ *
+ * <pre>
+ * # the rule of the resources having no other rule; code &lt;= 399 if not set
+ * default = code &lt;= 399
+ * # the rule of all resources of a tenant
+ * tenant.&lt;tenantId&gt; = code &lt;= 399 || code == 401
+ * # the rule of a single resource
+ * resource.&lt;tenantId&gt;/&lt;resourceId&gt; = code &lt;= 399 &amp;&amp; !(duration &gt; 2000)
+ * </pre>
+ *
+ * See {@link AvailRuleCompiler} for the syntax of the rules. The rules are compiled once when the file is read, so
+ * that finding the rule applicable to a resource costs at most three hash lookups without any allocation and without
+ * remembering anything per resource. The file is checked for modifications at most every
+ * {@value #CHECK_INTERVAL_MILLIS} milliseconds; a file with invalid rules is ignored and the previous rules stay in
+ * effect.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class AvailRules {
+
+    /** The system property holding the path to the rules file */
+    static final String RULES_FILE_PROPERTY = "hawkular.avail-creator.rules-file";
+
+    static final String DEFAULT_RULES_FILE_NAME = "hawkular-avail-rules.properties";
+
+    /** The rule applied if there is no other rule. The value is {@value} */
+    static final String DEFAULT_RULE = "code <= 399";
+
+    static final long CHECK_INTERVAL_MILLIS = 5000;
+
+    private static final String DEFAULT_KEY = "default";
+    private static final String TENANT_PREFIX = "tenant.";
+    private static final String RESOURCE_PREFIX = "resource.";
+
+    /**
+     * An immutable set of compiled rules.
+     */
+    static class RuleSet {
+        private final AvailPredicate defaultPredicate;
+        private final Map<String, AvailPredicate> tenantPredicates;
+        /** Resource predicates by tenant and resource ID */
+        private final Map<String, Map<String, AvailPredicate>> resourcePredicates;
+        private final int size;
+
+        /**
+         * @param properties the rule definitions
+         * @throws IllegalArgumentException if any of the rules is invalid
+         */
+        RuleSet(Properties properties) {
+            super();
+            AvailPredicate defaultPredicate = AvailRuleCompiler.compile(DEFAULT_RULE);
+            Map<String, AvailPredicate> tenantPredicates = new HashMap<>();
+            Map<String, Map<String, AvailPredicate>> resourcePredicates = new HashMap<>();
+            List<String> errors = new ArrayList<>();
+            for (String key : properties.stringPropertyNames()) {
+                try {
+                    AvailPredicate predicate = AvailRuleCompiler.compile(properties.getProperty(key));
+                    if (DEFAULT_KEY.equals(key)) {
+                        defaultPredicate = predicate;
+                    } else if (key.startsWith(TENANT_PREFIX)) {
+                        tenantPredicates.put(key.substring(TENANT_PREFIX.length()), predicate);
+                    } else if (key.startsWith(RESOURCE_PREFIX) && key.indexOf('/') > 0) {
+                        int slashPos = key.indexOf('/');
+                        resourcePredicates
+                                .computeIfAbsent(key.substring(RESOURCE_PREFIX.length(), slashPos),
+                                        k -> new HashMap<>())
+                                .put(key.substring(slashPos + 1), predicate);
+                    } else {
+                        errors.add("Unexpected key [" + key + "]");
+                    }
+                } catch (IllegalArgumentException e) {
+                    errors.add(key + ": " + e.getMessage());
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException("Invalid availability rules: " + errors);
+            }
+            this.defaultPredicate = defaultPredicate;
+            this.tenantPredicates = tenantPredicates;
+            this.resourcePredicates = resourcePredicates;
+            this.size = properties.size();
+        }
+
+        /**
+         * @return the predicate applicable to the given resource
+         */
+        AvailPredicate get(String tenantId, String resourceId) {
+            /* the maps are never modified after the constructor, so plain HashMap lookups are safe */
+            Map<String, AvailPredicate> resources = resourcePredicates.get(tenantId);
+            AvailPredicate result = resources == null ? null : resources.get(resourceId);
+            if (result == null) {
+                result = tenantPredicates.get(tenantId);
+            }
+            return result == null ? defaultPredicate : result;
+        }
+    }
+
+    /**
+     * @return new {@link AvailRules} reading the file set by {@value #RULES_FILE_PROPERTY} or
+     *         {@value #DEFAULT_RULES_FILE_NAME} in {@code jboss.server.config.dir}; the rules consist of just the
+     *         {@link #DEFAULT_RULE} as long as there is no such file
+     */
+    static AvailRules fromSystemProperties() {
+        String path = System.getProperty(RULES_FILE_PROPERTY);
+        if (path == null && System.getProperty("jboss.server.config.dir") != null) {
+            path = Paths.get(System.getProperty("jboss.server.config.dir"), DEFAULT_RULES_FILE_NAME).toString();
+        }
+        return new AvailRules(path == null ? null : Paths.get(path));
+    }
+
+    private final Path file;
+    private volatile RuleSet ruleSet = new RuleSet(new Properties());
+    private long lastModified;
+    private volatile long nextCheck;
+
+    /**
+     * @param file the rules file, possibly not existing yet, or {@code null}
+     */
+    AvailRules(Path file) {
+        super();
+        this.file = file;
+        checkForChanges(System.currentTimeMillis());
+    }
+
+    /**
+     * @param tenantId the tenant owning the resource
+     * @param resourceId the pinged resource
+     * @param code the status code of the ping
+     * @param duration the duration of the ping in milliseconds or {@value AvailPredicate#UNKNOWN_DURATION}
+     * @return {@code true} if the resource is UP according to its rule, {@code false} if it is DOWN
+     */
+    boolean isUp(String tenantId, String resourceId, int code, int duration) {
+        long now = System.currentTimeMillis();
+        if (now >= nextCheck) {
+            checkForChanges(now);
+        }
+        return ruleSet.get(tenantId == null ? "" : tenantId, resourceId).isUp(code, duration);
+    }
+
+    /**
+     * Reloads the rules if the file has been modified, created or deleted since the last check.
+     *
+     * @param now the value of {@code System.currentTimeMillis()}
+     */
+    synchronized void checkForChanges(long now) {
+        if (now < nextCheck) {
+            return;
+        }
+        nextCheck = now + CHECK_INTERVAL_MILLIS;
+        if (file == null) {
+            return;
+        }
+        long modified = 0;
+        try {
+            if (Files.exists(file)) {
+                modified = Files.getLastModifiedTime(file).toMillis();
+            }
+        } catch (IOException e) {
+            Log.LOG.wInvalidAvailRules(file.toString(), e.getMessage());
+            return;
+        }
+        if (modified == lastModified) {
+            return;
+        }
+        lastModified = modified;
+        Properties properties = new Properties();
+        if (modified != 0) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(in);
+            } catch (IOException e) {
+                Log.LOG.wInvalidAvailRules(file.toString(), e.getMessage());
+                return;
+            }
+        }
+        try {
+            ruleSet = new RuleSet(properties);
+            Log.LOG.iAvailRulesLoaded(file.toString(), properties.size());
+        } catch (IllegalArgumentException e) {
+            Log.LOG.wInvalidAvailRules(file.toString(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the rules in effect, until the rules file changes.
+     *
+     * @param ruleSet the new rules
+     */
+    void setRuleSet(RuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+    }
+
+    /**
+     * @return the number of rules in effect, not counting the built-in default rule
+     */
+    int size() {
+        return ruleSet.size;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the availability state of each (tenant, resource) pair so that {@link MetricReceiver} publishes an
+ * availability only when it changes or when the last emission of the resource is older than the heartbeat interval.
+ * <p>
+ * The state changes are damped in two ways:
+ * <ul>
+ * <li>Hysteresis: the state of a resource flips between UP and DOWN only after {@code hysteresis} consecutive
+ * samples agree on the new state. A value of {@code 1} flips on every change.</li>
+ * <li>Flapping: if the last {@code flappingWindow} samples of a resource contain at least {@code flappingThreshold}
+ * transitions, the resource enters the {@link #FLAPPING} state and stays there until the number of transitions in the
+ * window falls to half of the threshold. A {@code flappingWindow} of {@code 0} disables the detection.</li>
+ * </ul>
+ * <p>
+ * The table uses open addressing with linear probing over parallel arrays instead of a {@link HashMap}, so that a
+ * tracked resource costs a reference to its resource ID, two {@code long}s, an {@code int} and two {@code byte}s plus
+ * the free slots, with no entry, key or boxed value objects. The last {@value #MAX_WINDOW} raw samples of a resource
+ * are kept as bits of the {@code int}, from which both the hysteresis run length and the flapping transitions are
+ * counted. The tenant IDs are interned in a small map because there are few of them. Resources that have not been
+ * seen for {@value #STALE_HEARTBEATS} heartbeat intervals, but at least {@value #MIN_STALE_MILLIS} milliseconds, are
+ * dropped when the table would otherwise grow, which keeps the footprint bounded by the number of live resources.
+ * <p>
+ * A state counts as emitted as soon as {@link #update(String, String, boolean, long)} returns it. If the emitted
+ * availabilities cannot be delivered, {@link #emissionFailed(List)} makes the next samples of their resources be
+ * emitted again.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class AvailStateTable {
+
+    /** The number of heartbeat intervals after which an unseen resource is dropped. The value is {@value} */
+    static final int STALE_HEARTBEATS = 10;
+
+    /**
+     * The minimal number of milliseconds after which an unseen resource is dropped, so that a short or zero heartbeat
+     * does not drop the resources between their samples. The value is {@value}
+     */
+    static final long MIN_STALE_MILLIS = 10 * 60 * 1000L;
+
+    /** The maximal number of samples of a resource the hysteresis and the flapping detection can look at */
+    static final int MAX_WINDOW = Integer.SIZE;
+
+    /** Returned by {@link #update(String, String, boolean, long)} if nothing should be emitted */
+    static final byte NONE = -1;
+    static final byte DOWN = 0;
+    static final byte UP = 1;
+    static final byte FLAPPING = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** An {@link #emitted} timestamp that makes the next sample pass the heartbeat check without overflowing */
+    private static final long NEVER_EMITTED = Long.MIN_VALUE / 2;
+
+    private final long heartbeatMillis;
+    private final long staleMillis;
+    private final int hysteresis;
+    private final int flappingWindow;
+    private final int flappingThreshold;
+    private final Map<String, String> tenants = new HashMap<>();
+
+    private String[] tenantIds;
+    private String[] resourceIds;
+    /** The timestamp of the last emitted availability */
+    private long[] emitted;
+    /** The timestamp of the last seen availability */
+    private long[] seen;
+    /** The last raw samples, the most recent one in the lowest bit, {@code 1} for UP */
+    private int[] history;
+    /** The number of valid bits in {@link #history}, saturated at {@link #MAX_WINDOW} */
+    private byte[] samples;
+    private byte[] states;
+    private int size;
+
+    /**
+     * Creates a table without any damping of the state changes.
+     *
+     * @param heartbeatMillis the maximal number of milliseconds between two emissions of an unchanged availability
+     */
+    AvailStateTable(long heartbeatMillis) {
+        this(heartbeatMillis, 1, 0, 0);
+    }
+
+    /**
+     * @param heartbeatMillis the maximal number of milliseconds between two emissions of an unchanged availability
+     * @param hysteresis the number of consecutive samples needed to flip between UP and DOWN, {@code 1} to
+     *        {@value #MAX_WINDOW}
+     * @param flappingWindow the number of the most recent samples in which the transitions are counted, {@code 0} to
+     *        disable the flapping detection, at most {@value #MAX_WINDOW}
+     * @param flappingThreshold the number of transitions within {@code flappingWindow} that make a resource flapping
+     * @throws IllegalArgumentException if any of the arguments is out of its range
+     */
+    AvailStateTable(long heartbeatMillis, int hysteresis, int flappingWindow, int flappingThreshold) {
+        super();
+        if (hysteresis < 1 || hysteresis > MAX_WINDOW) {
+            throw new IllegalArgumentException("hysteresis must be between 1 and " + MAX_WINDOW + ", found "
+                    + hysteresis);
+        }
+        if (flappingWindow < 0 || flappingWindow > MAX_WINDOW) {
+            throw new IllegalArgumentException("flapping window must be between 0 and " + MAX_WINDOW + ", found "
+                    + flappingWindow);
+        }
+        if (flappingWindow > 0 && (flappingThreshold < 2 || flappingThreshold >= flappingWindow)) {
+            throw new IllegalArgumentException("flapping threshold must be between 2 and " + (flappingWindow - 1)
+                    + ", found " + flappingThreshold);
+        }
+        this.heartbeatMillis = heartbeatMillis;
+        this.staleMillis = Math.max(STALE_HEARTBEATS * heartbeatMillis, MIN_STALE_MILLIS);
+        this.hysteresis = hysteresis;
+        this.flappingWindow = flappingWindow;
+        this.flappingThreshold = flappingThreshold;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        tenantIds = new String[capacity];
+        resourceIds = new String[capacity];
+        emitted = new long[capacity];
+        seen = new long[capacity];
+        history = new int[capacity];
+        samples = new byte[capacity];
+        states = new byte[capacity];
+        size = 0;
+    }
+
+    private static int slot(String tenantId, String resourceId, int mask) {
+        int h = tenantId.hashCode() * 31 + resourceId.hashCode();
+        /* spread the higher bits like HashMap does */
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Records the given availability and decides whether it should be emitted.
+     *
+     * @param tenantId the tenant owning the resource
+     * @param resourceId the resource
+     * @param up {@code true} for UP, {@code false} for DOWN
+     * @param timestamp the timestamp of the availability
+     * @return {@code true} if {@link #update(String, String, boolean, long)} returns anything else than
+     *         {@link #NONE}
+     */
+    boolean shouldEmit(String tenantId, String resourceId, boolean up, long timestamp) {
+        return update(tenantId, resourceId, up, timestamp) != NONE;
+    }
+
+    /**
+     * Records the given raw availability sample, updates the damped state of the resource and decides whether the
+     * state should be emitted.
+     *
+     * @param tenantId the tenant owning the resource
+     * @param resourceId the resource
+     * @param up {@code true} for UP, {@code false} for DOWN
+     * @param timestamp the timestamp of the availability
+     * @return the state to emit, one of {@link #UP}, {@link #DOWN} and {@link #FLAPPING} if the resource was not
+     *         tracked yet, if its state has changed or if the last emission is at least a heartbeat interval old;
+     *         {@link #NONE} otherwise, including the case when the sample is not newer than the newest sample
+     *         already recorded for the resource
+     */
+    synchronized byte update(String tenantId, String resourceId, boolean up, long timestamp) {
+        if (tenantId == null) {
+            tenantId = "";
+        }
+        int bit = up ? 1 : 0;
+        int mask = resourceIds.length - 1;
+        int i = slot(tenantId, resourceId, mask);
+        while (resourceIds[i] != null) {
+            if (resourceIds[i].equals(resourceId) && tenantIds[i].equals(tenantId)) {
+                if (timestamp <= seen[i]) {
+                    /*
+                     * an older sample arriving late must not override the newer state and the same sample delivered
+                     * twice, e.g. through both MetricReceiver topics, must not count twice
+                     */
+                    return NONE;
+                }
+                seen[i] = timestamp;
+                int h = (history[i] << 1) | bit;
+                int n = Math.min(samples[i] + 1, MAX_WINDOW);
+                history[i] = h;
+                samples[i] = (byte) n;
+                byte state = nextState(states[i], h, n);
+                if (states[i] != state || timestamp - emitted[i] >= heartbeatMillis) {
+                    states[i] = state;
+                    emitted[i] = timestamp;
+                    return state;
+                }
+                return NONE;
+            }
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 4 > resourceIds.length * 3) {
+            /* more than 3/4 full */
+            rehash(timestamp);
+            i = slot(tenantId, resourceId, resourceIds.length - 1);
+            while (resourceIds[i] != null) {
+                i = (i + 1) & (resourceIds.length - 1);
+            }
+        }
+        tenantIds[i] = tenants.computeIfAbsent(tenantId, k -> k);
+        resourceIds[i] = resourceId;
+        emitted[i] = timestamp;
+        seen[i] = timestamp;
+        history[i] = bit;
+        samples[i] = 1;
+        /* there is nothing to damp against yet */
+        byte state = up ? UP : DOWN;
+        states[i] = state;
+        size++;
+        return state;
+    }
+
+    /**
+     * Reverts the emission of the given availabilities, so that the next sample of each of their resources is
+     * emitted regardless of the heartbeat. Does nothing for a resource that is not tracked anymore or whose state was
+     * emitted again since the given availability.
+     *
+     * @param failed the availabilities returned by {@link #update(String, String, boolean, long)} that could not be
+     *        delivered
+     */
+    synchronized void emissionFailed(List<SingleAvail> failed) {
+        int mask = resourceIds.length - 1;
+        for (SingleAvail avail : failed) {
+            String tenantId = avail.tenantId == null ? "" : avail.tenantId;
+            int i = slot(tenantId, avail.id, mask);
+            while (resourceIds[i] != null) {
+                if (resourceIds[i].equals(avail.id) && tenantIds[i].equals(tenantId)) {
+                    if (emitted[i] == avail.timestamp) {
+                        emitted[i] = NEVER_EMITTED;
+                    }
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+    }
+
+    /**
+     * @param state the current state of a resource
+     * @param h the sample history including the newest sample
+     * @param n the number of valid bits in {@code h}
+     * @return the new state of the resource
+     */
+    private byte nextState(byte state, int h, int n) {
+        int bit = h & 1;
+        if (flappingWindow > 0) {
+            int window = Math.min(n, flappingWindow);
+            /* a transition is a pair of neighbouring bits that differ; a window of w samples has w - 1 pairs */
+            int pairs = window == MAX_WINDOW ? -1 >>> 1 : (1 << (window - 1)) - 1;
+            int transitions = Integer.bitCount((h ^ (h >>> 1)) & pairs);
+            if (state == FLAPPING) {
+                if (transitions > flappingThreshold / 2) {
+                    return FLAPPING;
+                }
+                /* calmed down, take the newest sample regardless of the hysteresis */
+                return (byte) bit;
+            } else if (transitions >= flappingThreshold) {
+                return FLAPPING;
+            }
+        }
+        if (bit == state) {
+            return state;
+        }
+        /* the number of the newest samples equal to the newest one */
+        int run = Math.min(Integer.numberOfTrailingZeros(bit == 1 ? ~h : h), n);
+        return run >= hysteresis ? (byte) bit : state;
+    }
+
+    /**
+     * Drops the stale resources and doubles the capacity if the table is still more than half full.
+     */
+    private void rehash(long now) {
+        String[] oldTenantIds = tenantIds;
+        String[] oldResourceIds = resourceIds;
+        long[] oldEmitted = emitted;
+        long[] oldSeen = seen;
+        int[] oldHistory = history;
+        byte[] oldSamples = samples;
+        byte[] oldStates = states;
+
+        long staleBefore = now - staleMillis;
+        int live = 0;
+        for (int j = 0; j < oldResourceIds.length; j++) {
+            if (oldResourceIds[j] != null && oldSeen[j] >= staleBefore) {
+                live++;
+            }
+        }
+        int capacity = oldResourceIds.length;
+        if ((live + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldResourceIds.length; j++) {
+            if (oldResourceIds[j] != null && oldSeen[j] >= staleBefore) {
+                int i = slot(oldTenantIds[j], oldResourceIds[j], mask);
+                while (resourceIds[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                tenantIds[i] = oldTenantIds[j];
+                resourceIds[i] = oldResourceIds[j];
+                emitted[i] = oldEmitted[j];
+                seen[i] = oldSeen[j];
+                history[i] = oldHistory[j];
+                samples[i] = oldSamples[j];
+                states[i] = oldStates[j];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * @return the number of tracked resources
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots of the table
+     */
+    synchronized int capacity() {
+        return resourceIds.length;
+    }
+}
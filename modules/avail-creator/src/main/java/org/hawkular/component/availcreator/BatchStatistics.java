@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Counts the batches posted by {@link AvailPublisher} and their latencies.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class BatchStatistics {
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder availabilities = new LongAdder();
+    private final LongAdder totalLatencyMicros = new LongAdder();
+    private final AtomicLong maxLatencyMicros = new AtomicLong();
+    private final Histogram latencies = new ConcurrentHistogram(2);
+    private final RateMeter availabilitiesRate = new RateMeter();
+
+    /**
+     * @param size the number of availabilities in the batch
+     * @param latencyMicros the time between starting to send the batch and receiving the response
+     * @param failed {@code true} if the batch was not accepted by Hawkular Metrics
+     */
+    void record(int size, long latencyMicros, boolean failed) {
+        batches.increment();
+        if (failed) {
+            failedBatches.increment();
+        }
+        availabilities.add(size);
+        totalLatencyMicros.add(latencyMicros);
+        maxLatencyMicros.accumulateAndGet(latencyMicros, Math::max);
+        latencies.recordValue(latencyMicros);
+        availabilitiesRate.mark(size, System.currentTimeMillis());
+    }
+
+    /**
+     * @return the number of posted batches
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of batches that failed with an I/O error or an error status
+     */
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * @return the number of availabilities in all posted batches
+     */
+    public long getAvailabilities() {
+        return availabilities.sum();
+    }
+
+    /**
+     * @return the average latency of a batch in microseconds or {@code 0} if no batch was posted yet
+     */
+    public long getAverageLatencyMicros() {
+        long count = batches.sum();
+        return count == 0 ? 0 : totalLatencyMicros.sum() / count;
+    }
+
+    /**
+     * @return the maximal latency of a batch in microseconds
+     */
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros.get();
+    }
+
+    /**
+     * @return the distribution of the latencies of the batches in microseconds
+     */
+    public Distribution getLatencyMicros() {
+        return Distribution.of(latencies);
+    }
+
+    /**
+     * @return the average number of posted availabilities per second over the last minute
+     */
+    public double getAvailabilitiesPerSecond() {
+        return availabilitiesRate.getPerSecond(System.currentTimeMillis());
+    }
+}
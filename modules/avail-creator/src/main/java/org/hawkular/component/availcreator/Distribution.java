@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * A snapshot of the distribution of the values recorded in a {@link Histogram}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class Distribution {
+
+    /**
+     * @param histogram the histogram to take the snapshot of
+     * @return a new {@link Distribution}
+     */
+    static Distribution of(Histogram histogram) {
+        return new Distribution(histogram.getTotalCount(), histogram.getMean(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(95),
+                histogram.getValueAtPercentile(99), histogram.getMaxValue());
+    }
+
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+    private final long max;
+
+    Distribution(long count, double mean, long p50, long p95, long p99, long max) {
+        super();
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean of the recorded values, {@code 0} if there are none
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the median of the recorded values
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 95th percentile of the recorded values
+     */
+    public long getP95() {
+        return p95;
+    }
+
+    /**
+     * @return the 99th percentile of the recorded values
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the maximal recorded value
+     */
+    public long getMax() {
+        return max;
+    }
+}
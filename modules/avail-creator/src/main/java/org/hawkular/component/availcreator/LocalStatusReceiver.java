@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Accepts status codes from a pinger deployed in the same server, so that they do not need to be serialized to
+ * Hawkular Bus by the pinger and parsed back by {@link MetricReceiver}. The pinger reaches this receiver through the
+ * platform MBean server under {@value #OBJECT_NAME}, because the two deployments share no classes.
+ * <p>
+ * The availability is computed by {@link MetricReceiver#RULES} in the calling thread and queued in a bounded queue of
+ * {@value #QUEUE_CAPACITY} availabilities. A single worker thread created by the default
+ * {@link ManagedThreadFactory} of the server drains the queue and processes the availabilities
+ * like {@link MetricReceiver} does, i.e. through the {@link AvailLanes} if they are enabled. A full queue rejects the
+ * offered status codes and the pinger falls back to the bus.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Singleton
+@Startup
+@DependsOn({ "AvailLanes", "MetricsHttpClient" })
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class LocalStatusReceiver implements LocalStatusReceiverMXBean {
+
+    /** The name under which this receiver is registered; the pinger refers to the same name */
+    public static final String OBJECT_NAME = "org.hawkular.component.availcreator:type=LocalStatusReceiver";
+
+    /** The maximal number of queued availabilities */
+    static final int QUEUE_CAPACITY = 10000;
+
+    private static final long POLL_MILLIS = 100;
+    private static final long STOP_MILLIS = 5000;
+
+    private final BlockingQueue<SingleAvail> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @EJB
+    AvailLanes lanes;
+
+    @EJB
+    MetricsHttpClient metricsHttpClient;
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    @PostConstruct
+    public void init() {
+        final CloseableHttpClient client = metricsHttpClient.getClient();
+        start(threadFactory, lanes, damped -> AvailPublisher.publish(client, damped, MetricReceiver.getStateTable()));
+        MBeans.register(this, OBJECT_NAME);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        MBeans.unregister(OBJECT_NAME);
+        stop();
+    }
+
+    /**
+     * Starts the worker thread.
+     *
+     * @param threadFactory the factory to create the worker thread with
+     * @param availLanes the lanes to hand the availabilities over to if they are enabled, can be {@code null}
+     * @param publisher the consumer to publish the damped availabilities with if the lanes are not enabled
+     */
+    void start(ThreadFactory threadFactory, AvailLanes availLanes, Consumer<List<SingleAvail>> publisher) {
+        running = true;
+        worker = threadFactory.newThread(() -> {
+            while (running || !queue.isEmpty()) {
+                try {
+                    SingleAvail first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    /* a new list every time, the lanes keep it */
+                    List<SingleAvail> batch = new ArrayList<>();
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    MetricReceiver.process(batch, availLanes, publisher);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    Log.LOG.eCouldNotProcessLocalStatus(e);
+                }
+            }
+        });
+        worker.setName("hawkular-avail-local-receiver");
+        worker.start();
+    }
+
+    /**
+     * Lets the worker process what was accepted so far and waits for it to finish.
+     */
+    void stop() {
+        running = false;
+        try {
+            worker.join(STOP_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker.interrupt();
+    }
+
+    @Override
+    public boolean offer(String tenantId, String resourceId, long timestamp, int code, int duration) {
+        if (!running) {
+            rejected.increment();
+            return false;
+        }
+        String avail = MetricReceiver.RULES.isUp(tenantId, resourceId, code, duration) ? MetricReceiver.UP
+                : MetricReceiver.DOWN;
+        if (queue.offer(new SingleAvail(tenantId, resourceId, timestamp, avail))) {
+            accepted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+/**
+ * The management interface of {@link LocalStatusReceiver}. Only JDK types are used, because the callers are other
+ * deployments that do not share any classes with avail-creator.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public interface LocalStatusReceiverMXBean {
+
+    /**
+     * Offers the status code of a ping for the availability computation.
+     *
+     * @param tenantId the tenant owning the pinged resource
+     * @param resourceId the pinged resource
+     * @param timestamp the timestamp of the ping
+     * @param code the status code of the ping
+     * @param duration the duration of the ping in milliseconds
+     * @return {@code true} if the status code was accepted, {@code false} if the receiver is saturated and the caller
+     *         should send the status code through the bus
+     */
+    boolean offer(String tenantId, String resourceId, long timestamp, int code, int duration);
+
+    /**
+     * @return the number of accepted status codes
+     */
+    long getAccepted();
+
+    /**
+     * @return the number of status codes rejected because the receiver was saturated
+     */
+    long getRejected();
+
+    /**
+     * @return the number of availabilities waiting to be processed
+     */
+    int getQueueDepth();
+}
@@ -52,4 +52,45 @@ public interface Log extends BasicLogger {
     @LogMessage(level = Logger.Level.ERROR)
     @Message(id = 5104, value = "Could not parse a message to json format")
     void eCouldNotParseMessage(@Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5105, value = "Loaded availability rules from '%s', rules count: %d")
+    void iAvailRulesLoaded(String file, int count);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5106, value = "Ignoring the availability rules in '%s', the previous rules stay in effect: %s")
+    void wInvalidAvailRules(String file, String message);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5107, value = "Ignoring the invalid availability damping settings, state changes will not be "
+            + "damped: %s")
+    void wInvalidDamping(String message);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5108, value = "Started %d availability lanes")
+    void iLanesStarted(int count);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5109, value = "Availability lane %d failed to process a batch")
+    void eLaneFailed(int lane, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5110, value = "Could not register the MBean '%s'")
+    void wCouldNotRegisterMBean(String objectName, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5111, value = "Could not process the status codes received from a local pinger")
+    void eCouldNotProcessLocalStatus(@Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5112, value = "Loaded the availability SLA counters of %d resources from '%s'")
+    void iSlaLoaded(int count, String file);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5113, value = "Could not load the availability SLA counters from '%s', starting from scratch")
+    void wCouldNotLoadSla(String file, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5114, value = "Could not store the availability SLA counters to '%s'")
+    void eCouldNotStoreSla(String file, @Cause Throwable e);
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers the MBeans of avail-creator in the platform {@link MBeanServer}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class MBeans {
+
+    /**
+     * Registers the given MBean under the given name, replacing any MBean left behind under the same name by a
+     * previous deployment. Failures are logged.
+     *
+     * @param mbean the MBean to register
+     * @param objectName the name to register the MBean under
+     */
+    static void register(Object mbean, String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (Exception e) {
+            Log.LOG.wCouldNotRegisterMBean(objectName, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean with the given name if there is any.
+     *
+     * @param objectName the name of the MBean to unregister
+     */
+    static void unregister(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            Log.LOG.debugf(e, "Could not unregister the MBean %s", objectName);
+        }
+    }
+
+    private MBeans() {
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.ejb.TransactionAttribute;
+import javax.jms.Message;
+
+/**
+ * The {@link MetricReceiver} for the producers that do not send their status codes to
+ * 'java:/topic/HawkularStatusCodes'. Listens on 'java:/topic/HawkularMetricData' where Hawkular Metrics republishes
+ * all stored data points, including the {@code *.status.code} ones posted via REST. Only the untagged messages are
+ * delivered, the tagged ones come from the producers that know about the dedicated topic already.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@MessageDriven(activationConfig = {
+        @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
+        @ActivationConfigProperty(propertyName = "destination", propertyValue = "HawkularMetricData"),
+        @ActivationConfigProperty(propertyName = "messageSelector",
+                propertyValue = MetricDataReceiver.UNTAGGED_SELECTOR)
+})
+@TransactionAttribute(value = NOT_SUPPORTED)
+public class MetricDataReceiver extends MetricReceiver {
+
+    static final String UNTAGGED_SELECTOR = DATA_TYPE_PROPERTY + " IS NULL";
+
+    @Override
+    public void onMessage(Message message) {
+        getStatistics().receivedFromMetricData();
+        super.onMessage(message);
+    }
+
+}
@@ -18,9 +18,8 @@ package org.hawkular.component.availcreator;
 
 import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.EJB;
@@ -30,14 +29,39 @@ import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.TextMessage;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * Receiver that listens on JMS Topic and checks for metrics *.status.code
- * Listening goes on 'java:/topic/HawkularMetricData'.
+ * Listening goes on 'java:/topic/HawkularStatusCodes'.
  * Then computes availability and forwards that to a topic for availability
  *
+ * The topic is dedicated to status codes, so that this MDB does not have to sift through all the metric data
+ * Hawkular Metrics republishes on 'java:/topic/HawkularMetricData'. The producers sending there are expected to tag
+ * their messages with the {@value #DATA_TYPE_PROPERTY} JMS property set to {@value #STATUS_CODE_DATA_TYPE}; the
+ * message selector lets through also the untagged messages, but drops the ones tagged with any other data type.
+ *
+ * Migration: the producers that do not know about 'java:/topic/HawkularStatusCodes' yet, as well as the pingers
+ * with an empty {@code status-codes.topic}, reach avail-creator only through the data Hawkular Metrics republishes
+ * untagged on 'java:/topic/HawkularMetricData'. {@link MetricDataReceiver} keeps listening there for them. A status
+ * code that arrives through both topics is counted only once, because {@link AvailStateTable} ignores the samples
+ * not newer than the last one of the same resource. {@link ReceiverStatistics#getReceivedFromMetricData()} shows
+ * how much is still coming the old way.
+ *
+ * The availability is computed by the rules from {@link AvailRules}; the built-in default is UP for status codes
+ * up to 399. An availability is published only if it differs from the last published one of the same resource or if
+ * the last one is older than the heartbeat set by {@value #HEARTBEAT_PROPERTY} (5 minutes by default), see
+ * {@link AvailStateTable}.
+ *
+ * State changes can be damped: with {@value #HYSTERESIS_PROPERTY} set to N, a resource flips between UP and DOWN only
+ * after N consecutive samples agree, and with {@value #FLAPPING_WINDOW_PROPERTY} set, a resource whose recent samples
+ * change too often (see {@value #FLAPPING_THRESHOLD_PROPERTY}) is published as UNKNOWN until it calms down. Both are
+ * off by default.
+ *
+ * Pingers deployed in the same server can bypass the bus and hand their status codes over to
+ * {@link LocalStatusReceiver}, which computes the availabilities the same way.
+ *
+ * If {@link AvailLanes} are enabled, the availabilities are handed over to them instead of being damped and published
+ * here.
+ *
  * Requires this in standalone.xml:
  *
  *  <admin-object use-java-context="true"
@@ -52,66 +76,169 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @MessageDriven(activationConfig = {
         @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
-        @ActivationConfigProperty(propertyName = "destination", propertyValue = "HawkularMetricData")
+        @ActivationConfigProperty(propertyName = "destination", propertyValue = "HawkularStatusCodes"),
+        @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = MetricReceiver.SELECTOR)
 })
 @TransactionAttribute(value = NOT_SUPPORTED)
 public class MetricReceiver implements MessageListener {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** The JMS property identifying the kind of data in a message, set by the producers */
+    public static final String DATA_TYPE_PROPERTY = "hawkularDataType";
 
-    @EJB
-    AvailPublisher availPublisher;
+    /** The value of {@value #DATA_TYPE_PROPERTY} for the messages carrying {@code <rid>.status.code} data */
+    public static final String STATUS_CODE_DATA_TYPE = "status-code";
 
-    @Override
-    public void onMessage(Message message) {
+    static final String UP = "UP";
+    static final String DOWN = "DOWN";
+    /** Published for flapping resources, Hawkular Metrics has no dedicated availability type for them */
+    static final String UNKNOWN = "UNKNOWN";
 
-        try {
-            String payload = ((TextMessage) message).getText();
-            JsonNode rootNode = objectMapper.readTree(payload);
+    static final String SELECTOR = DATA_TYPE_PROPERTY + " IS NULL OR " + DATA_TYPE_PROPERTY + " = '"
+            + STATUS_CODE_DATA_TYPE + "'";
 
-            JsonNode metricData = rootNode.get("metricData");
-            // Get <rid>.status.code  metrics
-            String tenant = metricData.get("tenantId").textValue();
-            JsonNode data = metricData.get("data");
-            List<SingleAvail> outer = new ArrayList<>();
+    /**
+     * The system property holding the maximal number of milliseconds between two publications of an unchanged
+     * availability of a resource; {@code 0} publishes every availability
+     */
+    public static final String HEARTBEAT_PROPERTY = "hawkular.avail-creator.heartbeat";
 
-            Iterator<JsonNode> items = data.elements();
-            while (items.hasNext()) {
-                JsonNode item = items.next();
+    /**
+     * The system property holding the number of consecutive samples needed to flip a resource between UP and DOWN;
+     * {@code 1} (the default) flips on every change
+     */
+    public static final String HYSTERESIS_PROPERTY = "hawkular.avail-creator.hysteresis";
 
-                String source = item.get("source").textValue();
-                if (source.endsWith(".status.code")) {
-                    int code = item.get("value").intValue();
+    /**
+     * The system property holding the number of the most recent samples of a resource in which the UP/DOWN
+     * transitions are counted to detect flapping; {@code 0} (the default) disables the detection
+     */
+    public static final String FLAPPING_WINDOW_PROPERTY = "hawkular.avail-creator.flapping.window";
 
-                    String id = source.substring(0, source.indexOf("."));
-                    long timestamp = item.get("timestamp").longValue();
+    /**
+     * The system property holding the number of transitions within {@value #FLAPPING_WINDOW_PROPERTY} samples that
+     * make a resource flapping; half of the window by default
+     */
+    public static final String FLAPPING_THRESHOLD_PROPERTY = "hawkular.avail-creator.flapping.threshold";
 
-                    String avail = computeAvail(code);
+    private static final ReceiverStatistics STATISTICS = new ReceiverStatistics();
 
-                    SingleAvail ar = new SingleAvail(tenant, id, timestamp, avail);
-                    outer.add(ar);
-                }
-            }
-            if (!outer.isEmpty()) {
-                availPublisher.sendToMetricsViaRest(outer);
-            }
+    private static final AvailStateTable STATES = createStateTable();
 
-        } catch (Exception e) {
-            Log.LOG.eCouldNotHandleBusMessage(e);
+    private static final SlaRollups SLA = SlaRollups.getInstance();
+
+    /**
+     * @return a new {@link AvailStateTable} configured by the system properties
+     */
+    static AvailStateTable createStateTable() {
+        long heartbeat = Math.max(0, Long.getLong(HEARTBEAT_PROPERTY, 300000L));
+        int window = Integer.getInteger(FLAPPING_WINDOW_PROPERTY, 0);
+        try {
+            return new AvailStateTable(heartbeat, Integer.getInteger(HYSTERESIS_PROPERTY, 1), window,
+                    Integer.getInteger(FLAPPING_THRESHOLD_PROPERTY, window / 2));
+        } catch (IllegalArgumentException e) {
+            Log.LOG.wInvalidDamping(e.getMessage());
+            return new AvailStateTable(heartbeat);
         }
+    }
+
+    /**
+     * @return the table damping the availabilities that are not processed by {@link AvailLanes}
+     */
+    static AvailStateTable getStateTable() {
+        return STATES;
+    }
 
+    /**
+     * @return the statistics of the messages delivered to all {@link MetricReceiver}s
+     */
+    public static ReceiverStatistics getStatistics() {
+        return STATISTICS;
     }
 
+    static final AvailRules RULES = AvailRules.fromSystemProperties();
+
+    private final StatusCodeExtractor extractor = new StatusCodeExtractor(RULES);
+
+    @EJB
+    AvailPublisher availPublisher;
+
+    @EJB
+    AvailLanes lanes;
+
     /**
-     * Do the work of computing the availability from the status code
-     * @param code Status code of the web request
-     * @return "UP" or "DOWN" accordingly
+     * Hands the given availabilities over to the given {@link AvailLanes} if they are enabled, otherwise damps them
+     * and publishes the rest in the calling thread.
+     *
+     * @param outer the availabilities to process
+     * @param lanes the lanes, can be {@code null}
+     * @param publisher the consumer to publish the damped availabilities with if the lanes are not enabled; it is
+     *        responsible for reverting the failed emissions in {@link #getStateTable()}
+     * @throws InterruptedException if interrupted while waiting for a full lane
      */
-    private String computeAvail(int code) {
-        if (code <= 399) {
-            return "UP";
+    static void process(List<SingleAvail> outer, AvailLanes lanes, Consumer<List<SingleAvail>> publisher)
+            throws InterruptedException {
+        if (lanes != null && lanes.isEnabled()) {
+            /* the lanes damp and publish in order per resource */
+            lanes.dispatch(outer);
+            return;
         }
-        return "DOWN";
+        damp(STATES, outer);
+        if (!outer.isEmpty()) {
+            publisher.accept(outer);
+        }
+    }
+
+    /**
+     * Replaces the raw availabilities in the given list by the damped states from the given {@link AvailStateTable}
+     * and removes those that should not be published, i.e. keeps only the changes and the heartbeats. The kept ones
+     * are recorded in {@link SlaRollups}.
+     *
+     * @param states the table to look up and update the states of the resources in
+     * @param outer the availabilities to filter in place, a random access list
+     */
+    static void damp(AvailStateTable states, List<SingleAvail> outer) {
+        /* compact in place, removing from the middle of a large batch one by one would be quadratic */
+        int kept = 0;
+        for (int i = 0; i < outer.size(); i++) {
+            SingleAvail avail = outer.get(i);
+            byte state = states.update(avail.tenantId, avail.id, UP.equals(avail.avail), avail.timestamp);
+            final String value;
+            switch (state) {
+            case AvailStateTable.NONE:
+                STATISTICS.suppressed();
+                continue;
+            case AvailStateTable.UP:
+                value = UP;
+                break;
+            case AvailStateTable.DOWN:
+                value = DOWN;
+                break;
+            default:
+                value = UNKNOWN;
+                break;
+            }
+            SLA.record(avail.tenantId, avail.id, state, avail.timestamp);
+            outer.set(kept++, value.equals(avail.avail) ? avail
+                    : new SingleAvail(avail.tenantId, avail.id, avail.timestamp, value));
+        }
+        outer.subList(kept, outer.size()).clear();
+    }
+
+    @Override
+    public void onMessage(Message message) {
+
+        STATISTICS.received();
+        try {
+            String payload = ((TextMessage) message).getText();
+            long start = System.nanoTime();
+            List<SingleAvail> outer = extractor.extract(payload);
+            STATISTICS.parsed(outer.size(), (System.nanoTime() - start) / 1000);
+            process(outer, lanes, availPublisher::sendToMetricsViaRest);
+
+        } catch (Exception e) {
+            Log.LOG.eCouldNotHandleBusMessage(e);
+        }
+
     }
 
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Owns the HTTP client {@link AvailPublisher} posts the availabilities to Hawkular Metrics with. The client keeps a
+ * pool of keep-alive connections of at most {@value #MAX_CONNECTIONS_PROPERTY} connections (20 by default), which is
+ * closed when the deployment is stopped.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MetricsHttpClient {
+
+    /** The system property holding the maximal number of connections to Hawkular Metrics */
+    public static final String MAX_CONNECTIONS_PROPERTY = "hawkular.avail-creator.connections.max";
+
+    private volatile CloseableHttpClient client;
+
+    @PostConstruct
+    public void init() {
+        /* all requests go to the same Hawkular Metrics, so the per route limit is the total limit */
+        int maxConnections = Math.max(1, Integer.getInteger(MAX_CONNECTIONS_PROPERTY, 20));
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        client = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            Log.LOG.debugf(e, "Could not close the HTTP client");
+        }
+    }
+
+    /**
+     * @return the pooling client to post to Hawkular Metrics with
+     */
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events per second over the last minute. The counts of the individual seconds are kept in a ring of
+ * {@value #SECONDS} slots plus one for the current second, each slot tagged with the second it counts, so that
+ * marking an event is a couple of atomic operations and no timer is needed to roll the ring.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class RateMeter {
+
+    /** The number of seconds the rate is averaged over. The value is {@value} */
+    static final int SECONDS = 60;
+
+    private static final int SLOTS = SECONDS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray epochSeconds = new AtomicLongArray(SLOTS);
+
+    /**
+     * Counts the given number of events that happened at the given time.
+     *
+     * @param events the number of events
+     * @param nowMillis the current time in milliseconds
+     */
+    void mark(long events, long nowMillis) {
+        long second = nowMillis / 1000;
+        int slot = (int) (second % SLOTS);
+        long slotSecond = epochSeconds.get(slot);
+        if (slotSecond != second && epochSeconds.compareAndSet(slot, slotSecond, second)) {
+            /* the first event of a new second resets the slot, a racing event may get lost, which is fine here */
+            counts.set(slot, events);
+        } else {
+            counts.addAndGet(slot, events);
+        }
+    }
+
+    /**
+     * @param nowMillis the current time in milliseconds
+     * @return the average number of events per second in the {@value #SECONDS} seconds before the current one
+     */
+    double getPerSecond(long nowMillis) {
+        long second = nowMillis / 1000;
+        long sum = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long slotSecond = epochSeconds.get(i);
+            if (slotSecond < second && slotSecond >= second - SECONDS) {
+                sum += counts.get(i);
+            }
+        }
+        return (double) sum / SECONDS;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Counts the messages delivered to {@link MetricReceiver} and what happened to them.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class ReceiverStatistics {
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder receivedFromMetricData = new LongAdder();
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder statusCodes = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final RateMeter receivedRate = new RateMeter();
+    private final Histogram parseMicros = new ConcurrentHistogram(2);
+    private final Histogram statusCodesPerMessage = new ConcurrentHistogram(2);
+
+    void received() {
+        received.increment();
+        receivedRate.mark(1, System.currentTimeMillis());
+    }
+
+    void receivedFromMetricData() {
+        receivedFromMetricData.increment();
+    }
+
+    /**
+     * @param statusCodeCount the number of status codes found in the message
+     * @param parseMicros the time it took to extract the status codes in microseconds
+     */
+    void parsed(int statusCodeCount, long parseMicros) {
+        parsed.increment();
+        statusCodes.add(statusCodeCount);
+        statusCodesPerMessage.recordValue(statusCodeCount);
+        this.parseMicros.recordValue(parseMicros);
+    }
+
+    /**
+     * @return the number of messages delivered to {@link MetricReceiver}
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return the average number of messages delivered to {@link MetricReceiver} per second over the last minute
+     */
+    public double getReceivedPerSecond() {
+        return receivedRate.getPerSecond(System.currentTimeMillis());
+    }
+
+    void suppressed() {
+        suppressed.increment();
+    }
+
+    /**
+     * @return the number of the messages out of {@link #getReceived()} that were delivered by {@link
+     *         MetricDataReceiver} from {@code HawkularMetricData} rather than from the dedicated
+     *         {@code HawkularStatusCodes} topic
+     */
+    public long getReceivedFromMetricData() {
+        return receivedFromMetricData.sum();
+    }
+
+    /**
+     * @return the number of parsed messages
+     */
+    public long getParsed() {
+        return parsed.sum();
+    }
+
+    /**
+     * @return the number of status codes found in the parsed messages
+     */
+    public long getStatusCodes() {
+        return statusCodes.sum();
+    }
+
+    /**
+     * @return the number of availabilities not published because the damped state of the resource did not change
+     *         since the last heartbeat
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * @return the distribution of the times in microseconds it took to extract the status codes out of a message
+     */
+    public Distribution getParseMicros() {
+        return Distribution.of(parseMicros);
+    }
+
+    /**
+     * @return the distribution of the numbers of status codes found in a parsed message
+     */
+    public Distribution getStatusCodesPerMessage() {
+        return Distribution.of(statusCodesPerMessage);
+    }
+}
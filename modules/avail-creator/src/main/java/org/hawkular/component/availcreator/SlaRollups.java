@@ -0,0 +1,382 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Incremental up-time and down-time counters of each resource, so that the uptime over the last day, week and month
+ * can be served without scanning the availability series in Hawkular Metrics.
+ * <p>
+ * The time of a resource is accounted in {@value #BUCKETS} hourly buckets kept in a ring, i.e. 31 days. Each bucket
+ * is a single {@code int} holding the up seconds in its lower and the down seconds in its upper 16 bits, so that a
+ * resource takes about 3 kB. Besides the ring, the up and down seconds of each {@link Window} are kept as running
+ * sums that are updated when time is accounted and when a bucket falls out of a window. A read accounts the time
+ * since the last recorded availability on a copy of the counters, so that it does not move the point from which the
+ * next recorded availability is accounted. The time between two recorded availabilities is accounted to the state of
+ * the earlier one; the flapping time
+ * counts neither as up nor as down. A {@link Window} covers its number of hourly buckets up to and including the
+ * current one.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class SlaRollups {
+
+    /**
+     * The windows over which the uptime is available.
+     */
+    public enum Window {
+        day(24), week(7 * 24), month(BUCKETS);
+
+        private final int buckets;
+
+        private Window(int buckets) {
+            this.buckets = buckets;
+        }
+
+        /**
+         * @return the number of hourly buckets this window covers
+         */
+        public int getBuckets() {
+            return buckets;
+        }
+    }
+
+    /**
+     * The up and down time of a resource within a {@link Window}.
+     */
+    public static class Uptime {
+        private final long upSeconds;
+        private final long downSeconds;
+
+        Uptime(long upSeconds, long downSeconds) {
+            super();
+            this.upSeconds = upSeconds;
+            this.downSeconds = downSeconds;
+        }
+
+        /**
+         * @return the number of seconds the resource was UP
+         */
+        public long getUpSeconds() {
+            return upSeconds;
+        }
+
+        /**
+         * @return the number of seconds the resource was DOWN
+         */
+        public long getDownSeconds() {
+            return downSeconds;
+        }
+
+        /**
+         * @return the ratio of the up time to the sum of the up and down time or {@code null} if there is neither
+         */
+        public Double getUptime() {
+            long total = upSeconds + downSeconds;
+            return total == 0 ? null : (double) upSeconds / total;
+        }
+    }
+
+    /** The length of a bucket in milliseconds. The value is {@value} */
+    static final long BUCKET_MILLIS = 3600000L;
+
+    /** The number of buckets kept for each resource. The value is {@value} */
+    static final int BUCKETS = 31 * 24;
+
+    private static final int MAGIC = 0x48415331; // "HAS1"
+    private static final int UP_MASK = 0xffff;
+    private static final int DOWN_SHIFT = 16;
+    private static final Window[] WINDOWS = Window.values();
+
+    private static final SlaRollups INSTANCE = new SlaRollups();
+
+    /**
+     * @return the singleton fed by {@link MetricReceiver#damp(AvailStateTable, java.util.List)}
+     */
+    public static SlaRollups getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The counters of one resource.
+     */
+    private static class Record {
+        private long lastTimestamp;
+        private byte state;
+        private long newestBucket;
+        private final int[] ring = new int[BUCKETS];
+        private final long[] upSums = new long[WINDOWS.length];
+        private final long[] downSums = new long[WINDOWS.length];
+
+        private Record(byte state, long timestamp) {
+            super();
+            this.state = state;
+            this.lastTimestamp = timestamp;
+            this.newestBucket = timestamp / BUCKET_MILLIS;
+        }
+
+        /**
+         * @return a copy of this {@link Record} that can be accrued without changing this one
+         */
+        private Record copy() {
+            Record result = new Record(state, lastTimestamp);
+            result.newestBucket = newestBucket;
+            System.arraycopy(ring, 0, result.ring, 0, BUCKETS);
+            System.arraycopy(upSums, 0, result.upSums, 0, upSums.length);
+            System.arraycopy(downSums, 0, result.downSums, 0, downSums.length);
+            return result;
+        }
+
+        private static int slot(long bucket) {
+            return (int) (bucket % BUCKETS);
+        }
+
+        /**
+         * Accounts the time from {@link #lastTimestamp} up to the given timestamp to the current {@link #state}.
+         */
+        private void accrue(long to) {
+            if (to <= lastTimestamp) {
+                return;
+            }
+            /* anything older would fall out of all windows anyway */
+            long from = Math.max(lastTimestamp, (to / BUCKET_MILLIS - BUCKETS + 1) * BUCKET_MILLIS);
+            while (from < to) {
+                long bucket = from / BUCKET_MILLIS;
+                roll(bucket);
+                long end = Math.min(to, (bucket + 1) * BUCKET_MILLIS);
+                /* whole seconds elapsed between the two points, so that no rounding errors accumulate */
+                int seconds = (int) (end / 1000 - from / 1000);
+                if (state == AvailStateTable.UP) {
+                    ring[slot(bucket)] += seconds;
+                    for (int w = 0; w < WINDOWS.length; w++) {
+                        upSums[w] += seconds;
+                    }
+                } else if (state == AvailStateTable.DOWN) {
+                    ring[slot(bucket)] += seconds << DOWN_SHIFT;
+                    for (int w = 0; w < WINDOWS.length; w++) {
+                        downSums[w] += seconds;
+                    }
+                }
+                from = end;
+            }
+            /* the windows end with the bucket of to, even if no time was accounted to it yet */
+            roll(to / BUCKET_MILLIS);
+            lastTimestamp = to;
+        }
+
+        /**
+         * Makes the given bucket the newest one, subtracting the buckets that fall out of the windows.
+         */
+        private void roll(long bucket) {
+            if (bucket - newestBucket >= BUCKETS) {
+                Arrays.fill(ring, 0);
+                Arrays.fill(upSums, 0);
+                Arrays.fill(downSums, 0);
+                newestBucket = bucket;
+                return;
+            }
+            while (newestBucket < bucket) {
+                newestBucket++;
+                for (int w = 0; w < WINDOWS.length; w++) {
+                    int leaving = ring[slot(newestBucket - WINDOWS[w].buckets)];
+                    upSums[w] -= leaving & UP_MASK;
+                    downSums[w] -= leaving >>> DOWN_SHIFT;
+                }
+                /* the month window has just subtracted what was in this slot */
+                ring[slot(newestBucket)] = 0;
+            }
+        }
+
+        /**
+         * Recomputes the running sums out of the ring.
+         */
+        private void sum() {
+            for (int w = 0; w < WINDOWS.length; w++) {
+                long up = 0;
+                long down = 0;
+                for (int i = 0; i < WINDOWS[w].buckets; i++) {
+                    int value = ring[slot(newestBucket - i + BUCKETS)];
+                    up += value & UP_MASK;
+                    down += value >>> DOWN_SHIFT;
+                }
+                upSums[w] = up;
+                downSums[w] = down;
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Record>> records = new ConcurrentHashMap<>();
+
+    SlaRollups() {
+        super();
+    }
+
+    /**
+     * Records an availability of a resource, accounting the time since the previous one to the previous state.
+     * Availabilities older than the last recorded one of the same resource are ignored.
+     *
+     * @param tenantId the tenant owning the resource
+     * @param resourceId the resource
+     * @param state one of {@link AvailStateTable#UP}, {@link AvailStateTable#DOWN} and
+     *        {@link AvailStateTable#FLAPPING}
+     * @param timestamp the timestamp of the availability
+     */
+    void record(String tenantId, String resourceId, byte state, long timestamp) {
+        ConcurrentMap<String, Record> tenantRecords = records.computeIfAbsent(tenantId == null ? "" : tenantId,
+                k -> new ConcurrentHashMap<>());
+        Record record = tenantRecords.get(resourceId);
+        if (record == null) {
+            record = tenantRecords.putIfAbsent(resourceId, new Record(state, timestamp));
+            if (record == null) {
+                return;
+            }
+        }
+        synchronized (record) {
+            if (timestamp >= record.lastTimestamp) {
+                record.accrue(timestamp);
+                record.state = state;
+            }
+        }
+    }
+
+    /**
+     * Returns the uptime of the given resource in all {@link Window}s, accounting the time since the last recorded
+     * availability up to {@code now} to the last recorded state. The recorded counters are left unchanged, so that an
+     * availability older than {@code now} recorded later is still accounted.
+     *
+     * @param tenantId the tenant owning the resource
+     * @param resourceId the resource
+     * @param now the current time in milliseconds
+     * @return the {@link Uptime}s by {@link Window} or {@code null} if the resource is not known
+     */
+    public Map<Window, Uptime> getUptimes(String tenantId, String resourceId, long now) {
+        Map<String, Record> tenantRecords = records.get(tenantId);
+        Record record = tenantRecords == null ? null : tenantRecords.get(resourceId);
+        if (record == null) {
+            return null;
+        }
+        Record view;
+        synchronized (record) {
+            view = record.copy();
+        }
+        view.accrue(now);
+        Map<Window, Uptime> result = new LinkedHashMap<>();
+        for (Window window : WINDOWS) {
+            result.put(window, new Uptime(view.upSums[window.ordinal()], view.downSums[window.ordinal()]));
+        }
+        return result;
+    }
+
+    /**
+     * Drops the resources that have not been recorded for longer than the longest {@link Window}.
+     *
+     * @param now the current time in milliseconds
+     * @return the number of the dropped resources
+     */
+    int evict(long now) {
+        long before = now - BUCKETS * BUCKET_MILLIS;
+        int result = 0;
+        for (Map<String, Record> tenantRecords : records.values()) {
+            for (Iterator<Record> it = tenantRecords.values().iterator(); it.hasNext();) {
+                Record record = it.next();
+                synchronized (record) {
+                    if (record.lastTimestamp < before) {
+                        it.remove();
+                        result++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of tracked resources
+     */
+    int size() {
+        int result = 0;
+        for (Map<String, Record> tenantRecords : records.values()) {
+            result += tenantRecords.size();
+        }
+        return result;
+    }
+
+    /**
+     * Writes a snapshot of all counters to the given stream.
+     *
+     * @param out the stream to write to
+     * @throws IOException on write errors
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(BUCKETS);
+        for (Map.Entry<String, ConcurrentMap<String, Record>> tenant : records.entrySet()) {
+            for (Map.Entry<String, Record> entry : tenant.getValue().entrySet()) {
+                Record record = entry.getValue();
+                synchronized (record) {
+                    out.writeBoolean(true);
+                    out.writeUTF(tenant.getKey());
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(record.lastTimestamp);
+                    out.writeByte(record.state);
+                    out.writeLong(record.newestBucket);
+                    for (int value : record.ring) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+        }
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Replaces the counters of the resources contained in the given snapshot.
+     *
+     * @param in the stream to read a snapshot written by {@link #writeTo(DataOutputStream)} from
+     * @return the number of resources read
+     * @throws IOException on read errors or if the stream does not contain a compatible snapshot
+     */
+    int readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != BUCKETS) {
+            throw new IOException("Not a compatible availability SLA snapshot");
+        }
+        int result = 0;
+        while (in.readBoolean()) {
+            String tenantId = in.readUTF();
+            String resourceId = in.readUTF();
+            long lastTimestamp = in.readLong();
+            Record record = new Record(in.readByte(), lastTimestamp);
+            record.newestBucket = in.readLong();
+            for (int i = 0; i < BUCKETS; i++) {
+                record.ring[i] = in.readInt();
+            }
+            record.sum();
+            records.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>()).put(resourceId, record);
+            result++;
+        }
+        return result;
+    }
+}
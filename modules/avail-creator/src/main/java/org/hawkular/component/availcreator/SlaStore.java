@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+/**
+ * Loads the {@link SlaRollups} from a file when avail-creator starts and stores them back every five minutes and when
+ * it stops, so that the uptime counters survive restarts. The file is set by the {@value #FILE_PROPERTY} system
+ * property, {@code hawkular-avail-sla.bin} in {@code jboss.server.data.dir} by default. The snapshot is written to a
+ * temporary file first and moved over the previous one, so that a crash while writing does not lose the counters.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SlaStore {
+
+    /** The system property holding the path of the file the SLA counters are stored in */
+    public static final String FILE_PROPERTY = "hawkular.avail-creator.sla.file";
+
+    static final String DEFAULT_FILE_NAME = "hawkular-avail-sla.bin";
+
+    private Path file;
+
+    @PostConstruct
+    public void init() {
+        String path = System.getProperty(FILE_PROPERTY);
+        if (path == null && System.getProperty("jboss.server.data.dir") != null) {
+            path = Paths.get(System.getProperty("jboss.server.data.dir"), DEFAULT_FILE_NAME).toString();
+        }
+        if (path != null) {
+            file = Paths.get(path);
+            load(SlaRollups.getInstance(), file);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        store();
+    }
+
+    @Schedule(minute = "*/5", hour = "*", persistent = false)
+    public synchronized void store() {
+        if (file != null) {
+            SlaRollups rollups = SlaRollups.getInstance();
+            rollups.evict(System.currentTimeMillis());
+            store(rollups, file);
+        }
+    }
+
+    /**
+     * Loads the snapshot from the given file into the given {@link SlaRollups} if the file exists.
+     *
+     * @param rollups the rollups to load into
+     * @param file the file to read
+     */
+    static void load(SlaRollups rollups, Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Log.LOG.iSlaLoaded(rollups.readFrom(in), file.toString());
+        } catch (IOException e) {
+            Log.LOG.wCouldNotLoadSla(file.toString(), e);
+        }
+    }
+
+    /**
+     * Stores a snapshot of the given {@link SlaRollups} to the given file.
+     *
+     * @param rollups the rollups to store
+     * @param file the file to write
+     */
+    static void store(SlaRollups rollups, Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                rollups.writeTo(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.LOG.eCouldNotStoreSla(file.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * Serves the throughput, parse times and publishing latencies of avail-creator, so that operators can see where the
+ * time goes without attaching a JMX client; the same is available through {@link AvailCreatorStatisticsMXBean}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Path("/statistics")
+@Produces(APPLICATION_JSON)
+public class StatisticsEndpoint {
+
+    /**
+     * @return the {@link ReceiverStatistics} under {@code receiver} and the {@link BatchStatistics} under
+     *         {@code publisher}
+     */
+    @GET
+    @Path("/")
+    public Response getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("receiver", MetricReceiver.getStatistics());
+        result.put("publisher", AvailPublisher.getStatistics());
+        return Response.ok(result).build();
+    }
+}
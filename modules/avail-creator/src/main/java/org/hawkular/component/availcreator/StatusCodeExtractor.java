@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts the {@code <rid>.status.code} and {@code <rid>.status.duration} data points out of a
+ * {@code HawkularMetricData} message using a streaming {@link JsonParser}, so that no tree of the whole message is
+ * built, and turns them into availabilities using {@link AvailRules}. Only {@code metricData.tenantId} and the
+ * {@code source}, {@code timestamp} and {@code value} fields of the items in {@code metricData.data} are read, all
+ * other values are skipped. A duration is matched with the code of the same resource and timestamp through a
+ * {@link HashMap} filled while reading, so that the matching takes a single pass over the codes. A single
+ * {@link JsonFactory} is shared by all extractions, so that the parsers it creates recycle their buffers.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class StatusCodeExtractor {
+
+    static final String STATUS_CODE_SUFFIX = ".status.code";
+    static final String STATUS_DURATION_SUFFIX = ".status.duration";
+
+    /**
+     * A status code or duration data point. The identity of a {@link Sample} is given by its {@link #id} and
+     * {@link #timestamp} so that the code and the duration of the same ping are equal.
+     */
+    private static class Sample {
+        private final String id;
+        private final long timestamp;
+        private final boolean isCode;
+        private final int value;
+
+        private Sample(String id, long timestamp, boolean isCode, int value) {
+            super();
+            this.id = id;
+            this.timestamp = timestamp;
+            this.isCode = isCode;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Sample)) {
+                return false;
+            }
+            Sample other = (Sample) obj;
+            return timestamp == other.timestamp && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + (int) (timestamp ^ (timestamp >>> 32));
+        }
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final AvailRules rules;
+
+    /**
+     * Creates a new extractor applying just the {@link AvailRules#DEFAULT_RULE}.
+     */
+    StatusCodeExtractor() {
+        this(new AvailRules(null));
+    }
+
+    /**
+     * @param rules the rules to compute the availabilities with
+     */
+    StatusCodeExtractor(AvailRules rules) {
+        super();
+        this.rules = rules;
+    }
+
+    /**
+     * @param payload the text of a {@code HawkularMetricData} message
+     * @return the availabilities computed from the statuses found in the given {@code payload}, possibly empty
+     * @throws IOException if the {@code payload} is not a valid message
+     */
+    List<SingleAvail> extract(String payload) throws IOException {
+        List<SingleAvail> result = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("metricData".equals(field)) {
+                    readMetricData(parser, result);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private void readMetricData(JsonParser parser, List<SingleAvail> result) throws IOException {
+        expect(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+        /* tenantId may come after data */
+        String tenantId = null;
+        List<Sample> codes = new ArrayList<>();
+        Map<Sample, Integer> durations = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("tenantId".equals(field)) {
+                tenantId = parser.getValueAsString();
+            } else if ("data".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Sample sample = readItem(parser);
+                    if (sample == null) {
+                        continue;
+                    }
+                    if (sample.isCode) {
+                        codes.add(sample);
+                    } else {
+                        durations.putIfAbsent(sample, sample.value);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        for (Sample code : codes) {
+            Integer duration = durations.get(code);
+            boolean up = rules.isUp(tenantId, code.id, code.value,
+                    duration == null ? AvailPredicate.UNKNOWN_DURATION : duration);
+            result.add(new SingleAvail(tenantId, code.id, code.timestamp,
+                    up ? MetricReceiver.UP : MetricReceiver.DOWN));
+        }
+    }
+
+    /**
+     * @return a new {@link Sample} or {@code null} if the item is neither a status code nor a status duration
+     */
+    private Sample readItem(JsonParser parser) throws IOException {
+        String source = null;
+        boolean isCode = false;
+        long timestamp = 0;
+        int value = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "source":
+                if (endsWith(parser, STATUS_CODE_SUFFIX)) {
+                    isCode = true;
+                } else if (!endsWith(parser, STATUS_DURATION_SUFFIX)) {
+                    /* not a status, no need to look at the rest */
+                    skipRestOfObject(parser);
+                    return null;
+                }
+                source = parser.getText();
+                break;
+            case "timestamp":
+                timestamp = parser.getValueAsLong();
+                break;
+            case "value":
+                value = parser.getValueAsInt();
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+        if (source == null) {
+            return null;
+        }
+        return new Sample(source.substring(0, source.indexOf('.')), timestamp, isCode, value);
+    }
+
+    /**
+     * Checks the suffix of the current string value in the parser's buffer without creating a {@link String}.
+     */
+    private static boolean endsWith(JsonParser parser, String suffix) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            return false;
+        }
+        int suffixLength = suffix.length();
+        if (parser.getTextLength() < suffixLength) {
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int end = parser.getTextOffset() + parser.getTextLength();
+        for (int i = 0; i < suffixLength; i++) {
+            if (chars[end - suffixLength + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void skipRestOfObject(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException("Expected " + expected + ", found " + actual, parser.getCurrentLocation());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AvailBatchEntityTest {
+
+    @Test
+    public void testWriteTo() throws Exception {
+        AvailBatchEntity entity = new AvailBatchEntity(Arrays.asList(new SingleAvail("t1", "r1", 1000, "UP"),
+                new SingleAvail("t1", "r2", 2000, "DOWN")));
+        Assert.assertTrue(entity.isChunked());
+        Assert.assertTrue(entity.isRepeatable());
+        Assert.assertEquals(-1, entity.getContentLength());
+
+        String expected = "[{\"id\":\"r1\",\"data\":[{\"timestamp\":1000,\"value\":\"up\"}]},"
+                + "{\"id\":\"r2\",\"data\":[{\"timestamp\":2000,\"value\":\"down\"}]}]";
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(expected, EntityUtils.toString(entity, StandardCharsets.UTF_8));
+    }
+}
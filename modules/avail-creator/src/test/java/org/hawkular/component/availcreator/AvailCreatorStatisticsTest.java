@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AvailCreatorStatisticsTest {
+
+    @Test
+    public void testRateMeter() {
+        RateMeter meter = new RateMeter();
+        long start = 1450000000000L;
+        for (int s = 0; s < 120; s++) {
+            meter.mark(s < 60 ? 1 : 3, start + s * 1000);
+        }
+        /* the current second does not count yet */
+        meter.mark(1000, start + 120 * 1000);
+        Assert.assertEquals(3.0, meter.getPerSecond(start + 120 * 1000), 0.0001);
+        /* 30 seconds of 3 events, the burst and 29 silent seconds */
+        Assert.assertEquals((30 * 3 + 1000) / 60.0, meter.getPerSecond(start + 150 * 1000), 0.0001);
+        Assert.assertEquals(0.0, meter.getPerSecond(start + 1000 * 1000), 0.0001);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        ReceiverStatistics receiver = MetricReceiver.getStatistics();
+        receiver.parsed(2, 40);
+        receiver.parsed(0, 10);
+        Assert.assertTrue(receiver.getStatusCodesPerMessage().getCount() >= 2);
+
+        AvailCreatorStatistics statistics = new AvailCreatorStatistics();
+        statistics.init();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(AvailCreatorStatistics.OBJECT_NAME);
+            CompositeData data = (CompositeData) server.getAttribute(name, "Receiver");
+            Assert.assertEquals(receiver.getParsed(), data.get("parsed"));
+            CompositeData parseMicros = (CompositeData) data.get("parseMicros");
+            Assert.assertEquals(receiver.getParseMicros().getCount(), parseMicros.get("count"));
+            Assert.assertTrue((Long) parseMicros.get("max") >= 40);
+            CompositeData publisher = (CompositeData) server.getAttribute(name, "Publisher");
+            Assert.assertNotNull(publisher.get("latencyMicros"));
+        } finally {
+            statistics.destroy();
+        }
+    }
+}
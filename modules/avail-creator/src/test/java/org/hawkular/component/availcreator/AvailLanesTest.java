@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AvailLanesTest {
+
+    @Test
+    public void testOrderPerResource() throws InterruptedException {
+        final List<SingleAvail> published = Collections.synchronizedList(new ArrayList<>());
+        AvailLanes lanes = new AvailLanes();
+        lanes.start(4, Executors.defaultThreadFactory(), (batch, states) -> published.addAll(batch));
+        Assert.assertTrue(lanes.isEnabled());
+        Assert.assertEquals(4, lanes.getQueueDepths().length);
+
+        int resources = 50;
+        int rounds = 200;
+        for (int round = 0; round < rounds; round++) {
+            List<SingleAvail> message = new ArrayList<>();
+            for (int r = 0; r < resources; r++) {
+                /* flip on every round so that nothing gets suppressed */
+                String avail = (round + r) % 2 == 0 ? MetricReceiver.UP : MetricReceiver.DOWN;
+                message.add(new SingleAvail("t1", "r" + r, round, avail));
+            }
+            lanes.dispatch(message);
+        }
+        lanes.stop();
+        Assert.assertFalse(lanes.isEnabled());
+
+        Assert.assertEquals(resources * rounds, published.size());
+        Assert.assertEquals(resources * rounds, lanes.getProcessed());
+        Map<String, Long> last = new HashMap<>();
+        for (SingleAvail avail : published) {
+            Long previous = last.put(avail.id, avail.timestamp);
+            if (previous != null) {
+                Assert.assertEquals(previous + 1, avail.timestamp);
+            }
+        }
+        for (int depth : lanes.getQueueDepths()) {
+            Assert.assertEquals(0, depth);
+        }
+    }
+
+    @Test
+    public void testLaneSpread() {
+        int[] counts = new int[8];
+        for (int i = 0; i < 8000; i++) {
+            counts[AvailLanes.lane("t" + (i % 3), "resource-" + i, counts.length)]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue(String.valueOf(count), count > 500 && count < 1500);
+        }
+    }
+}
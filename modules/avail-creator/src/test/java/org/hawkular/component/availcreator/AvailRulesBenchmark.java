@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of evaluating the availability of a single ping by {@link AvailRules}, including the lookup of
+ * the rule of the resource, compared with the hard-coded {@code code <= 399} check the rules have replaced. The
+ * resources are spread over {@value #TENANTS} tenants, every tenant has a rule and every tenth resource has its own
+ * rule.
+ * <p>
+ * Run from the {@code modules/avail-creator} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.availcreator.AvailRulesBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvailRulesBenchmark {
+
+    private static final int TENANTS = 10;
+    private static final int RESOURCES = 1000;
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AvailRulesBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private final String[] tenantIds = new String[RESOURCES];
+    private final String[] resourceIds = new String[RESOURCES];
+    private final int[] codes = new int[RESOURCES];
+    private final int[] durations = new int[RESOURCES];
+    private AvailRules rules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        for (int t = 0; t < TENANTS; t++) {
+            properties.setProperty("tenant.tenant-" + t, "code <= 399 || code == 401");
+        }
+        for (int i = 0; i < RESOURCES; i++) {
+            tenantIds[i] = "tenant-" + (i % TENANTS);
+            resourceIds[i] = "resource-" + i;
+            codes[i] = i % 7 == 0 ? 401 : (i % 13 == 0 ? 503 : 200);
+            durations[i] = i % 5000;
+            if (i % 10 == 0) {
+                properties.setProperty("resource." + tenantIds[i] + "/" + resourceIds[i],
+                        "code <= 399 && !(duration > 2000)");
+            }
+        }
+        rules = new AvailRules(null);
+        rules.setRuleSet(new AvailRules.RuleSet(properties));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESOURCES)
+    public int hardCoded() {
+        int up = 0;
+        for (int i = 0; i < RESOURCES; i++) {
+            if (codes[i] <= 399) {
+                up++;
+            }
+        }
+        return up;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESOURCES)
+    public int rules() {
+        int up = 0;
+        for (int i = 0; i < RESOURCES; i++) {
+            if (rules.isUp(tenantIds[i], resourceIds[i], codes[i], durations[i])) {
+                up++;
+            }
+        }
+        return up;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AvailRulesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompile() {
+        AvailPredicate predicate = AvailRuleCompiler.compile("code <= 399 || code == 401");
+        Assert.assertTrue(predicate.isUp(200, 10));
+        Assert.assertTrue(predicate.isUp(401, 10));
+        Assert.assertFalse(predicate.isUp(403, 10));
+
+        predicate = AvailRuleCompiler.compile("code<400&&!(duration>2000)");
+        Assert.assertTrue(predicate.isUp(200, 2000));
+        Assert.assertFalse(predicate.isUp(200, 2001));
+        Assert.assertFalse(predicate.isUp(500, 10));
+        /* an unknown duration does not exceed anything */
+        Assert.assertTrue(predicate.isUp(200, AvailPredicate.UNKNOWN_DURATION));
+
+        /* && binds tighter than || */
+        predicate = AvailRuleCompiler.compile("code == 1 || code == 2 && duration == 3");
+        Assert.assertTrue(predicate.isUp(1, 0));
+        Assert.assertFalse(predicate.isUp(2, 0));
+        Assert.assertTrue(predicate.isUp(2, 3));
+
+        for (String invalid : new String[] { "", "code", "code <= ", "status < 3", "(code < 3", "code < 3 x",
+                "code < -1", "code < 99999999999" }) {
+            try {
+                AvailRuleCompiler.compile(invalid);
+                Assert.fail("IllegalArgumentException expected for [" + invalid + "]");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testRuleSet() {
+        Properties properties = new Properties();
+        properties.setProperty("default", "code <= 299");
+        properties.setProperty("tenant.t1", "code <= 399 || code == 401");
+        properties.setProperty("resource.t1/r1", "code <= 399 && duration <= 1000");
+        AvailRules.RuleSet rules = new AvailRules.RuleSet(properties);
+
+        Assert.assertFalse(rules.get("t1", "r1").isUp(200, 1001));
+        Assert.assertFalse(rules.get("t1", "r1").isUp(401, 10));
+        Assert.assertTrue(rules.get("t1", "r2").isUp(401, 10));
+        Assert.assertFalse(rules.get("t2", "r1").isUp(301, 10));
+        Assert.assertTrue(rules.get("t2", "r1").isUp(299, 10));
+        /* the compiled predicates are shared by all resources they apply to */
+        Assert.assertSame(rules.get("t1", "r1"), rules.get("t1", "r1"));
+        Assert.assertSame(rules.get("t1", "r2"), rules.get("t1", "r3"));
+        Assert.assertSame(rules.get("t2", "r1"), rules.get("t3", "r1"));
+
+        properties.setProperty("unknown", "code < 400");
+        try {
+            new AvailRules.RuleSet(properties);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), AvailRules.DEFAULT_RULES_FILE_NAME);
+        AvailRules rules = new AvailRules(file.toPath());
+        Assert.assertEquals(0, rules.size());
+        Assert.assertFalse(rules.isUp("t1", "r1", 401, 10));
+
+        Files.write(file.toPath(), "tenant.t1 = code <= 401\n".getBytes(StandardCharsets.UTF_8));
+        /* not checked before the interval elapses */
+        Assert.assertFalse(rules.isUp("t1", "r1", 401, 10));
+        rules.checkForChanges(System.currentTimeMillis() + AvailRules.CHECK_INTERVAL_MILLIS);
+        Assert.assertEquals(1, rules.size());
+        Assert.assertTrue(rules.isUp("t1", "r1", 401, 10));
+
+        /* invalid rules are ignored */
+        Files.write(file.toPath(), "tenant.t1 = code <=\n".getBytes(StandardCharsets.UTF_8));
+        file.setLastModified(file.lastModified() + 1000);
+        rules.checkForChanges(System.currentTimeMillis() + 2 * AvailRules.CHECK_INTERVAL_MILLIS);
+        Assert.assertTrue(rules.isUp("t1", "r1", 401, 10));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AvailStateTableTest {
+
+    @Test
+    public void testChangesAndHeartbeats() {
+        AvailStateTable table = new AvailStateTable(1000);
+        Assert.assertTrue(table.shouldEmit("t1", "r1", true, 0));
+        Assert.assertFalse(table.shouldEmit("t1", "r1", true, 500));
+        /* another tenant's resource with the same ID is tracked separately */
+        Assert.assertTrue(table.shouldEmit("t2", "r1", true, 500));
+        Assert.assertTrue(table.shouldEmit("t1", "r1", false, 600));
+        Assert.assertFalse(table.shouldEmit("t1", "r1", false, 1599));
+        Assert.assertTrue(table.shouldEmit("t1", "r1", false, 1600));
+        Assert.assertFalse(table.shouldEmit("t1", "r1", false, 1700));
+        Assert.assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testEmissionFailed() {
+        AvailStateTable table = new AvailStateTable(1000);
+        Assert.assertTrue(table.shouldEmit("t1", "r1", true, 0));
+        Assert.assertEquals(AvailStateTable.DOWN, table.update("t1", "r1", false, 100));
+        table.emissionFailed(Collections.singletonList(new SingleAvail("t1", "r1", 100, MetricReceiver.DOWN)));
+        /* the undelivered change is emitted again with the next sample */
+        Assert.assertTrue(table.shouldEmit("t1", "r1", false, 200));
+        Assert.assertFalse(table.shouldEmit("t1", "r1", false, 300));
+
+        /* a failure of an emission superseded by a newer one changes nothing */
+        table.emissionFailed(Collections.singletonList(new SingleAvail("t1", "r1", 100, MetricReceiver.DOWN)));
+        Assert.assertFalse(table.shouldEmit("t1", "r1", false, 400));
+        table.emissionFailed(Collections.singletonList(new SingleAvail("t1", "unknown", 100, MetricReceiver.UP)));
+        Assert.assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testGrowAndEvictStale() {
+        long heartbeat = 120000;
+        AvailStateTable table = new AvailStateTable(heartbeat);
+        int initialCapacity = table.capacity();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(table.shouldEmit("t1", "r" + i, true, 0));
+        }
+        Assert.assertEquals(1000, table.size());
+        Assert.assertTrue(table.capacity() > 1000);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertFalse(table.shouldEmit("t1", "r" + i, true, 1));
+        }
+
+        /* the first 1000 resources are stale by now and get dropped instead of growing the table */
+        long later = AvailStateTable.STALE_HEARTBEATS * heartbeat + 10;
+        int capacity = table.capacity();
+        for (int i = 1000; i < 3000; i++) {
+            Assert.assertTrue(table.shouldEmit("t1", "r" + i, true, later));
+        }
+        Assert.assertTrue(table.size() < 3000);
+        Assert.assertTrue(table.capacity() <= capacity * 2);
+        Assert.assertTrue(initialCapacity < capacity);
+        /* a dropped resource is emitted again */
+        Assert.assertTrue(table.shouldEmit("t1", "r0", true, later));
+    }
+
+    @Test
+    public void testStaleHorizonWithoutHeartbeat() {
+        AvailStateTable table = new AvailStateTable(0);
+        for (int i = 0; i < 1000; i++) {
+            table.update("t1", "r" + i, true, 0);
+        }
+        /* a zero heartbeat must not make the resources stale right after their last sample */
+        for (int i = 1000; i < 3000; i++) {
+            table.update("t1", "r" + i, true, 1000);
+        }
+        Assert.assertEquals(3000, table.size());
+
+        long later = AvailStateTable.MIN_STALE_MILLIS + 10;
+        for (int i = 3000; i < 6000; i++) {
+            table.update("t1", "r" + i, true, later);
+        }
+        Assert.assertTrue(table.size() < 6000);
+    }
+
+    @Test
+    public void testHysteresis() {
+        AvailStateTable table = new AvailStateTable(1000000, 3, 0, 0);
+        Assert.assertEquals(AvailStateTable.UP, table.update("t1", "r1", true, 0));
+        /* a single failure or two do not flip the state */
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 1));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 2));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", true, 3));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 4));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 5));
+        Assert.assertEquals(AvailStateTable.DOWN, table.update("t1", "r1", false, 6));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", true, 7));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", true, 8));
+        Assert.assertEquals(AvailStateTable.UP, table.update("t1", "r1", true, 9));
+    }
+
+    @Test
+    public void testDuplicateSamples() {
+        AvailStateTable table = new AvailStateTable(1000000, 2, 0, 0);
+        Assert.assertEquals(AvailStateTable.UP, table.update("t1", "r1", true, 0));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 1));
+        /* the same sample delivered again does not make the second consecutive DOWN */
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, 1));
+        Assert.assertEquals(AvailStateTable.DOWN, table.update("t1", "r1", false, 2));
+    }
+
+    @Test
+    public void testFlapping() {
+        AvailStateTable table = new AvailStateTable(1000000, 2, 10, 4);
+        long ts = 0;
+        Assert.assertEquals(AvailStateTable.UP, table.update("t1", "r1", true, ts++));
+        /* 200, 503, 200, 503, ... */
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, ts++));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", true, ts++));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, ts++));
+        Assert.assertEquals(AvailStateTable.FLAPPING, table.update("t1", "r1", true, ts++));
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", i % 2 == 0, ts++));
+        }
+        /* stable DOWN from now on; the window of 10 still has 5 transitions after 4 samples */
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, ts++));
+        }
+        /* 2 transitions left in the window, i.e. half of the threshold */
+        Assert.assertEquals(AvailStateTable.DOWN, table.update("t1", "r1", false, ts++));
+        Assert.assertEquals(AvailStateTable.NONE, table.update("t1", "r1", false, ts++));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new AvailStateTable(1000, 1, 10, 10);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the cost of handing a single status code over from the pinger to the availability computation in the
+ * same JVM. {@link #bus()} serializes the status code and the duration into a {@code HawkularMetricData} message like
+ * the pinger does and parses it back like {@link MetricReceiver} does, which leaves out the broker itself.
+ * {@link #local()} invokes {@link LocalStatusReceiver} through the platform MBean server like the pinger's
+ * {@code LocalAvailChannel} does. The damping and publishing that follow are the same in both cases and are done by
+ * the receiver's worker thread here.
+ * <p>
+ * Run from the {@code modules/avail-creator} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.availcreator.LocalStatusReceiverBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalStatusReceiverBenchmark {
+
+    private static final int RESOURCES = 1000;
+    private static final String TENANT = "28026b36-8fe4-4332-84c8-524e173a68bf";
+    private static final String[] SIGNATURE = { String.class.getName(), String.class.getName(),
+            long.class.getName(), int.class.getName(), int.class.getName() };
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(LocalStatusReceiverBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StatusCodeExtractor extractor = new StatusCodeExtractor();
+    private final String[] resourceIds = new String[RESOURCES];
+    private LocalStatusReceiver receiver;
+    private MBeanServer server;
+    private ObjectName name;
+    private long timestamp = 1450000000000L;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        for (int i = 0; i < RESOURCES; i++) {
+            resourceIds[i] = "url-" + i;
+        }
+        receiver = new LocalStatusReceiver();
+        receiver.start(Executors.defaultThreadFactory(), null, availabilities -> {
+        });
+        MBeans.register(receiver, LocalStatusReceiver.OBJECT_NAME);
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(LocalStatusReceiver.OBJECT_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MBeans.unregister(LocalStatusReceiver.OBJECT_NAME);
+        receiver.stop();
+        System.out.println("\nAccepted: " + receiver.getAccepted() + ", rejected: " + receiver.getRejected());
+    }
+
+    @Benchmark
+    public List<SingleAvail> bus() throws Exception {
+        String resourceId = resourceIds[next++ % RESOURCES];
+        long ts = timestamp++;
+        List<Map<String, Object>> data = new ArrayList<>(2);
+        data.add(dataPoint(resourceId + StatusCodeExtractor.STATUS_CODE_SUFFIX, ts, 200));
+        data.add(dataPoint(resourceId + StatusCodeExtractor.STATUS_DURATION_SUFFIX, ts, 123));
+        Map<String, Object> metricData = new LinkedHashMap<>();
+        metricData.put("tenantId", TENANT);
+        metricData.put("data", data);
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("metricData", metricData);
+        return extractor.extract(objectMapper.writeValueAsString(message));
+    }
+
+    private static Map<String, Object> dataPoint(String source, long ts, double value) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("source", source);
+        result.put("timestamp", ts);
+        result.put("value", value);
+        return result;
+    }
+
+    @Benchmark
+    public Object local() throws Exception {
+        String resourceId = resourceIds[next++ % RESOURCES];
+        return server.invoke(name, "offer", new Object[] { TENANT, resourceId, timestamp++, 200, 123 }, SIGNATURE);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class LocalStatusReceiverTest {
+
+    /** The signature the pinger uses */
+    private static final String[] SIGNATURE = { String.class.getName(), String.class.getName(),
+            long.class.getName(), int.class.getName(), int.class.getName() };
+
+    @Test
+    public void testOfferThroughMBeanServer() throws Exception {
+        final List<SingleAvail> published = Collections.synchronizedList(new ArrayList<>());
+        LocalStatusReceiver receiver = new LocalStatusReceiver();
+        receiver.start(Executors.defaultThreadFactory(), null, published::addAll);
+        MBeans.register(receiver, LocalStatusReceiver.OBJECT_NAME);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(LocalStatusReceiver.OBJECT_NAME);
+            Assert.assertEquals(Boolean.TRUE, server.invoke(name, "offer",
+                    new Object[] { "t1", "local-r1", 1000L, 200, 15 }, SIGNATURE));
+            Assert.assertEquals(Boolean.TRUE, server.invoke(name, "offer",
+                    new Object[] { "t1", "local-r2", 1000L, 503, 15 }, SIGNATURE));
+            Assert.assertEquals(2L, server.getAttribute(name, "Accepted"));
+        } finally {
+            MBeans.unregister(LocalStatusReceiver.OBJECT_NAME);
+            receiver.stop();
+        }
+        Assert.assertEquals(2, published.size());
+        Assert.assertEquals("local-r1", published.get(0).id);
+        Assert.assertEquals(MetricReceiver.UP, published.get(0).avail);
+        Assert.assertEquals("local-r2", published.get(1).id);
+        Assert.assertEquals(MetricReceiver.DOWN, published.get(1).avail);
+
+        /* a stopped receiver sends the pinger to the bus */
+        Assert.assertFalse(receiver.offer("t1", "local-r1", 2000L, 200, 15));
+        Assert.assertEquals(1, receiver.getRejected());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares extracting the status codes out of a {@code HawkularMetricData} message by {@link StatusCodeExtractor}
+ * with the former approach of reading the whole message into a {@link JsonNode} tree. The messages contain the given
+ * number of data points, every tenth of them being a status code like in a topic shared by the pinger with other
+ * feeds. Run with {@code -prof gc} to see the allocation rates.
+ * <p>
+ * Run from the {@code modules/avail-creator} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.availcreator.MetricReceiverBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricReceiverBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MetricReceiverBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /** The number of data points in a message */
+    @Param({ "10", "100", "1000" })
+    public int dataPoints;
+
+    private String payload;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StatusCodeExtractor extractor = new StatusCodeExtractor();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("{\"messageId\":{\"id\":\"ID:broker-1234-5678\"},"
+                + "\"metricData\":{\"tenantId\":\"28026b36-8fe4-4332-84c8-524e173a68bf\",\"data\":[");
+        long timestamp = 1450000000000L;
+        for (int i = 0; i < dataPoints; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String source = i % 10 == 0 ? "url-" + i + ".status.code" : "MI~R~[feed-" + i + "/Local~~]~MT~Heap Used";
+            sb.append("{\"source\":\"").append(source).append("\",\"timestamp\":").append(timestamp + i)
+                    .append(",\"value\":").append(i % 10 == 0 ? 200 : 1.2345678E8 + i).append('}');
+        }
+        payload = sb.append("]}}").toString();
+    }
+
+    @Benchmark
+    public List<SingleAvail> streaming() throws Exception {
+        return extractor.extract(payload);
+    }
+
+    @Benchmark
+    public List<SingleAvail> readTree() throws Exception {
+        JsonNode metricData = objectMapper.readTree(payload).get("metricData");
+        String tenant = metricData.get("tenantId").textValue();
+        List<SingleAvail> result = new ArrayList<>();
+        Iterator<JsonNode> items = metricData.get("data").elements();
+        while (items.hasNext()) {
+            JsonNode item = items.next();
+            String source = item.get("source").textValue();
+            if (source.endsWith(StatusCodeExtractor.STATUS_CODE_SUFFIX)) {
+                result.add(new SingleAvail(tenant, source.substring(0, source.indexOf(".")),
+                        item.get("timestamp").longValue(),
+                        item.get("value").intValue() <= 399 ? MetricReceiver.UP : MetricReceiver.DOWN));
+            }
+        }
+        return result;
+    }
+}
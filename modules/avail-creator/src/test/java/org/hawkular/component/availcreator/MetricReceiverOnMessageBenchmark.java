@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.TextMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Drives {@link MetricReceiver#onMessage(javax.jms.Message)} end to end, i.e. the data type check, the extraction,
+ * the rules, the damping and the SLA counters, with synthetic status code messages like the pinger sends them: every
+ * resource reports a {@code .status.code} and a {@code .status.duration}. A message carries {@link #resources}
+ * resources, {@code 1} being what the pinger sends today, and every tenth status code is an error, so that some of
+ * the availabilities change and get published. The timestamps grow with every message, so that nothing is dropped as
+ * late, which means the payloads are built in the benchmark methods. The {@link AvailPublisher} is replaced by a stub
+ * handing the published availabilities to a {@link Blackhole}, so that no HTTP is involved.
+ * <p>
+ * Run from the {@code modules/avail-creator} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.availcreator.MetricReceiverOnMessageBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricReceiverOnMessageBenchmark {
+
+    private static final String TENANT = "28026b36-8fe4-4332-84c8-524e173a68bf";
+    private static final int RESOURCE_POOL = 1000;
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MetricReceiverOnMessageBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+
+    /** The number of resources whose status is carried by a single message */
+    @Param({ "1", "10", "100" })
+    public int resources;
+
+    private MetricReceiver receiver;
+    private final String[] resourceIds = new String[RESOURCE_POOL];
+    private long timestamp = 1450000000000L;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        for (int i = 0; i < RESOURCE_POOL; i++) {
+            resourceIds[i] = "4a8b5bc5-6b7a-4d3c-8f7e-" + String.format("%012d", i);
+        }
+        receiver = new MetricReceiver();
+        receiver.availPublisher = new AvailPublisher() {
+            @Override
+            public void sendToMetricsViaRest(List<SingleAvail> availabilities) {
+                blackhole.consume(availabilities);
+            }
+        };
+    }
+
+    private static TextMessage message(String payload) {
+        return (TextMessage) Proxy.newProxyInstance(MetricReceiverOnMessageBenchmark.class.getClassLoader(),
+                new Class<?>[] { TextMessage.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getStringProperty":
+                        return MetricReceiver.DATA_TYPE_PROPERTY.equals(args[0])
+                                ? MetricReceiver.STATUS_CODE_DATA_TYPE : null;
+                    case "getText":
+                        return payload;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private String payload() {
+        StringBuilder sb = new StringBuilder(64 + resources * 200);
+        sb.append("{\"messageId\":{\"id\":\"ID:broker-1234-5678\"},\"metricData\":{\"tenantId\":\"").append(TENANT)
+                .append("\",\"data\":[");
+        long ts = timestamp++;
+        for (int r = 0; r < resources; r++) {
+            int i = next++;
+            String resourceId = resourceIds[i % RESOURCE_POOL];
+            if (r > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"source\":\"").append(resourceId).append(".status.code\",\"timestamp\":").append(ts)
+                    .append(",\"value\":").append(i % 10 == 0 ? "503.0" : "200.0").append("},{\"source\":\"")
+                    .append(resourceId).append(".status.duration\",\"timestamp\":").append(ts)
+                    .append(",\"value\":").append(100 + i % 400).append(".0}");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    @Benchmark
+    public void onMessage() {
+        receiver.onMessage(message(payload()));
+    }
+
+    /**
+     * The cost of building the payload alone, to be subtracted from {@link #onMessage()}.
+     */
+    @Benchmark
+    public String payloadOnly() {
+        return payload();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.TextMessage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class MetricReceiverTest {
+
+    private static final String PAYLOAD = "{\"metricData\":{\"tenantId\":\"t1\",\"data\":[{\"source\":"
+            + "\"r1.status.code\",\"timestamp\":1000,\"value\":200.0}]}}";
+
+    private static TextMessage message(String dataType) {
+        return (TextMessage) Proxy.newProxyInstance(MetricReceiverTest.class.getClassLoader(),
+                new Class<?>[] { TextMessage.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getStringProperty":
+                        return MetricReceiver.DATA_TYPE_PROPERTY.equals(args[0]) ? dataType : null;
+                    case "getText":
+                        return PAYLOAD;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testReceiveFromBothTopics() {
+        final List<SingleAvail> published = new ArrayList<>();
+        AvailPublisher publisher = new AvailPublisher() {
+            @Override
+            public void sendToMetricsViaRest(List<SingleAvail> availabilities) {
+                published.addAll(availabilities);
+            }
+        };
+        MetricReceiver receiver = new MetricReceiver();
+        receiver.availPublisher = publisher;
+        MetricReceiver metricDataReceiver = new MetricDataReceiver();
+        metricDataReceiver.availPublisher = publisher;
+        ReceiverStatistics statistics = MetricReceiver.getStatistics();
+        long received = statistics.getReceived();
+        long receivedFromMetricData = statistics.getReceivedFromMetricData();
+        long parsed = statistics.getParsed();
+
+        receiver.onMessage(message(MetricReceiver.STATUS_CODE_DATA_TYPE));
+        Assert.assertEquals(1, published.size());
+        Assert.assertEquals("UP", published.get(0).avail);
+
+        /* the same status code republished untagged by Hawkular Metrics is parsed but not published again */
+        metricDataReceiver.onMessage(message(null));
+        Assert.assertEquals(1, published.size());
+
+        Assert.assertEquals(2, statistics.getReceived() - received);
+        Assert.assertEquals(1, statistics.getReceivedFromMetricData() - receivedFromMetricData);
+        Assert.assertEquals(2, statistics.getParsed() - parsed);
+    }
+
+    @Test
+    public void testSelectors() {
+        Assert.assertEquals("hawkularDataType IS NULL OR hawkularDataType = 'status-code'", MetricReceiver.SELECTOR);
+        Assert.assertEquals("hawkularDataType IS NULL", MetricDataReceiver.UNTAGGED_SELECTOR);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+
+import javax.ws.rs.core.SecurityContext;
+
+import org.hawkular.component.availcreator.SlaRollups.Uptime;
+import org.hawkular.component.availcreator.SlaRollups.Window;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class SlaRollupsTest {
+
+    private static final long HOUR = SlaRollups.BUCKET_MILLIS;
+    private static final long DAY = 24 * HOUR;
+    /* somewhere in 2016, at a bucket boundary */
+    private static final long START = 400000 * HOUR;
+
+    private static void assertUptime(Map<Window, Uptime> uptimes, Window window, long up, long down) {
+        Uptime uptime = uptimes.get(window);
+        Assert.assertEquals(window + " up", up, uptime.getUpSeconds());
+        Assert.assertEquals(window + " down", down, uptime.getDownSeconds());
+    }
+
+    @Test
+    public void testTransitions() {
+        SlaRollups rollups = new SlaRollups();
+        Assert.assertNull(rollups.getUptimes("t1", "r1", START));
+
+        rollups.record("t1", "r1", AvailStateTable.UP, START);
+        /* heartbeats do not change anything */
+        rollups.record("t1", "r1", AvailStateTable.UP, START + 5 * 60000);
+        rollups.record("t1", "r1", AvailStateTable.DOWN, START + 90 * 60000);
+        rollups.record("t1", "r1", AvailStateTable.FLAPPING, START + 120 * 60000);
+        rollups.record("t1", "r1", AvailStateTable.UP, START + 150 * 60000);
+
+        Map<Window, Uptime> uptimes = rollups.getUptimes("t1", "r1", START + 180 * 60000);
+        for (Window window : Window.values()) {
+            assertUptime(uptimes, window, 120 * 60, 30 * 60);
+        }
+        Assert.assertEquals(0.8, uptimes.get(Window.day).getUptime(), 0.0001);
+        Assert.assertNull(rollups.getUptimes("t1", "r2", START));
+        Assert.assertNull(rollups.getUptimes("t2", "r1", START));
+    }
+
+    @Test
+    public void testWindowsExpire() {
+        SlaRollups rollups = new SlaRollups();
+        rollups.record("t1", "r1", AvailStateTable.DOWN, START);
+        rollups.record("t1", "r1", AvailStateTable.UP, START + HOUR);
+
+        /* the down hour is the first of the 24 buckets of the day window */
+        Map<Window, Uptime> uptimes = rollups.getUptimes("t1", "r1", START + DAY - 1000);
+        assertUptime(uptimes, Window.day, 23 * 3600 - 1, 3600);
+
+        /* now it is out of the day window, but still in the others */
+        uptimes = rollups.getUptimes("t1", "r1", START + DAY);
+        assertUptime(uptimes, Window.day, 23 * 3600, 0);
+        assertUptime(uptimes, Window.week, 23 * 3600, 3600);
+
+        /* the current bucket has just started and is empty */
+        uptimes = rollups.getUptimes("t1", "r1", START + 7 * DAY);
+        assertUptime(uptimes, Window.day, 23 * 3600, 0);
+        assertUptime(uptimes, Window.week, 7 * 24 * 3600 - 3600, 0);
+        assertUptime(uptimes, Window.month, 7 * 24 * 3600 - 3600, 3600);
+
+        /* a long silence wipes everything out, the resource is assumed to have stayed UP */
+        uptimes = rollups.getUptimes("t1", "r1", START + 100 * DAY);
+        assertUptime(uptimes, Window.month, (SlaRollups.BUCKETS - 1) * 3600, 0);
+        /* reading does not keep a resource alive, only recording does */
+        Assert.assertEquals(0, rollups.evict(START + 20 * DAY));
+        Assert.assertEquals(1, rollups.evict(START + 100 * DAY));
+        Assert.assertEquals(0, rollups.size());
+    }
+
+    @Test
+    public void testReadBeforeLateRecord() {
+        SlaRollups rollups = new SlaRollups();
+        rollups.record("t1", "r1", AvailStateTable.UP, START);
+
+        /* the pending minute is accounted to UP in the read only */
+        assertUptime(rollups.getUptimes("t1", "r1", START + 60000), Window.day, 60, 0);
+
+        /* a transition older than the read still counts */
+        rollups.record("t1", "r1", AvailStateTable.DOWN, START + 59000);
+        assertUptime(rollups.getUptimes("t1", "r1", START + 60000), Window.day, 59, 1);
+        assertUptime(rollups.getUptimes("t1", "r1", START + 120000), Window.day, 59, 61);
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        SlaRollups rollups = new SlaRollups();
+        rollups.record("t1", "r1", AvailStateTable.DOWN, START);
+        rollups.record("t1", "r1", AvailStateTable.UP, START + 2 * DAY);
+        rollups.record("t2", "r1", AvailStateTable.UP, START);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            rollups.writeTo(out);
+        }
+
+        SlaRollups loaded = new SlaRollups();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals(2, loaded.readFrom(in));
+        }
+        long now = START + 3 * DAY;
+        for (String tenantId : new String[] { "t1", "t2" }) {
+            Map<Window, Uptime> expected = rollups.getUptimes(tenantId, "r1", now);
+            Map<Window, Uptime> actual = loaded.getUptimes(tenantId, "r1", now);
+            for (Window window : Window.values()) {
+                assertUptime(actual, window, expected.get(window).getUpSeconds(),
+                        expected.get(window).getDownSeconds());
+            }
+        }
+        assertUptime(loaded.getUptimes("t1", "r1", now), Window.week, DAY / 1000, 2 * DAY / 1000);
+    }
+
+    @Test
+    public void testTenantFromPrincipal() {
+        SecurityContext security = new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return () -> "t1";
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return false;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return "KEYCLOAK";
+            }
+        };
+        Assert.assertEquals("t1", SlaEndpoint.tenantOf(security, null));
+        Assert.assertEquals("t1", SlaEndpoint.tenantOf(security, "t1"));
+        Assert.assertNull(SlaEndpoint.tenantOf(security, "t2"));
+        Assert.assertNull(SlaEndpoint.tenantOf(null, "t1"));
+    }
+}
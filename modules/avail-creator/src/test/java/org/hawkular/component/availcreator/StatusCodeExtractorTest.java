@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.availcreator;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class StatusCodeExtractorTest {
+
+    private static void assertAvail(String tenantId, String id, long timestamp, String avail, SingleAvail actual) {
+        Assert.assertEquals(tenantId, actual.tenantId);
+        Assert.assertEquals(id, actual.id);
+        Assert.assertEquals(timestamp, actual.timestamp);
+        Assert.assertEquals(avail, actual.avail);
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        String payload = "{\"messageId\":{\"id\":\"m1\"},\"metricData\":{\"tenantId\":\"t1\",\"data\":["
+                + "{\"source\":\"r1.status.duration\",\"timestamp\":1000,\"value\":12},"
+                + "{\"source\":\"r1.status.code\",\"timestamp\":1000,\"value\":200},"
+                + "{\"timestamp\":2000,\"tags\":{\"a\":[1,2]},\"value\":503.0,\"source\":\"r2.status.code\"},"
+                + "{\"source\":\"heap.used\",\"timestamp\":1000,\"value\":{\"nested\":[{\"x\":1}]}}]}}";
+        List<SingleAvail> avails = new StatusCodeExtractor().extract(payload);
+        Assert.assertEquals(2, avails.size());
+        assertAvail("t1", "r1", 1000, "UP", avails.get(0));
+        assertAvail("t1", "r2", 2000, "DOWN", avails.get(1));
+    }
+
+    @Test
+    public void testTenantAfterData() throws Exception {
+        String payload = "{\"metricData\":{\"data\":[{\"source\":\"r1.status.code\",\"timestamp\":1000,"
+                + "\"value\":404}],\"tenantId\":\"t2\"},\"details\":null}";
+        List<SingleAvail> avails = new StatusCodeExtractor().extract(payload);
+        Assert.assertEquals(1, avails.size());
+        assertAvail("t2", "r1", 1000, "DOWN", avails.get(0));
+    }
+
+    @Test
+    public void testDurationRule() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("default", "code <= 399 && !(duration > 1000)");
+        AvailRules rules = new AvailRules(null);
+        rules.setRuleSet(new AvailRules.RuleSet(properties));
+        String payload = "{\"metricData\":{\"tenantId\":\"t1\",\"data\":["
+                + "{\"source\":\"r1.status.duration\",\"timestamp\":1000,\"value\":1500.0},"
+                + "{\"source\":\"r1.status.code\",\"timestamp\":1000,\"value\":200.0},"
+                + "{\"source\":\"r2.status.code\",\"timestamp\":1000,\"value\":200.0},"
+                + "{\"source\":\"r2.status.duration\",\"timestamp\":1000,\"value\":20.0}]}}";
+        List<SingleAvail> avails = new StatusCodeExtractor(rules).extract(payload);
+        Assert.assertEquals(2, avails.size());
+        assertAvail("t1", "r1", 1000, "DOWN", avails.get(0));
+        assertAvail("t1", "r2", 1000, "UP", avails.get(1));
+    }
+
+    @Test
+    public void testNoStatusCodes() throws Exception {
+        String payload = "{\"metricData\":{\"tenantId\":\"t1\",\"data\":[]}}";
+        Assert.assertTrue(new StatusCodeExtractor().extract(payload).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hawkular.component.pinger.AlertEvent.State;
+
+/**
+ * Evaluates the {@link AlertRule}s of the {@link PingDestination}s against each {@link PingStatus} as soon as it is
+ * available, so that a state change can be reported without waiting for the ping results to travel through Hawkular
+ * Metrics. Only state changes produce an {@link AlertEvent}: the rule of a destination fires after the configured
+ * number of consecutive violations and resolves with the first ping that does not violate it.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class AlertEvaluator {
+
+    /**
+     * The rule state of a single destination.
+     */
+    private static class RuleState {
+        private int failures;
+        private boolean firing;
+    }
+
+    private final ConcurrentMap<PingDestination, RuleState> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param status the result of a ping
+     * @return a new {@link AlertEvent} if the given {@link PingStatus} changed the state of the {@link AlertRule} of
+     *         its destination or {@code null} if the state did not change or if the destination has no rule
+     */
+    AlertEvent evaluate(PingStatus status) {
+        final PingDestination destination = status.getDestination();
+        final AlertRule rule = destination.getAlertRule();
+        if (rule == null) {
+            return null;
+        }
+        RuleState state = states.computeIfAbsent(destination, d -> new RuleState());
+        String violation = rule.getViolation(status);
+        synchronized (state) {
+            if (violation != null) {
+                state.failures++;
+                if (!state.firing && state.failures >= rule.getConsecutiveFailures()) {
+                    state.firing = true;
+                    return new AlertEvent(status, State.firing, violation);
+                }
+            } else {
+                state.failures = 0;
+                if (state.firing) {
+                    state.firing = false;
+                    return new AlertEvent(status, State.resolved, null);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets the states of the destinations not contained in the given {@link Collection}.
+     *
+     * @param destinations the destinations to keep the states of
+     */
+    void retainAll(Collection<PingDestination> destinations) {
+        states.keySet().retainAll(destinations);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import org.hawkular.bus.common.AbstractMessage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A change of the state of the {@link AlertRule} of a {@link PingDestination} as detected by {@link AlertEvaluator}.
+ * Can be sent over Hawkular Bus as is.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AlertEvent extends AbstractMessage {
+
+    /**
+     * The state the {@link AlertRule} has changed to.
+     */
+    public enum State {
+        /** The rule has been violated by the given number of consecutive pings */
+        firing,
+        /** A ping has not violated the rule after the rule was {@link #firing} */
+        resolved
+    }
+
+    @JsonInclude
+    private String tenantId;
+    @JsonInclude
+    private String resourceId;
+    @JsonInclude
+    private String url;
+    @JsonInclude
+    private State state;
+    @JsonInclude
+    private String reason;
+    @JsonInclude
+    private long timestamp;
+    @JsonInclude
+    private int code;
+    @JsonInclude
+    private int duration;
+
+    protected AlertEvent() {
+    }
+
+    /**
+     * @param status the {@link PingStatus} that changed the state
+     * @param state the new state
+     * @param reason the violation for {@link State#firing}, {@code null} for {@link State#resolved}
+     */
+    public AlertEvent(PingStatus status, State state, String reason) {
+        PingDestination destination = status.getDestination();
+        this.tenantId = destination.getTenantId();
+        this.resourceId = destination.getResourceId();
+        this.url = destination.getUrl();
+        this.state = state;
+        this.reason = reason;
+        this.timestamp = status.getTimestamp();
+        this.code = status.getCode();
+        this.duration = status.getDuration();
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the state the {@link AlertRule} has changed to
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the violation of the {@link AlertRule} for {@link State#firing}, {@code null} for
+     *         {@link State#resolved}
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the timestamp of the {@link PingStatus} that changed the state
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the status code of the {@link PingStatus} that changed the state
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return the duration of the {@link PingStatus} that changed the state
+     */
+    public int getDuration() {
+        return duration;
+    }
+}
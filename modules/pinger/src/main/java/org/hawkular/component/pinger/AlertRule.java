@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A simple rule evaluated by {@link AlertEvaluator} against each {@link PingStatus} of a {@link PingDestination}. A
+ * ping violates the rule if it timed out, if its status code belongs to one of the failing code classes or if it took
+ * longer than the duration threshold. The rule fires after the given number of consecutive violations.
+ * <p>
+ * The rules are defined by the following properties of the URL resources in Hawkular Inventory; a resource having
+ * none of them has no rule:
+ * <ul>
+ * <li>{@value #CODES_PROPERTY} - a comma separated list of failing code classes, such as {@code 5xx}; defaults to
+ * {@code 4xx,5xx}
+ * <li>{@value #DURATION_PROPERTY} - the duration threshold in milliseconds; no threshold by default
+ * <li>{@value #FAILURES_PROPERTY} - the number of consecutive violations needed to fire; defaults to {@code 1}
+ * </ul>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AlertRule {
+
+    public static final String CODES_PROPERTY = "alert-codes";
+    public static final String DURATION_PROPERTY = "alert-duration";
+    public static final String FAILURES_PROPERTY = "alert-failures";
+
+    /** A value for {@link #durationThresholdMillis} meaning that there is no threshold. The value is {@value} */
+    public static final int NO_THRESHOLD = 0;
+
+    /**
+     * Reads an {@link AlertRule} out of the given resource properties.
+     *
+     * @param properties the properties of a URL resource
+     * @return a new {@link AlertRule} or {@code null} if the given {@code properties} do not define any rule
+     * @throws IllegalArgumentException if any of the rule properties is invalid
+     */
+    public static AlertRule from(Map<String, Object> properties) {
+        Object codes = properties.get(CODES_PROPERTY);
+        Object duration = properties.get(DURATION_PROPERTY);
+        Object failures = properties.get(FAILURES_PROPERTY);
+        if (codes == null && duration == null && failures == null) {
+            return null;
+        }
+        boolean[] failingCodeClasses = new boolean[6];
+        for (String codeClass : (codes == null ? "4xx,5xx" : codes.toString()).split(",")) {
+            codeClass = codeClass.trim();
+            if (codeClass.length() != 3 || !codeClass.endsWith("xx") || codeClass.charAt(0) < '1'
+                    || codeClass.charAt(0) > '5') {
+                throw new IllegalArgumentException(
+                        CODES_PROPERTY + " must be a list of code classes such as 5xx, found [" + codes + "]");
+            }
+            failingCodeClasses[codeClass.charAt(0) - '0'] = true;
+        }
+        return new AlertRule(failingCodeClasses, toInt(DURATION_PROPERTY, duration, NO_THRESHOLD, 1),
+                toInt(FAILURES_PROPERTY, failures, 1, 1));
+    }
+
+    private static int toInt(String key, Object value, int defaultValue, int min) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value.toString().trim());
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            /* reported below */
+        }
+        throw new IllegalArgumentException(key + " must be an integer >= " + min + ", found [" + value + "]");
+    }
+
+    /** Indexed by the first digit of the status code */
+    private final boolean[] failingCodeClasses;
+    private final int durationThresholdMillis;
+    private final int consecutiveFailures;
+
+    /**
+     * @param failingCodeClasses the failing code classes indexed by the first digit of the status code
+     * @param durationThresholdMillis the duration in milliseconds above which a ping violates this rule or
+     *        {@value #NO_THRESHOLD}
+     * @param consecutiveFailures the number of consecutive violations needed to fire
+     */
+    AlertRule(boolean[] failingCodeClasses, int durationThresholdMillis, int consecutiveFailures) {
+        super();
+        this.failingCodeClasses = failingCodeClasses;
+        this.durationThresholdMillis = durationThresholdMillis;
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /**
+     * @param status the result of a ping
+     * @return a human readable reason why the given {@link PingStatus} violates this rule or {@code null} if it does
+     *         not violate it
+     */
+    public String getViolation(PingStatus status) {
+        if (status.isTimedOut()) {
+            return "timeout";
+        }
+        int codeClass = status.getCode() / 100;
+        if (codeClass >= 0 && codeClass < failingCodeClasses.length && failingCodeClasses[codeClass]) {
+            return "code " + status.getCode();
+        }
+        if (durationThresholdMillis != NO_THRESHOLD && status.getDuration() > durationThresholdMillis) {
+            return "duration " + status.getDuration() + " ms > " + durationThresholdMillis + " ms";
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of consecutive violations needed to fire
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the duration in milliseconds above which a ping violates this rule or {@value #NO_THRESHOLD}
+     */
+    public int getDurationThresholdMillis() {
+        return durationThresholdMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + consecutiveFailures;
+        result = prime * result + durationThresholdMillis;
+        result = prime * result + Arrays.hashCode(failingCodeClasses);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        AlertRule other = (AlertRule) obj;
+        if (consecutiveFailures != other.consecutiveFailures)
+            return false;
+        if (durationThresholdMillis != other.durationThresholdMillis)
+            return false;
+        if (!Arrays.equals(failingCodeClasses, other.failingCodeClasses))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder codes = new StringBuilder();
+        for (int i = 0; i < failingCodeClasses.length; i++) {
+            if (failingCodeClasses[i]) {
+                codes.append(codes.length() == 0 ? "" : ",").append(i).append("xx");
+            }
+        }
+        return "AlertRule [codes=" + codes + ", durationThresholdMillis=" + durationThresholdMillis
+                + ", consecutiveFailures=" + consecutiveFailures + "]";
+    }
+}
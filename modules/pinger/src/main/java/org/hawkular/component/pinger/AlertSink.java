@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+/**
+ * Receives the {@link AlertEvent}s detected by the pinger. Implementations other than the built-in ones can be
+ * plugged in through the {@code hawkular.pinger.alert.sink} configuration property holding the name of a class with
+ * a public no-argument constructor.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public interface AlertSink {
+
+    /** The name of the {@link BusAlertSink} in the {@code hawkular.pinger.alert.sink} configuration property */
+    String BUS = "bus";
+
+    /** The name of the sink that writes the events to the log */
+    String LOG = "log";
+
+    /**
+     * Creates the {@link AlertSink} with the given name.
+     *
+     * @param name {@value #BUS}, {@value #LOG} or the name of a class implementing {@link AlertSink}
+     * @param topic the name of the Hawkular Bus topic for {@value #BUS}
+     * @return a new {@link AlertSink}
+     * @throws IllegalArgumentException if the {@link AlertSink} cannot be created
+     */
+    static AlertSink create(String name, String topic) {
+        if (BUS.equals(name)) {
+            return new BusAlertSink(topic);
+        } else if (LOG.equals(name)) {
+            return event -> Log.LOG.iAlertEvent(event.getState().name(), event.getUrl(), event.getTenantId(),
+                    event.getReason());
+        }
+        try {
+            return Class.forName(name).asSubclass(AlertSink.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Could not create " + AlertSink.class.getSimpleName() + " [" + name
+                    + "]", e);
+        }
+    }
+
+    /**
+     * Handles the given {@link AlertEvent}. Called in the thread that has reported the {@link PingStatus} that
+     * caused the event.
+     *
+     * @param event the event to handle
+     */
+    void emit(AlertEvent event);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Collections;
+
+/**
+ * Sends the {@link AlertEvent}s to a Hawkular Bus topic.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class BusAlertSink implements AlertSink {
+
+    private final String topic;
+
+    /**
+     * @param topic the name of the topic to send the events to
+     */
+    public BusAlertSink(String topic) {
+        super();
+        this.topic = topic;
+    }
+
+    @Override
+    public void emit(AlertEvent event) {
+        BusSender.send(topic, event, Collections.<String, String> emptyMap());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.hawkular.bus.common.BasicMessage;
+import org.hawkular.bus.common.ConnectionContextFactory;
+import org.hawkular.bus.common.Endpoint;
+import org.hawkular.bus.common.MessageProcessor;
+import org.hawkular.bus.common.producer.ProducerConnectionContext;
+
+/**
+ * Sends messages to Hawkular Bus topics. The container's {@link ConnectionFactory} is looked up once. The
+ * {@link ProducerConnectionContext}s, each holding a connection, a session and a producer, are reused across messages:
+ * a sender takes an idle context of the topic or creates a new one and returns it when the message is sent. As JMS
+ * sessions must not be used concurrently, a context is used by a single sender at a time. At most
+ * {@value #MAX_IDLE_CONTEXTS} idle contexts are kept per topic, the surplus ones and the ones that failed are closed.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class BusSender {
+
+    /** The JNDI name of the Hawkular Bus {@link ConnectionFactory} */
+    static final String CONNECTION_FACTORY = "java:/HawkularBusConnectionFactory";
+
+    /** The maximal number of idle {@link ProducerConnectionContext}s kept per topic */
+    static final int MAX_IDLE_CONTEXTS = 16;
+
+    /** Looked up on the first use, looked up again if the lookup failed */
+    private static volatile ConnectionFactory connectionFactory;
+
+    /** The idle contexts by topic name */
+    private static final ConcurrentMap<String, BlockingQueue<ProducerConnectionContext>> idleContexts =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Sends the given {@link BasicMessage} to the given topic, logging any failures.
+     *
+     * @param topic the name of the topic to send to
+     * @param message the message to send
+     * @param headers the JMS properties to set on the message, e.g. for the consumers' message selectors
+     * @return {@code true} if the message was sent, {@code false} otherwise
+     */
+    static boolean send(String topic, BasicMessage message, Map<String, String> headers) {
+        ConnectionFactory factory = connectionFactory;
+        if (factory == null) {
+            try {
+                factory = (ConnectionFactory) new InitialContext().lookup(CONNECTION_FACTORY);
+                connectionFactory = factory;
+            } catch (NamingException e) {
+                Log.LOG.wNoTopicConnection(topic);
+                return false;
+            }
+        }
+        BlockingQueue<ProducerConnectionContext> idle = idleContexts.computeIfAbsent(topic,
+                t -> new ArrayBlockingQueue<>(MAX_IDLE_CONTEXTS));
+        ProducerConnectionContext context = idle.poll();
+        try {
+            if (context == null) {
+                context = new ConnectionContextFactory(factory)
+                        .createProducerConnectionContext(new Endpoint(Endpoint.Type.TOPIC, topic));
+            }
+            new MessageProcessor().send(context, message, headers);
+        } catch (JMSException e) {
+            Log.LOG.eCouldNotSendMessage(e);
+            /* the connection may be broken, do not reuse it */
+            close(context);
+            return false;
+        }
+        if (!idle.offer(context)) {
+            close(context);
+        }
+        return true;
+    }
+
+    /**
+     * Closes all idle contexts. To be called when the pinger is shutting down.
+     */
+    static void closeAll() {
+        for (BlockingQueue<ProducerConnectionContext> idle : idleContexts.values()) {
+            ProducerConnectionContext context;
+            while ((context = idle.poll()) != null) {
+                close(context);
+            }
+        }
+    }
+
+    private static void close(ProducerConnectionContext context) {
+        if (context != null) {
+            try {
+                context.close();
+            } catch (IOException e) {
+                Log.LOG.debugf(e, "Could not close the producer context of %s", context.getDestination());
+            }
+        }
+    }
+
+    private BusSender() {
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Opens pooled connections to the origins of the {@link PingDestination}s before they are pinged, so that the
+ * measured pings do not pay for DNS lookups, TCP connects and full TLS handshakes that are an artifact of a restart
+ * rather than a property of the pinged service.
+ * <p>
+ * An origin is warmed up when it has not been seen before and again when its pooled connections were evicted. Origins
+ * whose warm-up did not leave a connection in the pool (because the server does not keep connections alive or
+ * because connections are not reused in {@link PingerConfiguration.TlsMode#full} mode) are warmed up only once. The
+ * warm-up requests are {@code HEAD} requests whose outcome is neither published nor recorded.
+ * <p>
+ * The warm-up runs in the background in a thread pool owned by this {@link ConnectionWarmer}, so that it can be
+ * started ahead of a round without delaying it. Each request is bounded by the timeouts of
+ * {@link PingClient#getRequestConfig()}. An origin counts as warmed up only once its request has finished; until then
+ * it is neither cold nor warm and it is not requested again.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class ConnectionWarmer {
+
+    private final PingClient pingClient;
+
+    /** Performs the warm-up requests; its threads time out when there is nothing to warm up */
+    private final ThreadPoolExecutor executor;
+
+    /** The origins that were warmed up at least once */
+    private final Set<HttpRoute> attempted = new HashSet<>();
+
+    /** The origins whose warm-up request has not finished yet */
+    private final Set<HttpRoute> inProgress = new HashSet<>();
+
+    /** The origins that held a pooled connection after their last warm-up */
+    private final Set<HttpRoute> pooled = new HashSet<>();
+
+    /**
+     * @param pingClient the client whose connection pool should be warmed up
+     */
+    ConnectionWarmer(PingClient pingClient) {
+        super();
+        this.pingClient = pingClient;
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread result = new Thread(r, "hawkular-pinger-warmup-" + counter.incrementAndGet());
+                        result.setDaemon(true);
+                        return result;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the {@link HttpRoute} the given URL is requested through, which is the same for all URLs of an origin.
+     *
+     * @param url the URL to find the route for
+     * @return the {@link HttpRoute} or {@code null} if the URL is not a valid absolute URL
+     */
+    static HttpRoute toRoute(String url) {
+        try {
+            HttpHost host = URIUtils.extractHost(new URI(url));
+            if (host == null) {
+                return null;
+            }
+            boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+            int port = host.getPort() > 0 ? host.getPort() : (secure ? 443 : 80);
+            return new HttpRoute(new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts warming up the origins of the given {@link PingDestination}s that are cold, at most {@code concurrency}
+     * of them at once, and returns immediately.
+     *
+     * @param destinations the destinations that are about to be pinged
+     * @param concurrency the maximal number of origins to warm up in parallel; {@code 0} disables the warm-up
+     * @return a {@link CompletableFuture} completed with the number of origins that were warmed up successfully once
+     *         all the started warm-up requests have finished
+     */
+    synchronized CompletableFuture<Integer> warmUp(Collection<PingDestination> destinations, int concurrency) {
+        if (concurrency <= 0 || executor.isShutdown()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        Map<HttpRoute, String> cold = new LinkedHashMap<>();
+        for (PingDestination destination : destinations) {
+            if (!destination.getProbe().isHttp()) {
+                /* TCP and TLS probes open a new connection for each ping anyway */
+                continue;
+            }
+            HttpRoute route = toRoute(destination.getUrl());
+            if (route != null && !cold.containsKey(route) && isCold(route)) {
+                cold.put(route, destination.getUrl());
+            }
+        }
+        if (cold.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        if (concurrency > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(concurrency);
+            executor.setCorePoolSize(concurrency);
+        } else if (concurrency < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(concurrency);
+            executor.setMaximumPoolSize(concurrency);
+        }
+
+        final long start = System.currentTimeMillis();
+        final int coldCount = cold.size();
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>(coldCount);
+        try {
+            for (Map.Entry<HttpRoute, String> entry : cold.entrySet()) {
+                final HttpRoute route = entry.getKey();
+                final String url = entry.getValue();
+                requests.add(CompletableFuture.supplyAsync(() -> {
+                    boolean result = request(url);
+                    finished(route);
+                    return result;
+                }, executor));
+                inProgress.add(route);
+            }
+        } catch (RejectedExecutionException e) {
+            /* shut down concurrently; the submitted requests finish on their own */
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[requests.size()])).thenApply(v -> {
+            int result = 0;
+            for (CompletableFuture<Boolean> request : requests) {
+                if (request.join()) {
+                    result++;
+                }
+            }
+            Log.LOG.iWarmedUp(result, coldCount, System.currentTimeMillis() - start);
+            return result;
+        });
+    }
+
+    /**
+     * Marks the given origin as attempted once its warm-up request has finished.
+     *
+     * @param route the origin whose warm-up has finished
+     */
+    private synchronized void finished(HttpRoute route) {
+        if (inProgress.remove(route)) {
+            attempted.add(route);
+            if (isPooled(route)) {
+                pooled.add(route);
+            } else {
+                pooled.remove(route);
+            }
+        }
+    }
+
+    /**
+     * Stops the warm-up requests in progress.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Forgets the origins none of the given {@link PingDestination}s belongs to.
+     *
+     * @param destinations the destinations to keep the origins of
+     */
+    synchronized void retainAll(Collection<PingDestination> destinations) {
+        Set<HttpRoute> routes = new HashSet<>();
+        for (PingDestination destination : destinations) {
+            routes.add(toRoute(destination.getUrl()));
+        }
+        attempted.retainAll(routes);
+        inProgress.retainAll(routes);
+        pooled.retainAll(routes);
+    }
+
+    private boolean isCold(HttpRoute route) {
+        return !inProgress.contains(route)
+                && (!attempted.contains(route) || (pooled.contains(route) && !isPooled(route)));
+    }
+
+    private boolean isPooled(HttpRoute route) {
+        return pingClient.getConnectionManager().getStats(route).getAvailable() > 0;
+    }
+
+    private boolean request(String url) {
+        try (CloseableHttpResponse response = pingClient.getClient()
+                .execute(RequestBuilder.head().setUri(url).setConfig(pingClient.getRequestConfig()).build())) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            Log.LOG.debugf("Warmed up %s", url);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.LOG.debugf(e, "Could not warm up %s", url);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules the pings of each {@link PingDestination} independently of all other destinations: each destination has
+ * its own sequence of intended ping times spaced by a fixed interval. A destination whose ping takes longer than the
+ * interval skips the missed slots and continues with the next one in the future, while the other destinations keep
+ * their pace.
+ * <p>
+ * The difference between the intended and the actual start of each ping is attached to the resulting
+ * {@link PingStatus} as {@link PingStatus#getSchedulingLag()}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class ContinuousScheduler {
+
+    /**
+     * The periodic pinging of a single {@link PingDestination}.
+     */
+    private class ScheduledPing implements Runnable {
+        private final PingDestination destination;
+
+        /** The value of {@link ContinuousScheduler#clock} when the next ping should start */
+        private long intended;
+
+        private volatile boolean cancelled;
+        private ScheduledFuture<?> future;
+
+        private ScheduledPing(PingDestination destination, long intended) {
+            super();
+            this.destination = destination;
+            this.intended = intended;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            dispatcher.accept(destination, this::ping);
+        }
+
+        private void ping() {
+            if (cancelled) {
+                return;
+            }
+            long start = clock.getAsLong();
+            int lag = (int) (start - intended);
+            try {
+                PingStatus status = pinger.apply(destination);
+                resultConsumer.accept(status.withSchedulingLag(lag));
+            } catch (RuntimeException e) {
+                Log.LOG.eStageTaskFailed("continuous-ping", e);
+            } finally {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            if (cancelled) {
+                return;
+            }
+            long now = clock.getAsLong();
+            /* skip the slots we have missed */
+            do {
+                intended += intervalMillis;
+            } while (intended <= now);
+            future = executor.schedule(this, intended - now, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private final long intervalMillis;
+    private final Function<PingDestination, PingStatus> pinger;
+    private final Consumer<PingStatus> resultConsumer;
+    private final BiConsumer<PingDestination, Runnable> dispatcher;
+    private final ScheduledExecutorService executor;
+
+    /** The source of the current time in milliseconds */
+    private final LongSupplier clock;
+
+    /** Only accessed from {@link #update(Set)} and {@link #shutdown()} */
+    private final Map<PingDestination, ScheduledPing> scheduled = new HashMap<>();
+
+    /**
+     * @param concurrency the number of threads performing the pings
+     * @param intervalMillis the number of milliseconds between two consecutive pings of a destination
+     * @param pinger the function performing a ping in the calling thread
+     * @param resultConsumer the consumer of the ping results
+     */
+    public ContinuousScheduler(int concurrency, long intervalMillis, Function<PingDestination, PingStatus> pinger,
+            Consumer<PingStatus> resultConsumer) {
+        this(concurrency, intervalMillis, pinger, resultConsumer, (destination, ping) -> ping.run());
+    }
+
+    /**
+     * @param concurrency the number of threads performing the pings or handing them over to the {@code dispatcher}
+     * @param intervalMillis the number of milliseconds between two consecutive pings of a destination
+     * @param pinger the function performing a ping in the calling thread
+     * @param resultConsumer the consumer of the ping results
+     * @param dispatcher runs the ping of the given destination, possibly asynchronously; the scheduling lag includes
+     *        the time the ping waits in the {@code dispatcher}
+     */
+    public ContinuousScheduler(int concurrency, long intervalMillis, Function<PingDestination, PingStatus> pinger,
+            Consumer<PingStatus> resultConsumer, BiConsumer<PingDestination, Runnable> dispatcher) {
+        this(intervalMillis, pinger, resultConsumer, dispatcher, newExecutor(concurrency), System::currentTimeMillis);
+    }
+
+    /**
+     * @param intervalMillis the number of milliseconds between two consecutive pings of a destination
+     * @param pinger the function performing a ping in the calling thread
+     * @param resultConsumer the consumer of the ping results
+     * @param dispatcher runs the ping of the given destination, possibly asynchronously
+     * @param executor the executor to schedule the pings in
+     * @param clock the source of the current time in milliseconds; the delays passed to {@code executor} are
+     *        computed using it
+     */
+    ContinuousScheduler(long intervalMillis, Function<PingDestination, PingStatus> pinger,
+            Consumer<PingStatus> resultConsumer, BiConsumer<PingDestination, Runnable> dispatcher,
+            ScheduledExecutorService executor, LongSupplier clock) {
+        super();
+        this.intervalMillis = intervalMillis;
+        this.pinger = pinger;
+        this.resultConsumer = resultConsumer;
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    private static ScheduledExecutorService newExecutor(int concurrency) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(concurrency, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread result = new Thread(r, "hawkular-pinger-continuous-" + counter.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Starts pinging the destinations from the given {@link Set} that are not scheduled yet and stops pinging those
+     * ones that are not contained in the given {@link Set}. The first pings of new destinations are spread over the
+     * interval so that they do not all start at once.
+     *
+     * @param destinations the destinations that should be pinged
+     */
+    public synchronized void update(Set<PingDestination> destinations) {
+        for (Iterator<Map.Entry<PingDestination, ScheduledPing>> it = scheduled.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<PingDestination, ScheduledPing> entry = it.next();
+            if (!destinations.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                it.remove();
+                Log.LOG.debugf("Stopped pinging %s", entry.getKey().getUrl());
+            }
+        }
+        long now = clock.getAsLong();
+        for (PingDestination destination : destinations) {
+            if (!scheduled.containsKey(destination)) {
+                long delay = Math.floorMod(destination.hashCode(), intervalMillis);
+                ScheduledPing ping = new ScheduledPing(destination, now + delay);
+                synchronized (ping) {
+                    ping.future = executor.schedule(ping, delay, TimeUnit.MILLISECONDS);
+                }
+                scheduled.put(destination, ping);
+                Log.LOG.debugf("Started pinging %s in %d ms", destination.getUrl(), delay);
+            }
+        }
+    }
+
+    /**
+     * Stops scheduling new pings and lets the running ones finish.
+     */
+    public synchronized void shutdownGracefully() {
+        for (ScheduledPing ping : scheduled.values()) {
+            ping.cancel();
+        }
+        scheduled.clear();
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the running pings to finish after {@link #shutdownGracefully()}.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of {@code timeout}
+     * @return {@code true} if all pings have finished, {@code false} if the {@code timeout} elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops all pinging.
+     */
+    public synchronized void shutdown() {
+        for (ScheduledPing ping : scheduled.values()) {
+            ping.cancel();
+        }
+        scheduled.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs the pings of all tenants under a global concurrency limit, serving per-tenant queues by deficit round-robin so
+ * that a tenant with many destinations cannot starve the other tenants. In each round, a tenant may start as many
+ * tasks as its weight, provided that neither the global limit nor the tenant's own concurrency limit is reached.
+ * <p>
+ * Submitting never blocks: the tasks wait in the queue of their tenant. The time a task spends in the queue is the
+ * dispatch lag of its tenant, see {@link #drainLags()}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class FairDispatcher {
+
+    /**
+     * A queued task.
+     */
+    private static final class Task {
+        private final Runnable runnable;
+        private final long enqueued;
+
+        private Task(Runnable runnable, long enqueued) {
+            super();
+            this.runnable = runnable;
+            this.enqueued = enqueued;
+        }
+    }
+
+    /**
+     * The queue and the counters of a single tenant. Guarded by the enclosing {@link FairDispatcher}.
+     */
+    private static final class TenantQueue {
+        private final String tenantId;
+        private final int weight;
+        private final int maxConcurrency;
+        private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        private int running;
+        private int deficit;
+
+        /** {@code true} if this queue is in {@link FairDispatcher#active} */
+        private boolean active;
+
+        /** The highest dispatch lag since the last {@link FairDispatcher#drainLags()} or {@code -1} */
+        private long maxLag = -1;
+
+        private TenantQueue(String tenantId, int weight, int maxConcurrency) {
+            super();
+            this.tenantId = tenantId;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+    private final int maxConcurrency;
+    private final ToIntFunction<String> weights;
+    private final int tenantMaxConcurrency;
+    private final ExecutorService executor;
+
+    /** The queues of all tenants by tenant ID */
+    private final Map<String, TenantQueue> queues = new HashMap<>();
+
+    /** The queues having some queued tasks in round-robin order */
+    private final ArrayDeque<TenantQueue> active = new ArrayDeque<>();
+
+    /** The number of currently running tasks */
+    private int running;
+
+    /**
+     * @param maxConcurrency the maximal number of tasks of all tenants running concurrently
+     * @param weights the function returning the weight of the given tenant, i.e. the number of tasks the tenant may
+     *        start in a single round
+     * @param tenantMaxConcurrency the maximal number of tasks of a single tenant running concurrently
+     */
+    public FairDispatcher(int maxConcurrency, ToIntFunction<String> weights, int tenantMaxConcurrency) {
+        super();
+        this.maxConcurrency = maxConcurrency;
+        this.weights = weights;
+        this.tenantMaxConcurrency = tenantMaxConcurrency;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread result = new Thread(r, "hawkular-pinger-fair-" + counter.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Queues the given {@code task} of the given tenant for execution.
+     *
+     * @param tenantId the tenant on whose behalf the task runs
+     * @param task the task to run
+     */
+    public void execute(String tenantId, Runnable task) {
+        synchronized (this) {
+            TenantQueue queue = queues.get(tenantId);
+            if (queue == null) {
+                queue = new TenantQueue(tenantId, Math.max(1, weights.applyAsInt(tenantId)), tenantMaxConcurrency);
+                queues.put(tenantId, queue);
+            }
+            queue.tasks.add(new Task(task, System.currentTimeMillis()));
+            if (!queue.active) {
+                queue.active = true;
+                active.add(queue);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Like {@link #execute(String, Runnable)} but for tasks with a result. Cancelling the returned {@link Future}
+     * before the task was started prevents the task from running.
+     *
+     * @param tenantId the tenant on whose behalf the task runs
+     * @param task the task to run
+     * @return a {@link Future} representing the result of the {@code task}
+     */
+    public <T> Future<T> submit(String tenantId, Callable<T> task) {
+        FutureTask<T> result = new FutureTask<>(task);
+        execute(tenantId, result);
+        return result;
+    }
+
+    /**
+     * Starts as many queued tasks as the concurrency limits allow, visiting the active tenants in round-robin order.
+     */
+    private synchronized void dispatch() {
+        /* the number of consecutive visits without starting a task; all tenants may be at their own limits */
+        int idleVisits = 0;
+        while (running < maxConcurrency && !active.isEmpty() && idleVisits < active.size()) {
+            TenantQueue queue = active.peekFirst();
+            if (queue.deficit <= 0) {
+                queue.deficit += queue.weight;
+            }
+            int started = 0;
+            while (queue.deficit > 0 && !queue.tasks.isEmpty() && running < maxConcurrency
+                    && queue.running < queue.maxConcurrency) {
+                start(queue, queue.tasks.poll());
+                queue.deficit--;
+                started++;
+            }
+            idleVisits = started == 0 ? idleVisits + 1 : 0;
+            if (queue.tasks.isEmpty()) {
+                active.pollFirst();
+                queue.active = false;
+                queue.deficit = 0;
+            } else if (running >= maxConcurrency && queue.deficit > 0) {
+                /* the global limit interrupted this tenant's turn; continue with it next time */
+                break;
+            } else {
+                if (queue.running >= queue.maxConcurrency) {
+                    /* do not let a tenant at its own limit accumulate credit */
+                    queue.deficit = 0;
+                }
+                active.add(active.pollFirst());
+            }
+        }
+    }
+
+    private void start(final TenantQueue queue, final Task task) {
+        running++;
+        queue.running++;
+        long lag = System.currentTimeMillis() - task.enqueued;
+        if (lag > queue.maxLag) {
+            queue.maxLag = lag;
+        }
+        executor.execute(() -> {
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                Log.LOG.eStageTaskFailed("fair-" + queue.tenantId, e);
+            } finally {
+                synchronized (FairDispatcher.this) {
+                    running--;
+                    queue.running--;
+                }
+                dispatch();
+            }
+        });
+    }
+
+    /**
+     * Returns the highest dispatch lag of each tenant that had some tasks started since the last call of this method
+     * and resets the lags. The queues of idle tenants are released.
+     *
+     * @return the highest number of milliseconds a task of the given tenant has waited in the queue by tenant ID
+     */
+    public synchronized Map<String, Long> drainLags() {
+        Map<String, Long> result = new HashMap<>();
+        for (Iterator<TenantQueue> it = queues.values().iterator(); it.hasNext();) {
+            TenantQueue queue = it.next();
+            if (queue.maxLag >= 0) {
+                result.put(queue.tenantId, queue.maxLag);
+                queue.maxLag = -1;
+            } else if (!queue.active && queue.running == 0) {
+                it.remove();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops starting new tasks and lets the running ones finish. The queued tasks are dropped.
+     */
+    public void shutdownGracefully() {
+        synchronized (this) {
+            active.clear();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the running tasks to finish after {@link #shutdownGracefully()}.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of {@code timeout}
+     * @return {@code true} if all tasks have finished, {@code false} if the {@code timeout} elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops starting new tasks and interrupts the running ones.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            active.clear();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.IntCountsHistogram;
+
+/**
+ * Computes percentiles of the ping durations of each destination over fixed time windows aligned to the epoch, such
+ * as 1 minute, 5 minutes and 1 hour. The durations are recorded with microsecond resolution into an HDR histogram per
+ * destination and window. A window is closed when a ping of the same destination falls into a later window, when
+ * {@link #flush(long)} is called after the window has ended or when the destination stops being pinged: its
+ * percentiles are returned as a {@link Rollup} and its histogram is reset.
+ * <p>
+ * The rollups are opt-in: with no windows configured, nothing is recorded and no histograms are allocated. With two
+ * significant digits, a histogram takes about 10 kB regardless of the number of recorded pings, i.e. each destination
+ * costs about 10 kB per window.
+ * <p>
+ * Timeouts are not recorded into the histograms, they are counted in {@link Rollup#getTimeouts()} instead. Errors
+ * without a duration are ignored. Durations above {@link #HIGHEST_TRACKABLE_MICROS} are recorded as
+ * {@link #HIGHEST_TRACKABLE_MICROS}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class LatencyRollups {
+
+    /**
+     * The percentiles of the durations of a single destination in a closed window. All durations are in
+     * microseconds.
+     */
+    public static class Rollup {
+        private final PingDestination destination;
+        private final String window;
+        private final long windowStart;
+        private final long count;
+        private final long timeouts;
+        private final long p50;
+        private final long p95;
+        private final long p99;
+        private final long max;
+
+        Rollup(PingDestination destination, String window, long windowStart, IntCountsHistogram histogram,
+                long timeouts) {
+            super();
+            this.destination = destination;
+            this.window = window;
+            this.windowStart = windowStart;
+            this.count = histogram.getTotalCount();
+            this.timeouts = timeouts;
+            this.p50 = histogram.getValueAtPercentile(50);
+            this.p95 = histogram.getValueAtPercentile(95);
+            this.p99 = histogram.getValueAtPercentile(99);
+            this.max = histogram.getMaxValue();
+        }
+
+        /**
+         * @return the destination whose durations were rolled up
+         */
+        public PingDestination getDestination() {
+            return destination;
+        }
+
+        /**
+         * @return the name of the window, such as {@code 5m}
+         */
+        public String getWindow() {
+            return window;
+        }
+
+        /**
+         * @return the value of {@code System.currentTimeMillis()} when the window started
+         */
+        public long getWindowStart() {
+            return windowStart;
+        }
+
+        /**
+         * @return the number of durations recorded in the window
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of pings that timed out in the window; these are not included in {@link #getCount()}
+         *         and in the percentiles
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return the median duration
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * @return the 95th percentile of the durations
+         */
+        public long getP95() {
+            return p95;
+        }
+
+        /**
+         * @return the 99th percentile of the durations
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * @return the maximal duration
+         */
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "Rollup [destination=" + destination + ", window=" + window + ", windowStart=" + windowStart
+                    + ", count=" + count + ", timeouts=" + timeouts + ", p50=" + p50 + ", p95=" + p95 + ", p99=" + p99
+                    + ", max=" + max + "]";
+        }
+    }
+
+    /**
+     * The histograms of a single destination, one per window.
+     */
+    private final class DestinationRollups {
+        private final PingDestination destination;
+        private final IntCountsHistogram[] histograms;
+        private final long[] timeouts;
+        private final long[] windowStarts;
+
+        private DestinationRollups(PingDestination destination) {
+            super();
+            this.destination = destination;
+            this.histograms = new IntCountsHistogram[windowMillis.length];
+            this.timeouts = new long[windowMillis.length];
+            this.windowStarts = new long[windowMillis.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new IntCountsHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            }
+        }
+
+        private synchronized List<Rollup> record(PingStatus status) {
+            List<Rollup> result = Collections.emptyList();
+            long timestamp = status.getTimestamp();
+            long durationMicros = status.getDurationMicros();
+            for (int i = 0; i < histograms.length; i++) {
+                long windowStart = timestamp - timestamp % windowMillis[i];
+                if (windowStart < windowStarts[i]) {
+                    /* a late result of a window that was flushed already */
+                    continue;
+                }
+                if (windowStart != windowStarts[i]) {
+                    result = close(i, result);
+                    windowStarts[i] = windowStart;
+                }
+                if (status.isTimedOut()) {
+                    timeouts[i]++;
+                } else if (durationMicros >= 0) {
+                    histograms[i].recordValue(Math.min(durationMicros, HIGHEST_TRACKABLE_MICROS));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @param now the current time in milliseconds
+         * @param all if {@code true} the current windows are closed too, otherwise only the windows that ended
+         *        before {@code now}
+         */
+        private synchronized List<Rollup> flush(long now, boolean all) {
+            List<Rollup> result = Collections.emptyList();
+            for (int i = 0; i < histograms.length; i++) {
+                if (all || windowStarts[i] + windowMillis[i] <= now) {
+                    result = close(i, result);
+                }
+            }
+            return result;
+        }
+
+        private List<Rollup> close(int i, List<Rollup> result) {
+            IntCountsHistogram histogram = histograms[i];
+            if (histogram.getTotalCount() > 0 || timeouts[i] > 0) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<>(histograms.length);
+                }
+                result.add(new Rollup(destination, windowNames[i], windowStarts[i], histogram, timeouts[i]));
+                histogram.reset();
+                timeouts[i] = 0;
+            }
+            return result;
+        }
+    }
+
+    /** The highest duration in microseconds that can be recorded */
+    public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final LatencyRollups INSTANCE = new LatencyRollups(
+            PingerConfiguration.getInstance().getRollupWindowsSeconds());
+
+    /**
+     * @return the {@link LatencyRollups} of all destinations pinged by the {@link PingManager}
+     */
+    public static LatencyRollups getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param seconds the length of a window in seconds
+     * @return a short name of the window, such as {@code 30s}, {@code 5m} or {@code 1h}
+     */
+    static String windowName(int seconds) {
+        if (seconds % 3600 == 0) {
+            return (seconds / 3600) + "h";
+        } else if (seconds % 60 == 0) {
+            return (seconds / 60) + "m";
+        }
+        return seconds + "s";
+    }
+
+    private final long[] windowMillis;
+    private final String[] windowNames;
+    private final ConcurrentMap<PingDestination, DestinationRollups> rollups = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowsSeconds the lengths of the windows in seconds
+     */
+    LatencyRollups(int[] windowsSeconds) {
+        super();
+        this.windowMillis = new long[windowsSeconds.length];
+        this.windowNames = new String[windowsSeconds.length];
+        for (int i = 0; i < windowsSeconds.length; i++) {
+            windowMillis[i] = TimeUnit.SECONDS.toMillis(windowsSeconds[i]);
+            windowNames[i] = windowName(windowsSeconds[i]);
+        }
+    }
+
+    /**
+     * Records the duration of the given {@link PingStatus} and closes the windows of its destination that ended
+     * before the {@link PingStatus#getTimestamp()}.
+     *
+     * @param status the ping result to record
+     * @return the {@link Rollup}s of the closed windows, typically an empty {@link List}
+     */
+    public List<Rollup> record(PingStatus status) {
+        if (windowMillis.length == 0) {
+            return Collections.emptyList();
+        }
+        return rollups.computeIfAbsent(status.getDestination(), DestinationRollups::new).record(status);
+    }
+
+    /**
+     * Closes the windows of all destinations that ended before the given time. This makes sure that a window is
+     * published in time even if its destination is pinged rarely or has stopped responding.
+     *
+     * @param now the current time in milliseconds
+     * @return the {@link Rollup}s of the closed windows, typically an empty {@link List}
+     */
+    public List<Rollup> flush(long now) {
+        List<Rollup> result = Collections.emptyList();
+        for (DestinationRollups destinationRollups : rollups.values()) {
+            result = addAll(result, destinationRollups.flush(now, false));
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the histograms of the destinations that are not contained in the given {@link Collection}. The
+     * windows of the forgotten destinations are closed, including the current ones.
+     *
+     * @param destinations the destinations still being pinged
+     * @return the {@link Rollup}s of the closed windows, typically an empty {@link List}
+     */
+    public List<Rollup> retainAll(Collection<PingDestination> destinations) {
+        List<Rollup> result = Collections.emptyList();
+        for (Iterator<DestinationRollups> it = rollups.values().iterator(); it.hasNext();) {
+            DestinationRollups destinationRollups = it.next();
+            if (!destinations.contains(destinationRollups.destination)) {
+                it.remove();
+                result = addAll(result, destinationRollups.flush(Long.MAX_VALUE, true));
+            }
+        }
+        return result;
+    }
+
+    private static List<Rollup> addAll(List<Rollup> result, List<Rollup> closed) {
+        if (closed.isEmpty()) {
+            return result;
+        } else if (result.isEmpty()) {
+            return closed;
+        }
+        result.addAll(closed);
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Hands the status codes of the pings over to the availability computation deployed in the same server, bypassing
+ * the serialization to and from Hawkular Bus. The pinger and the avail-creator are separate deployments that share
+ * no classes, so the handover goes through an MBean registered by the avail-creator under {@value #OBJECT_NAME} in
+ * the platform {@link MBeanServer}, using only JDK types in the signature of its {@value #OPERATION} operation.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class LocalAvailChannel {
+
+    /** The name of the MBean of the avail-creator accepting the status codes */
+    static final String OBJECT_NAME = "org.hawkular.component.availcreator:type=LocalStatusReceiver";
+
+    static final String OPERATION = "offer";
+
+    private static final String[] SIGNATURE = { String.class.getName(), String.class.getName(),
+            long.class.getName(), int.class.getName(), int.class.getName() };
+
+    private static final ObjectName NAME;
+    static {
+        try {
+            NAME = new ObjectName(OBJECT_NAME);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Offers the status code and the duration of the given {@link PingStatus} to the availability computation in
+     * this JVM.
+     *
+     * @param status the {@link PingStatus} to hand over
+     * @return {@code true} if the status was accepted, {@code false} if there is no availability computation in this
+     *         JVM or if it is saturated, in which case the caller should use the bus
+     */
+    static boolean offer(PingStatus status) {
+        PingDestination dest = status.getDestination();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Object result = server.invoke(NAME, OPERATION, new Object[] { dest.getTenantId(), dest.getResourceId(),
+                    status.getTimestamp(), status.getCode(), status.getDuration() }, SIGNATURE);
+            return Boolean.TRUE.equals(result);
+        } catch (InstanceNotFoundException e) {
+            /* avail-creator not deployed here */
+            return false;
+        } catch (JMException e) {
+            Log.LOG.debugf(e, "Could not offer a status to %s", OBJECT_NAME);
+            return false;
+        }
+    }
+
+    private LocalAvailChannel() {
+    }
+}
@@ -17,6 +17,8 @@
 package org.hawkular.component.pinger;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Logger;
@@ -76,4 +78,49 @@ public interface Log extends BasicLogger {
     @LogMessage(level = Logger.Level.ERROR)
     @Message(id = 5009, value = "Could not parse a message to json format")
     void eCouldNotParseMessage(@Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5010, value = "A task of pinger stage '%s' failed")
+    void eStageTaskFailed(String stage, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5011, value = "Pinger reconfigured with %s")
+    void iReconfigured(Map<String, String> effectiveValues);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5012, value = "Changes of %s take effect only after the pinger is restarted")
+    void wRestartRequired(List<String> keys);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5013, value = "Warmed up connections to %d of %d cold origins in %d ms")
+    void iWarmedUp(int warmedUp, int cold, long durationMillis);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5014, value = "Pinger stage '%s' was saturated for %d tasks that were handled by policy '%s'; "
+            + "active tasks: %d, queued tasks: %d")
+    void wStageSaturated(String stage, long saturated, String rejectionPolicy, int active, int queued);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5015, value = "Ignoring the invalid alert rule of resource '%s' of tenant '%s': %s")
+    void wInvalidAlertRule(String resourceId, String tenantId, String message);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5016, value = "Alert %s for URL '%s' of tenant '%s', reason: %s")
+    void iAlertEvent(String state, String url, String tenantId, String reason);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5017, value = "Could not create the alert sink '%s', alert events will be logged")
+    void eCouldNotCreateAlertSink(String sink, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5018, value = "Could not record the pings to '%s', the recording is stopped")
+    void eCouldNotRecord(String file, @Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 5019, value = "Could not load the pinger configuration, using the defaults")
+    void eInvalidConfiguration(@Cause Throwable e);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5020, value = "The pings in flight did not finish within %d ms, their results may be lost")
+    void wDrainTimedOut(long timeoutMillis);
 }
@@ -18,6 +18,7 @@ package org.hawkular.component.pinger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,9 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.hawkular.component.pinger.LatencyRollups.Rollup;
+import org.hawkular.component.pinger.MetricDataMessage.MetricData;
+import org.hawkular.metrics.client.common.SingleMetric;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -43,6 +47,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Stateless
 public class MetricPublisher {
 
+    /**
+     * The JMS property identifying the kind of data in the messages sent to
+     * {@link PingerConfiguration#getStatusCodesTopic()}, so that the consumers can filter them by a message selector
+     */
+    public static final String DATA_TYPE_PROPERTY = "hawkularDataType";
+
+    /** The value of {@value #DATA_TYPE_PROPERTY} for the messages carrying {@code <rid>.status.code} data */
+    public static final String STATUS_CODE_DATA_TYPE = "status-code";
+
+    private static final Map<String, String> STATUS_CODE_HEADERS = Collections.singletonMap(DATA_TYPE_PROPERTY,
+            STATUS_CODE_DATA_TYPE);
+
     private static void addDataItem(List<Map<String, Object>> mMetrics, String resourceId, long timestamp,
             Number value, String name) {
         Map<String, Number> dataMap = new HashMap<>(2);
@@ -56,16 +72,28 @@ public class MetricPublisher {
         mMetrics.add(outer);
     }
 
-    private final PingerConfiguration configuration = PingerConfiguration.getInstance();
-
     /**
      * Serializes the given {@link PingStatus} and then submits it to Hawkular-metrics service via REST
+     * asynchronously.
      *
      * @param status
      *            the {@link PingStatus} to publish
      */
     @Asynchronous
     public void sendToMetricsViaRest(PingStatus status) {
+        doSendToMetricsViaRest(status);
+    }
+
+    /**
+     * Serializes the given {@link PingStatus} and then submits it to Hawkular-metrics service via REST in the calling
+     * thread. If a TLS handshake was performed during the ping, its kind is published as
+     * {@code <resourceId>.status.tls.resumed} gauge: {@code 1} for a resumed session and {@code 0} for a full
+     * handshake.
+     *
+     * @param status
+     *            the {@link PingStatus} to publish
+     */
+    public void doSendToMetricsViaRest(PingStatus status) {
 
         List<Map<String, Object>> mMetrics = new ArrayList<>();
 
@@ -74,7 +102,143 @@ public class MetricPublisher {
         final long timestamp = status.getTimestamp();
         addDataItem(mMetrics, resourceId, timestamp, status.getDuration(), "duration");
         addDataItem(mMetrics, resourceId, timestamp, status.getCode(), "code");
+        if (status.getSchedulingLag() != PingStatus.INVALID_LAG) {
+            addDataItem(mMetrics, resourceId, timestamp, status.getSchedulingLag(), "lag");
+        }
+        switch (status.getTlsHandshake()) {
+        case full:
+            addDataItem(mMetrics, resourceId, timestamp, 0, "tls.resumed");
+            break;
+        case resumed:
+            addDataItem(mMetrics, resourceId, timestamp, 1, "tls.resumed");
+            break;
+        default:
+            /* no handshake happened, nothing to tell */
+            break;
+        }
+
+        post(status.getDestination().getTenantId(), mMetrics);
+    }
+
+    /**
+     * Sends the status code and the duration of the given {@link PingStatus} to Hawkular Bus asynchronously.
+     *
+     * @param status
+     *            the {@link PingStatus} to publish
+     */
+    @Asynchronous
+    public void sendStatusCodeToBus(PingStatus status) {
+        doSendStatusCodeToBus(status);
+    }
+
+    /**
+     * Sends the status code and the duration of the given {@link PingStatus} as {@code <resourceId>.status.code}
+     * and {@code <resourceId>.status.duration} in a {@link MetricDataMessage} tagged with
+     * {@value #DATA_TYPE_PROPERTY}={@value #STATUS_CODE_DATA_TYPE} to
+     * {@link PingerConfiguration#getStatusCodesTopic()} in the calling thread. Does nothing if no topic is
+     * configured.
+     * <p>
+     * With {@link PingerConfiguration.StatusCodesChannel#local}, the status is first offered to the availability
+     * computation in this JVM through {@link LocalAvailChannel} and sent to the bus only if it was not accepted.
+     *
+     * @param status
+     *            the {@link PingStatus} to publish
+     */
+    public void doSendStatusCodeToBus(PingStatus status) {
+        PingerConfiguration config = PingerConfiguration.getInstance();
+        if (config.getStatusCodesChannel() == PingerConfiguration.StatusCodesChannel.local
+                && LocalAvailChannel.offer(status)) {
+            return;
+        }
+        String topic = config.getStatusCodesTopic();
+        if (topic.isEmpty()) {
+            return;
+        }
+        PingDestination dest = status.getDestination();
+        MetricData metricData = new MetricData();
+        metricData.setTenantId(dest.getTenantId());
+        List<SingleMetric> data = new ArrayList<>(2);
+        data.add(new SingleMetric(dest.getResourceId() + ".status.code", status.getTimestamp(),
+                (double) status.getCode()));
+        /* for the availability rules based on the duration */
+        data.add(new SingleMetric(dest.getResourceId() + ".status.duration", status.getTimestamp(),
+                (double) status.getDuration()));
+        metricData.setData(data);
+        BusSender.send(topic, new MetricDataMessage(metricData), STATUS_CODE_HEADERS);
+    }
+
+    /**
+     * Submits the percentiles of the given {@link Rollup} to Hawkular-metrics service via REST asynchronously.
+     *
+     * @param rollup
+     *            the {@link Rollup} to publish
+     */
+    @Asynchronous
+    public void sendRollupToMetricsViaRest(Rollup rollup) {
+        doSendRollupToMetricsViaRest(rollup);
+    }
+
+    /**
+     * Submits the percentiles of the given {@link Rollup} to Hawkular-metrics service via REST in the calling
+     * thread. The percentiles are published in milliseconds as {@code <resourceId>.status.duration.<window>.p50},
+     * {@code .p95}, {@code .p99} and {@code .max} gauges timestamped with the start of the window. The number of
+     * pings that timed out in the window is published as {@code <resourceId>.status.duration.<window>.timeouts}.
+     *
+     * @param rollup
+     *            the {@link Rollup} to publish
+     */
+    public void doSendRollupToMetricsViaRest(Rollup rollup) {
+
+        List<Map<String, Object>> mMetrics = new ArrayList<>();
+
+        final String resourceId = rollup.getDestination().getResourceId();
+        final long timestamp = rollup.getWindowStart();
+        final String prefix = "duration." + rollup.getWindow() + ".";
+        if (rollup.getCount() > 0) {
+            addDataItem(mMetrics, resourceId, timestamp, rollup.getP50() / 1000d, prefix + "p50");
+            addDataItem(mMetrics, resourceId, timestamp, rollup.getP95() / 1000d, prefix + "p95");
+            addDataItem(mMetrics, resourceId, timestamp, rollup.getP99() / 1000d, prefix + "p99");
+            addDataItem(mMetrics, resourceId, timestamp, rollup.getMax() / 1000d, prefix + "max");
+        }
+        addDataItem(mMetrics, resourceId, timestamp, rollup.getTimeouts(), prefix + "timeouts");
+
+        post(rollup.getDestination().getTenantId(), mMetrics);
+    }
+
+    /**
+     * Submits a single value of a gauge not related to any particular resource to Hawkular-metrics service via REST
+     * asynchronously.
+     *
+     * @param tenantId the tenant owning the gauge
+     * @param metricId the ID of the gauge
+     * @param timestamp the timestamp of the value
+     * @param value the value to submit
+     */
+    @Asynchronous
+    public void sendGaugeToMetricsViaRest(String tenantId, String metricId, long timestamp, Number value) {
+        doSendGaugeToMetricsViaRest(tenantId, metricId, timestamp, value);
+    }
+
+    /**
+     * Submits a single value of a gauge not related to any particular resource to Hawkular-metrics service via REST
+     * in the calling thread.
+     *
+     * @param tenantId the tenant owning the gauge
+     * @param metricId the ID of the gauge
+     * @param timestamp the timestamp of the value
+     * @param value the value to submit
+     */
+    public void doSendGaugeToMetricsViaRest(String tenantId, String metricId, long timestamp, Number value) {
+        Map<String, Number> dataMap = new HashMap<>(2);
+        dataMap.put("timestamp", timestamp);
+        dataMap.put("value", value);
+        Map<String, Object> outer = new HashMap<>(2);
+        outer.put("id", metricId);
+        outer.put("data", Collections.singletonList(dataMap));
+        post(tenantId, Collections.singletonList(outer));
+    }
 
+    private void post(String tenantId, List<Map<String, Object>> mMetrics) {
         // Send it to metrics via rest
         String payload;
         try {
@@ -85,8 +249,8 @@ public class MetricPublisher {
         }
         HttpClient client = HttpClientBuilder.create().build();
 
-        HttpPost request = new HttpPost(configuration.getMetricsBaseUri() + "/gauges/data");
-        request.addHeader("Hawkular-Tenant", status.getDestination().getTenantId());
+        HttpPost request = new HttpPost(PingerConfiguration.getInstance().getMetricsBaseUri() + "/gauges/data");
+        request.addHeader("Hawkular-Tenant", tenantId);
 
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
 
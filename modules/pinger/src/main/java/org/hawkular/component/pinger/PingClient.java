@@ -0,0 +1,324 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpInetConnection;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContextBuilder;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
+import org.hawkular.component.pinger.PingerConfiguration.TlsMode;
+
+/**
+ * The {@link CloseableHttpClient} used for pinging together with its connection pool and {@link SSLContext}. A single
+ * instance is shared by all {@link Pinger}s so that both the pooled keep-alive connections and the TLS session cache
+ * survive across pings.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class PingClient {
+
+    /** A key to use when storing and retrieving remote IP address from and to {@link HttpContext} */
+    static final String REMOTE_ADDRESS_ATTRIBUTE = Pinger.class.getPackage().getName() + ".remoteAddress";
+
+    /** A key to use when storing and retrieving the {@link TlsHandshake} from and to {@link HttpContext} */
+    static final String TLS_HANDSHAKE_ATTRIBUTE = Pinger.class.getPackage().getName() + ".tlsHandshake";
+
+    private static final PingClient INSTANCE = new PingClient(PingerConfiguration.getInstance());
+
+    /**
+     * @return the {@link PingClient} shared by all {@link Pinger}s
+     */
+    static PingClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new {@link SSLContext} that accepts all certificates and whose client session cache is set up
+     * according to the given {@link PingerConfiguration}.
+     *
+     * @param configuration the configuration to read the session cache size and timeout from
+     * @return a new {@link SSLContext} or {@code null} if the context could not be created
+     */
+    private static SSLContext createSslContext(PingerConfiguration configuration) {
+        try {
+            SSLContextBuilder builder = SSLContexts.custom();
+            builder.loadTrustMaterial(null, new TrustStrategy() {
+                @Override
+                public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+                    return true;
+                }
+            });
+            SSLContext result = builder.build();
+            SSLSessionContext sessionContext = result.getClientSessionContext();
+            sessionContext.setSessionCacheSize(configuration.getTlsSessionCacheSize());
+            sessionContext.setSessionTimeout(configuration.getTlsSessionTimeoutSeconds());
+            return result;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient client;
+
+    private final SSLContext sslContext;
+
+    private final TlsMode tlsMode;
+
+    private final ProbeStates probeStates;
+
+    private volatile RequestConfig requestConfig;
+
+    private volatile int idleTimeoutSeconds;
+
+    /**
+     * Creates a new {@link PingClient} set up according to the given {@link PingerConfiguration}.
+     *
+     * @param configuration the configuration to use
+     */
+    PingClient(PingerConfiguration configuration) {
+        this.sslContext = createSslContext(configuration);
+        this.tlsMode = configuration.getTlsMode();
+        this.probeStates = new ProbeStates(configuration.getProbeFullGetEvery());
+        this.connectionManager = createConnectionManager(sslContext, configuration.getTlsMode());
+        this.requestConfig = createRequestConfig(configuration);
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager)
+                .setRequestExecutor(new HttpRequestExecutor() {
+                    @Override
+                    public HttpResponse execute(HttpRequest request, HttpClientConnection connection,
+                            HttpContext context) throws IOException, HttpException {
+                        if (context.getAttribute(REMOTE_ADDRESS_ATTRIBUTE) == null
+                                && connection instanceof HttpInetConnection) {
+                            /*
+                             * A pooled connection is being reused, so there was no connect to store the address.
+                             * Note that the connection cannot be asked after the execution because responses
+                             * without entity release it immediately.
+                             */
+                            context.setAttribute(REMOTE_ADDRESS_ATTRIBUTE,
+                                    ((HttpInetConnection) connection).getRemoteAddress());
+                        }
+                        return super.execute(request, connection, context);
+                    }
+                });
+        if (configuration.getTlsMode() == TlsMode.full) {
+            builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+        this.client = builder.build();
+        reconfigure(configuration);
+    }
+
+    private static RequestConfig createRequestConfig(PingerConfiguration configuration) {
+        int timeout = configuration.getPingTimeoutMillis();
+        return RequestConfig.custom().setConnectTimeout(timeout).setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout).build();
+    }
+
+    /**
+     * Applies the connection pool limits and the timeouts of the given {@link PingerConfiguration}. The TLS settings
+     * cannot be changed this way.
+     *
+     * @param configuration the configuration to apply
+     */
+    void reconfigure(PingerConfiguration configuration) {
+        connectionManager.setMaxTotal(configuration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerOrigin());
+        requestConfig = createRequestConfig(configuration);
+        idleTimeoutSeconds = configuration.getConnectionIdleTimeoutSeconds();
+        probeStates.setFullGetEvery(configuration.getProbeFullGetEvery());
+    }
+
+    /**
+     * Closes the pooled connections that the server does not want to keep alive any longer and those ones that were
+     * idle for longer than {@link PingerConfiguration#getConnectionIdleTimeoutSeconds()}.
+     */
+    void evictConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a custom {@link PoolingHttpClientConnectionManager}. The returned connection manager accepts all SSL
+     * certificates, stores remote IP address into {@link HttpContext} under {@link #REMOTE_ADDRESS_ATTRIBUTE} and the
+     * kind of the TLS handshake performed under {@link #TLS_HANDSHAKE_ATTRIBUTE}.
+     *
+     * @param sslContext the {@link SSLContext} to create the HTTPS connections with
+     * @param tlsMode if {@link TlsMode#full}, all cached TLS sessions are invalidated before each handshake so that
+     *        they can never be resumed
+     * @return a new {@link PoolingHttpClientConnectionManager}
+     */
+    private static PoolingHttpClientConnectionManager createConnectionManager(final SSLContext sslContext,
+            final TlsMode tlsMode) {
+
+        PlainConnectionSocketFactory plainSf = new PlainConnectionSocketFactory() {
+            @Override
+            public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                    InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context)
+                    throws IOException {
+                storeRemoteAddress(remoteAddress, context);
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            }
+        };
+
+        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext, null, null,
+                SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER) {
+            @Override
+            public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                    InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context)
+                    throws IOException {
+                storeRemoteAddress(remoteAddress, context);
+                if (tlsMode == TlsMode.full) {
+                    invalidateSessions(sslContext);
+                }
+                final long start = System.currentTimeMillis();
+                Socket result = super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress,
+                        context);
+                storeTlsHandshake(result, start, context);
+                return result;
+            }
+
+            @Override
+            public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+                    throws IOException {
+                if (tlsMode == TlsMode.full) {
+                    invalidateSessions(sslContext);
+                }
+                final long start = System.currentTimeMillis();
+                Socket result = super.createLayeredSocket(socket, target, port, context);
+                storeTlsHandshake(result, start, context);
+                return result;
+            }
+        };
+
+        return new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", plainSf).register("https", sslSocketFactory).build());
+    }
+
+    private static void storeRemoteAddress(InetSocketAddress remoteAddress, HttpContext context) {
+        InetAddress remoteInetAddress = remoteAddress.getAddress();
+        Log.LOG.tracef("Putting remote IP address to HttpContext %s", remoteInetAddress);
+        context.setAttribute(REMOTE_ADDRESS_ATTRIBUTE, remoteInetAddress);
+    }
+
+    /**
+     * Invalidates all TLS sessions cached by the given {@link SSLContext}. Note that it is not enough to invalidate
+     * the session right after the handshake, because with TLS 1.3, the resumable session is delivered in a
+     * post-handshake message.
+     *
+     * @param sslContext the context whose client sessions should be invalidated
+     */
+    static void invalidateSessions(SSLContext sslContext) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        for (Enumeration<byte[]> ids = sessionContext.getIds(); ids.hasMoreElements();) {
+            SSLSession cached = sessionContext.getSession(ids.nextElement());
+            if (cached != null) {
+                cached.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Finds out whether the handshake just performed on the given {@code socket} was a full or an abbreviated one and
+     * stores the result into {@link HttpContext} under {@link #TLS_HANDSHAKE_ATTRIBUTE}.
+     *
+     * @param socket the socket that has just finished its handshake
+     * @param start the value of {@code System.currentTimeMillis()} before the handshake started
+     * @param context the context to store the {@link TlsHandshake} to
+     */
+    private static void storeTlsHandshake(Socket socket, long start, HttpContext context) {
+        if (socket instanceof SSLSocket) {
+            SSLSession session = ((SSLSocket) socket).getSession();
+            /* a resumed session was created before this handshake started */
+            TlsHandshake handshake = session.getCreationTime() < start ? TlsHandshake.resumed : TlsHandshake.full;
+            Log.LOG.tracef("TLS handshake with %s was %s", socket.getRemoteSocketAddress(), handshake);
+            context.setAttribute(TLS_HANDSHAKE_ATTRIBUTE, handshake);
+        }
+    }
+
+    /**
+     * @return the {@link CloseableHttpClient} to send the pings through
+     */
+    CloseableHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return the pool of connections used by {@link #getClient()}
+     */
+    PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * @return the {@link SSLContext} holding the TLS session cache or {@code null} if it could not be created
+     */
+    SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * @return how TLS connections and sessions are dealt with
+     */
+    TlsMode getTlsMode() {
+        return tlsMode;
+    }
+
+    /**
+     * @return the timeouts to set on ping requests
+     */
+    RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * @return the validators and {@code HEAD} support of the destinations pinged with conditional probes
+     */
+    ProbeStates getProbeStates() {
+        return probeStates;
+    }
+}
@@ -30,17 +30,80 @@ public class PingDestination {
     public static final String URL_TYPE = "URL";
 
     public enum ResourceField {
-        url, method
+        url, method, probe
     };
 
+    /**
+     * How the pings of a destination are performed. {@link #conditional} and {@link #head} apply only to
+     * destinations pinged with the {@code GET} method, destinations pinged with other methods use {@link #full}
+     * instead. {@link #tcp} and {@link #tls} send no HTTP request at all, so the method is ignored for them.
+     */
+    public enum Probe {
+        /** Each ping downloads the whole response */
+        full,
+        /**
+         * The pings send {@code If-None-Match} and {@code If-Modified-Since} headers with the validators of the
+         * previous response, so that an unchanged page is answered with a bodyless {@code 304 Not Modified}
+         */
+        conditional,
+        /**
+         * Like {@link #conditional}, but once the server has been verified to answer {@code HEAD} requests with the
+         * same status as {@code GET} requests, only every n-th ping is a conditional {@code GET} and all others are
+         * {@code HEAD} requests
+         */
+        head,
+        /**
+         * Each ping only opens a TCP connection to the host and port of the URL and closes it again. Suitable for
+         * endpoints that do not speak HTTP, such as database proxies
+         */
+        tcp,
+        /**
+         * Like {@link #tcp}, but the ping also performs a TLS handshake. Suitable for TLS terminators whose
+         * certificate handshake is what matters
+         */
+        tls;
+
+        /**
+         * @return {@code true} if this {@link Probe} sends HTTP requests, {@code false} otherwise
+         */
+        public boolean isHttp() {
+            return this != tcp && this != tls;
+        }
+
+        /**
+         * A null-tolerant variant of {@link #valueOf(String)}.
+         *
+         * @param value the value of the {@link ResourceField#probe} property
+         * @return the corresponding {@link Probe} or {@link #full} if {@code value} is {@code null} or unknown
+         */
+        public static Probe fromProperty(Object value) {
+            if (value != null) {
+                for (Probe probe : values()) {
+                    if (probe.name().equals(value.toString())) {
+                        return probe;
+                    }
+                }
+            }
+            return full;
+        }
+    }
+
     public static boolean isUrl(Resource r) {
         return URL_TYPE.equals(r.getType().getId());
     }
 
     public static PingDestination from(Resource r) {
         Map<String, Object> props = r.getProperties();
-        return new PingDestination(r.getPath().ids().getTenantId(), r.getPath().ids().getEnvironmentId(), r.getId(),
-                (String) props.get(ResourceField.url.name()), (String) props.get(ResourceField.method.name()));
+        String tenantId = r.getPath().ids().getTenantId();
+        AlertRule alertRule = null;
+        try {
+            alertRule = AlertRule.from(props);
+        } catch (IllegalArgumentException e) {
+            Log.LOG.wInvalidAlertRule(r.getId(), tenantId, e.getMessage());
+        }
+        return new PingDestination(tenantId, r.getPath().ids().getEnvironmentId(), r.getId(),
+                (String) props.get(ResourceField.url.name()), (String) props.get(ResourceField.method.name()),
+                Probe.fromProperty(props.get(ResourceField.probe.name())), alertRule);
     }
 
     /** The default method {@value} */
@@ -51,6 +114,8 @@ public class PingDestination {
     private final String resourceId;
     private final String url;
     private final String method;
+    private final Probe probe;
+    private final AlertRule alertRule;
 
     /**
      * Creates a new {@link PingDestination} using the default method {@value #DEFAULT_METHOD}.
@@ -75,11 +140,46 @@ public class PingDestination {
      *        {@value #DEFAULT_METHOD}
      */
     public PingDestination(String tenantId, String environmentId, String resourceId, String url, String method) {
+        this(tenantId, environmentId, resourceId, url, method, Probe.full);
+    }
+
+    /**
+     * Creates a new {@link PingDestination}
+     *
+     * @param tenantId the owner of the present {@link PingDestination}
+     * @param environmentId the environment (test/live) the present {@link PingDestination} belongs to
+     * @param resourceId the resourceId of this destination as taken from Hawkular Inventory
+     * @param url the URL to ping
+     * @param method the HTTP method to use in the ping request or null to use the default method
+     *        {@value #DEFAULT_METHOD}
+     * @param probe how the GET pings should be performed
+     */
+    public PingDestination(String tenantId, String environmentId, String resourceId, String url, String method,
+            Probe probe) {
+        this(tenantId, environmentId, resourceId, url, method, probe, null);
+    }
+
+    /**
+     * Creates a new {@link PingDestination}
+     *
+     * @param tenantId the owner of the present {@link PingDestination}
+     * @param environmentId the environment (test/live) the present {@link PingDestination} belongs to
+     * @param resourceId the resourceId of this destination as taken from Hawkular Inventory
+     * @param url the URL to ping
+     * @param method the HTTP method to use in the ping request or null to use the default method
+     *        {@value #DEFAULT_METHOD}
+     * @param probe how the GET pings should be performed
+     * @param alertRule the {@link AlertRule} to evaluate against the pings or {@code null} if there is none
+     */
+    public PingDestination(String tenantId, String environmentId, String resourceId, String url, String method,
+            Probe probe, AlertRule alertRule) {
         this.tenantId = tenantId;
         this.environmentId = environmentId;
         this.resourceId = resourceId;
         this.url = url;
         this.method = method == null ? DEFAULT_METHOD : method;
+        this.probe = probe;
+        this.alertRule = alertRule;
     }
 
 
@@ -87,8 +187,10 @@ public class PingDestination {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((alertRule == null) ? 0 : alertRule.hashCode());
         result = prime * result + ((environmentId == null) ? 0 : environmentId.hashCode());
         result = prime * result + ((method == null) ? 0 : method.hashCode());
+        result = prime * result + ((probe == null) ? 0 : probe.hashCode());
         result = prime * result + ((resourceId == null) ? 0 : resourceId.hashCode());
         result = prime * result + ((tenantId == null) ? 0 : tenantId.hashCode());
         result = prime * result + ((url == null) ? 0 : url.hashCode());
@@ -104,6 +206,11 @@ public class PingDestination {
         if (getClass() != obj.getClass())
             return false;
         PingDestination other = (PingDestination) obj;
+        if (alertRule == null) {
+            if (other.alertRule != null)
+                return false;
+        } else if (!alertRule.equals(other.alertRule))
+            return false;
         if (environmentId == null) {
             if (other.environmentId != null)
                 return false;
@@ -114,6 +221,8 @@ public class PingDestination {
                 return false;
         } else if (!method.equals(other.method))
             return false;
+        if (probe != other.probe)
+            return false;
         if (resourceId == null) {
             if (other.resourceId != null)
                 return false;
@@ -140,7 +249,7 @@ public class PingDestination {
                 + "environmentId='" + environmentId + '\''
                 + "resourceId='" + resourceId + '\''
                 + ", url='" + url + '\'' + ", method='" + method
-                + '\'' + '}';
+                + '\'' + ", probe=" + probe + ", alertRule=" + alertRule + '}';
     }
 
     public String getTenantId() {
@@ -162,4 +271,19 @@ public class PingDestination {
     public String getMethod() {
         return method;
     }
+
+    /**
+     * @return how the pings of this destination should be performed
+     */
+    public Probe getProbe() {
+        return probe;
+    }
+
+    /**
+     * @return the {@link AlertRule} to evaluate against the pings of this destination or {@code null} if there is
+     *         none
+     */
+    public AlertRule getAlertRule() {
+        return alertRule;
+    }
 }
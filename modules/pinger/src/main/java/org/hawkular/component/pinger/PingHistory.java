@@ -0,0 +1,241 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps a fixed number of the most recent ping results of each destination in memory so that the recent status of a
+ * URL can be shown without querying Hawkular Metrics.
+ * <p>
+ * The results of a destination are stored in a ring buffer of primitive arrays: each slot takes two {@code long}s,
+ * i.e. 16 bytes, so that a destination takes about {@code 16 * slots} bytes plus a constant overhead regardless of how
+ * long it has been pinged. No {@link PingStatus} objects are retained; {@link Sample}s are created only when the
+ * history is read.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingHistory {
+
+    /**
+     * A single ping result as returned by the read methods of {@link PingHistory}.
+     */
+    public static class Sample {
+        private final long timestamp;
+        private final int code;
+        private final int duration;
+        private final boolean timedOut;
+
+        Sample(long timestamp, int code, int duration, boolean timedOut) {
+            super();
+            this.timestamp = timestamp;
+            this.code = code;
+            this.duration = duration;
+            this.timedOut = timedOut;
+        }
+
+        /**
+         * @return see {@link PingStatus#getTimestamp()}
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return see {@link PingStatus#getCode()}
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * @return see {@link PingStatus#getDuration()}
+         */
+        public int getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return see {@link PingStatus#isTimedOut()}
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        @Override
+        public String toString() {
+            return "Sample [timestamp=" + timestamp + ", code=" + code + ", duration=" + duration + ", timedOut="
+                    + timedOut + "]";
+        }
+    }
+
+    /**
+     * The ring buffer of a single destination.
+     */
+    private static final class Ring {
+        private static final long TIMED_OUT_BIT = 1L << 16;
+        private static final long CODE_MASK = 0xffffL;
+
+        private final long[] timestamps;
+
+        /** The duration in the upper 32 bits, the timed out flag in bit 16 and the code in the lower 16 bits */
+        private final long[] values;
+
+        /** The index of the slot to write next */
+        private int next;
+
+        /** The number of used slots */
+        private int size;
+
+        private Ring(int slots) {
+            super();
+            this.timestamps = new long[slots];
+            this.values = new long[slots];
+        }
+
+        private synchronized void add(PingStatus status) {
+            timestamps[next] = status.getTimestamp();
+            values[next] = ((long) status.getDuration() << 32) | (status.isTimedOut() ? TIMED_OUT_BIT : 0L)
+                    | (status.getCode() & CODE_MASK);
+            next = (next + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            }
+        }
+
+        /**
+         * @param limit the maximal number of samples to return
+         * @return at most {@code limit} samples, the newest first
+         */
+        private synchronized List<Sample> latest(int limit) {
+            int count = Math.min(limit, size);
+            List<Sample> result = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                result.add(sample(Math.floorMod(next - i, timestamps.length)));
+            }
+            return result;
+        }
+
+        private synchronized Sample latest() {
+            return size == 0 ? null : sample(Math.floorMod(next - 1, timestamps.length));
+        }
+
+        private Sample sample(int slot) {
+            long value = values[slot];
+            return new Sample(timestamps[slot], (int) (value & CODE_MASK), (int) (value >> 32),
+                    (value & TIMED_OUT_BIT) != 0);
+        }
+    }
+
+    private static final PingHistory INSTANCE = new PingHistory(PingerConfiguration.getInstance().getHistorySlots());
+
+    /**
+     * @return the {@link PingHistory} shared by the {@link PingManager} and the REST endpoint
+     */
+    public static PingHistory getInstance() {
+        return INSTANCE;
+    }
+
+    /** The number of results kept per destination */
+    private final int slots;
+
+    /** The rings by resource ID by tenant ID */
+    private final ConcurrentMap<String, ConcurrentMap<String, Ring>> rings = new ConcurrentHashMap<>();
+
+    /**
+     * @param slots the number of results to keep per destination
+     */
+    PingHistory(int slots) {
+        super();
+        this.slots = slots;
+    }
+
+    /**
+     * Stores the given {@link PingStatus}, overwriting the oldest result of its destination if all slots are used.
+     *
+     * @param status the result to store
+     */
+    public void record(PingStatus status) {
+        PingDestination destination = status.getDestination();
+        rings.computeIfAbsent(destination.getTenantId(), t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(destination.getResourceId(), r -> new Ring(slots)).add(status);
+    }
+
+    /**
+     * @param tenantId the tenant owning the URL
+     * @param resourceId the ID of the URL resource
+     * @param limit the maximal number of samples to return
+     * @return at most {@code limit} most recent samples, the newest first or {@code null} if there are no samples for
+     *         the given URL
+     */
+    public List<Sample> getLatest(String tenantId, String resourceId, int limit) {
+        Map<String, Ring> tenantRings = rings.get(tenantId);
+        Ring ring = tenantRings == null ? null : tenantRings.get(resourceId);
+        return ring == null ? null : ring.latest(limit);
+    }
+
+    /**
+     * @param tenantId the tenant whose URLs should be returned
+     * @return the most recent sample of each URL of the given tenant by resource ID
+     */
+    public Map<String, Sample> getLatest(String tenantId) {
+        Map<String, Ring> tenantRings = rings.get(tenantId);
+        if (tenantRings == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Sample> result = new HashMap<>(tenantRings.size() + tenantRings.size() / 2);
+        for (Map.Entry<String, Ring> entry : tenantRings.entrySet()) {
+            Sample sample = entry.getValue().latest();
+            if (sample != null) {
+                result.put(entry.getKey(), sample);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the results of the destinations that are not contained in the given {@link Collection}.
+     *
+     * @param destinations the destinations still being pinged
+     */
+    public void retainAll(Collection<PingDestination> destinations) {
+        Map<String, Collection<String>> retained = new HashMap<>();
+        for (PingDestination destination : destinations) {
+            retained.computeIfAbsent(destination.getTenantId(), t -> new HashSet<>())
+                    .add(destination.getResourceId());
+        }
+        for (Iterator<Map.Entry<String, ConcurrentMap<String, Ring>>> it = rings.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<String, ConcurrentMap<String, Ring>> entry = it.next();
+            Collection<String> resourceIds = retained.get(entry.getKey());
+            if (resourceIds == null) {
+                it.remove();
+            } else {
+                entry.getValue().keySet().retainAll(resourceIds);
+            }
+        }
+    }
+}
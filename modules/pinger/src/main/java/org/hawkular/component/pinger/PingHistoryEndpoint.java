@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.security.Principal;
+import java.util.List;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+
+import org.hawkular.component.pinger.PingHistory.Sample;
+
+/**
+ * Serves the recent ping results kept in {@link PingHistory}, so that dashboards do not need to query Hawkular
+ * Metrics for them. The tenant is the name of the authenticated principal. A client may pass the
+ * {@value #PERSONA_HEADER} header, but the request is rejected if it names a tenant other than the principal's one.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Path("/history")
+@Produces(APPLICATION_JSON)
+public class PingHistoryEndpoint {
+
+    static final String PERSONA_HEADER = "Hawkular-Persona";
+
+    /**
+     * @param security the security context of the current request
+     * @param persona the value of the {@value #PERSONA_HEADER} header, can be {@code null}
+     * @return the tenant of the authenticated principal or {@code null} if there is no principal or if
+     *         {@code persona} names some other tenant
+     */
+    static String tenantOf(SecurityContext security, String persona) {
+        Principal principal = security == null ? null : security.getUserPrincipal();
+        if (principal == null) {
+            return null;
+        }
+        String tenantId = principal.getName();
+        return persona == null || persona.equals(tenantId) ? tenantId : null;
+    }
+
+    private final PingHistory history = PingHistory.getInstance();
+
+    /**
+     * @param security the security context of the current request
+     * @param persona the value of the {@value #PERSONA_HEADER} header, can be {@code null}
+     * @return the most recent sample of every URL of the caller's tenant by resource ID
+     */
+    @GET
+    @Path("/")
+    public Response getLatest(@Context SecurityContext security, @HeaderParam(PERSONA_HEADER) String persona) {
+        String tenantId = tenantOf(security, persona);
+        if (tenantId == null) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        return Response.ok(history.getLatest(tenantId)).build();
+    }
+
+    /**
+     * @param security the security context of the current request
+     * @param persona the value of the {@value #PERSONA_HEADER} header, can be {@code null}
+     * @param resourceId the ID of the URL resource
+     * @param limit the maximal number of samples to return
+     * @return at most {@code limit} most recent samples of the given URL, the newest first
+     */
+    @GET
+    @Path("/{resourceId}")
+    public Response getLatest(@Context SecurityContext security, @HeaderParam(PERSONA_HEADER) String persona,
+            @PathParam("resourceId") String resourceId, @QueryParam("limit") @DefaultValue("10") int limit) {
+        String tenantId = tenantOf(security, persona);
+        if (tenantId == null) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        if (limit < 0) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        List<Sample> result = history.getLatest(tenantId, resourceId, limit);
+        if (result == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(result).build();
+    }
+}
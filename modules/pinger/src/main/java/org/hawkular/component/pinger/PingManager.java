@@ -17,16 +17,17 @@
 package org.hawkular.component.pinger;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ejb.EJB;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
@@ -34,6 +35,10 @@ import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 
+import org.hawkular.component.pinger.LatencyRollups.Rollup;
+import org.hawkular.component.pinger.PingerConfiguration.DispatchMode;
+import org.hawkular.component.pinger.PingerConfiguration.ExecutionMode;
+import org.hawkular.component.pinger.PingerConfiguration.ScheduleMode;
 import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
@@ -50,15 +55,40 @@ import org.hawkular.inventory.api.model.Resource;
 @Singleton
 public class PingManager {
 
-    /** How many rounds a WAIT_MILLIS do we wait for results to come in? */
-    private static final int ROUNDS = 15;
-    /** How long do we wait between each round in milliseconds */
-    private static final int WAIT_MILLIS = 500;
     /**
-     * Rough timeout in milliseconds for the pings after which the pings are cancelled and reported as timeouted. Note
-     * that in practice, the real time given to pings can be longer.
+     * The {@link StageExecutor}s of a single configuration. Immutable so that the threads reporting the results can
+     * read all of them consistently through a single volatile read of {@link PingManager#stages}.
      */
-    private static final int TIMEOUT_MILLIS = ROUNDS * WAIT_MILLIS;
+    private static final class Stages {
+        /** No {@link StageExecutor}s in {@link ExecutionMode#ejb} mode */
+        private static final Stages NONE = new Stages(null, null, null);
+
+        /** The executor of the pings or {@code null} in {@link ExecutionMode#ejb} mode */
+        private final StageExecutor ping;
+
+        /** The executor of metrics submissions or {@code null} in {@link ExecutionMode#ejb} mode */
+        private final StageExecutor metricsPublish;
+
+        /** The executor of traits updates or {@code null} in {@link ExecutionMode#ejb} mode */
+        private final StageExecutor traitsPublish;
+
+        private Stages(StageExecutor ping, StageExecutor metricsPublish, StageExecutor traitsPublish) {
+            super();
+            this.ping = ping;
+            this.metricsPublish = metricsPublish;
+            this.traitsPublish = traitsPublish;
+        }
+
+        private StageExecutor[] all() {
+            return new StageExecutor[] { ping, metricsPublish, traitsPublish };
+        }
+    }
+
+    /** The ID of the per-tenant gauge of the dispatch lag in {@link DispatchMode#fair} mode */
+    static final String DISPATCH_LAG_METRIC = "pinger.dispatch.lag";
+
+    /** How much longer than the ping timeout the pings in flight may take to finish on reconfiguration */
+    private static final long DRAIN_MARGIN_MILLIS = 1000;
 
     @EJB
     Pinger pinger;
@@ -76,9 +106,39 @@ public class PingManager {
 
     final UrlChangesCollector urlChangesCollector = new UrlChangesCollector();
 
+    /**
+     * The current {@link StageExecutor}s; volatile because it is read by the threads reporting the results, which
+     * must read it only once per result
+     */
+    private volatile Stages stages = Stages.NONE;
+
+    /** The dispatcher of the pings in {@link DispatchMode#fair} mode or {@code null} otherwise */
+    private FairDispatcher fairDispatcher;
+
+    /** The scheduler of the pings in {@link ScheduleMode#continuous} mode or {@code null} otherwise */
+    private ContinuousScheduler continuousScheduler;
+
+    /** The reusable state of the rounds in {@link ScheduleMode#rounds} mode */
+    private final PingRound pingRound = new PingRound();
+
+    /**
+     * The {@link Traits} last published for each destination in {@link ScheduleMode#continuous} mode; the
+     * {@link #pingRound} keeps them in {@link ScheduleMode#rounds} mode
+     */
+    private final ConcurrentMap<PingDestination, Traits> publishedTraits = new ConcurrentHashMap<>();
+
+    private final ConnectionWarmer connectionWarmer = new ConnectionWarmer(PingClient.getInstance());
+
+    private final AlertEvaluator alertEvaluator = new AlertEvaluator();
+
+    /** Where the {@link AlertEvent}s are sent; volatile because it is read by the threads reporting the results */
+    private volatile AlertSink alertSink;
+
     @PostConstruct
     public void startUp() {
 
+        startExecution(PingerConfiguration.getInstance());
+
         /*
          * Add the observers before reading the existing URLs from the inventory so that we do not loose the URLs that
          * could have been added or removed between those two calls.
@@ -100,6 +160,124 @@ public class PingManager {
             destinations.add(dest);
             Log.LOG.debugf("Added initial URL to ping: %s", dest.getUrl());
         }
+        warmUpConnections();
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        stopExecution(false);
+        connectionWarmer.shutdown();
+        PingRecorder.activate("");
+        BusSender.closeAll();
+    }
+
+    /**
+     * Makes the given {@link PingerConfiguration} the current one and restarts the executors, the dispatcher and
+     * the scheduler according to it. Waits for the current round of pings to finish.
+     *
+     * @param configuration the new configuration
+     * @return the keys of the changed values that take effect only after the pinger is restarted
+     */
+    @Lock(LockType.WRITE)
+    public List<String> reconfigure(PingerConfiguration configuration) {
+        PingerConfiguration previous = PingerConfiguration.getInstance();
+        PingerConfiguration.setInstance(configuration);
+        PingClient.getInstance().reconfigure(configuration);
+        stopExecution(true);
+        startExecution(configuration);
+        if (continuousScheduler != null) {
+            continuousScheduler.update(new HashSet<>(destinations));
+        }
+        Log.LOG.iReconfigured(configuration.getEffectiveValues());
+        List<String> result = previous.getChangesRequiringRestart(configuration);
+        if (!result.isEmpty()) {
+            Log.LOG.wRestartRequired(result);
+        }
+        return result;
+    }
+
+    private void startExecution(PingerConfiguration configuration) {
+        PingRecorder.activate(configuration.getRecordFile());
+        try {
+            alertSink = AlertSink.create(configuration.getAlertSink(), configuration.getAlertTopic());
+        } catch (IllegalArgumentException e) {
+            Log.LOG.eCouldNotCreateAlertSink(configuration.getAlertSink(), e);
+            alertSink = AlertSink.create(AlertSink.LOG, configuration.getAlertTopic());
+        }
+        if (configuration.getExecutionMode() == ExecutionMode.executors) {
+            stages = new Stages(
+                    new StageExecutor("ping", configuration.getPingConcurrency(), configuration.getPingQueueSize(),
+                            configuration.getPingRejectionPolicy()),
+                    new StageExecutor("metrics-publish", configuration.getMetricsPublishConcurrency(),
+                            configuration.getMetricsPublishQueueSize(),
+                            configuration.getMetricsPublishRejectionPolicy()),
+                    new StageExecutor("traits-publish", configuration.getTraitsPublishConcurrency(),
+                            configuration.getTraitsPublishQueueSize(),
+                            configuration.getTraitsPublishRejectionPolicy()));
+        }
+        if (configuration.getDispatchMode() == DispatchMode.fair) {
+            fairDispatcher = new FairDispatcher(configuration.getPingConcurrency(), configuration::getTenantWeight,
+                    configuration.getTenantMaxConcurrency());
+        }
+        if (configuration.getScheduleMode() == ScheduleMode.continuous) {
+            if (fairDispatcher == null) {
+                continuousScheduler = new ContinuousScheduler(configuration.getPingConcurrency(),
+                        configuration.getScheduleIntervalMillis(), pinger::doPing, this::reportResult);
+            } else {
+                /* the scheduler threads only hand the pings over to the dispatcher */
+                final FairDispatcher dispatcher = fairDispatcher;
+                continuousScheduler = new ContinuousScheduler(1, configuration.getScheduleIntervalMillis(),
+                        pinger::doPing, this::reportResult,
+                        (destination, ping) -> dispatcher.execute(destination.getTenantId(), ping));
+            }
+        }
+    }
+
+    /**
+     * @param graceful if {@code true} the pings in flight are let to finish and report their results before the
+     *        stages are shut down and the submitted publishing tasks are let to finish, otherwise all of them are
+     *        interrupted
+     */
+    private void stopExecution(boolean graceful) {
+        if (graceful) {
+            long timeoutMillis = PingerConfiguration.getInstance().getPingTimeoutMillis() + DRAIN_MARGIN_MILLIS;
+            try {
+                /* the scheduler hands the pings over to the dispatcher, so it must be drained first */
+                if (continuousScheduler != null) {
+                    continuousScheduler.shutdownGracefully();
+                    if (!continuousScheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        Log.LOG.wDrainTimedOut(timeoutMillis);
+                    }
+                }
+                if (fairDispatcher != null) {
+                    fairDispatcher.shutdownGracefully();
+                    if (!fairDispatcher.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        Log.LOG.wDrainTimedOut(timeoutMillis);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (continuousScheduler != null) {
+            continuousScheduler.shutdown();
+            continuousScheduler = null;
+        }
+        if (fairDispatcher != null) {
+            fairDispatcher.shutdown();
+            fairDispatcher = null;
+        }
+        Stages oldStages = stages;
+        stages = Stages.NONE;
+        for (StageExecutor stage : oldStages.all()) {
+            if (stage != null) {
+                if (graceful) {
+                    stage.shutdownGracefully();
+                } else {
+                    stage.shutdown();
+                }
+            }
+        }
     }
 
     /**
@@ -112,6 +290,9 @@ public class PingManager {
      * container.
      * <li>Individual {@link #scheduleWork()} invocations will not overlap each other - we also assume this to be
      * granted by the EE container.
+     * </ul>
+     * In {@link ScheduleMode#continuous} mode, this method only passes the current destinations to the
+     * {@link ContinuousScheduler} which pings each of them on its own schedule.
      */
     @Lock(LockType.READ)
     @Schedule(minute = "*", hour = "*", second = "0,20,40", persistent = false)
@@ -121,50 +302,78 @@ public class PingManager {
 
         /* Apply URL additions and removals collected in between. */
         urlChangesCollector.apply(this.destinations);
+        PingClient pingClient = PingClient.getInstance();
+        pingClient.getProbeStates().retainAll(destinations);
+        connectionWarmer.retainAll(destinations);
+        alertEvaluator.retainAll(destinations);
+        publishedTraits.keySet().retainAll(destinations);
+        PingHistory.getInstance().retainAll(destinations);
+        LatencyRollups latencyRollups = LatencyRollups.getInstance();
+        for (Rollup rollup : latencyRollups.retainAll(destinations)) {
+            metricPublisher.sendRollupToMetricsViaRest(rollup);
+        }
+        for (Rollup rollup : latencyRollups.flush(System.currentTimeMillis())) {
+            metricPublisher.sendRollupToMetricsViaRest(rollup);
+        }
+        if (fairDispatcher != null) {
+            reportDispatchLags();
+        }
+        reportStageSaturation();
 
-        if (destinations.size() == 0) {
+        if (continuousScheduler != null) {
+            continuousScheduler.update(new HashSet<>(destinations));
+        } else if (destinations.size() == 0) {
             Log.LOG.debugf("Nothing to ping");
-            return;
+        } else {
+            doThePing(destinations);
         }
 
-        doThePing(destinations);
+        warmUpConnections();
+    }
+
+    /**
+     * Closes the expired connections and starts opening the connections to the new origins and re-opening the
+     * evicted ones in the background, so that they are ready ahead of the next round of measured pings.
+     */
+    private void warmUpConnections() {
+        PingClient.getInstance().evictConnections();
+        connectionWarmer.warmUp(destinations, PingerConfiguration.getInstance().getWarmUpConcurrency());
     }
 
     /**
      * Runs the pinging work on the provided list of destinations. The actual pings are scheduled to run in parallel in
-     * a thread pool. After ROUNDS*WAIT_MILLIS, remaining pings are cancelled and an error
+     * a thread pool: either in the async pool of the container or in {@link Stages#ping} depending on the configured
+     * {@link ExecutionMode}, or by the {@link #fairDispatcher} in {@link DispatchMode#fair} mode. After
+     * {@link PingerConfiguration#getRoundsTimeoutMillis()}, remaining pings are cancelled and an error
      *
      * @param destinations Set of destinations to ping
      */
     private void doThePing(Set<PingDestination> destinations) {
         Log.LOG.debugf("About to ping %d URLs", destinations.size());
+        final PingerConfiguration configuration = PingerConfiguration.getInstance();
+        final int rounds = configuration.getRoundsCount();
 
-        List<PingStatus> results = new ArrayList<>(destinations.size());
-        // In case of timeouts we will not be able to get the PingStatus from the Future, so use a Map
-        // to keep track of what destination's ping actually hung.
-        Map<Future<PingStatus>, PingDestination> futures = new HashMap<>(destinations.size());
-
-        for (PingDestination destination : destinations) {
-            Future<PingStatus> result = pinger.ping(destination);
-            futures.put(result, destination);
+        pingRound.reset(destinations);
+        final StageExecutor pingStage = stages.ping;
+        final int size = pingRound.size();
+        for (int slot = 0; slot < size; slot++) {
+            PingDestination destination = pingRound.getDestination(slot);
+            Future<PingStatus> result;
+            if (fairDispatcher != null) {
+                result = fairDispatcher.submit(destination.getTenantId(), () -> pinger.doPing(destination));
+            } else if (pingStage != null) {
+                result = pingStage.submit(() -> pinger.doPing(destination));
+            } else {
+                result = pinger.ping(destination);
+            }
+            pingRound.submitted(slot, result);
         }
 
         int round = 1;
-        while (!futures.isEmpty() && round < ROUNDS) {
-            Iterator<Future<PingStatus>> iterator = futures.keySet().iterator();
-            while (iterator.hasNext()) {
-                Future<PingStatus> f = iterator.next();
-                if (f.isDone()) {
-                    try {
-                        results.add(f.get());
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace(); // TODO: Customise this generated block
-                    }
-                    iterator.remove();
-                }
-            }
+        while (pingRound.getPending() > 0 && round < rounds) {
+            pingRound.collect();
             try {
-                Thread.sleep(WAIT_MILLIS); // wait until the next iteration
+                Thread.sleep(configuration.getRoundsWaitMillis()); // wait until the next iteration
             } catch (InterruptedException e) {
                 // We don't care
             }
@@ -172,29 +381,122 @@ public class PingManager {
         }
 
         // Cancel hanging pings and report them as timeouts
-        for (Map.Entry<Future<PingStatus>, PingDestination> entry : futures.entrySet()) {
-            entry.getKey().cancel(true);
-            PingDestination destination = entry.getValue();
-            final long now = System.currentTimeMillis();
-            PingStatus ps = PingStatus.timeout(destination, now, TIMEOUT_MILLIS);
-            results.add(ps);
-            Log.LOG.debugf("Timed out: %s", destination.getUrl());
+        pingRound.timeOutPending(System.currentTimeMillis(), configuration.getRoundsTimeoutMillis());
+
+        for (int slot = 0; slot < size; slot++) {
+            PingStatus status = pingRound.getResult(slot);
+            if (status != null && !reportResult(status, pingRound.traitsChanged(slot))) {
+                /* publish the traits again next time */
+                pingRound.traitsNotPublished(slot);
+            }
+        }
+        pingRound.clearResults();
+    }
+
+    /**
+     * Publishes the highest dispatch lag of each tenant since the previous invocation as the
+     * {@value #DISPATCH_LAG_METRIC} gauge of the tenant.
+     */
+    private void reportDispatchLags() {
+        final long now = System.currentTimeMillis();
+        final StageExecutor metricsPublishStage = stages.metricsPublish;
+        for (Map.Entry<String, Long> entry : fairDispatcher.drainLags().entrySet()) {
+            final String tenantId = entry.getKey();
+            final Long lag = entry.getValue();
+            if (metricsPublishStage == null) {
+                metricPublisher.sendGaugeToMetricsViaRest(tenantId, DISPATCH_LAG_METRIC, now, lag);
+            } else {
+                metricsPublishStage.execute(
+                        () -> metricPublisher.doSendGaugeToMetricsViaRest(tenantId, DISPATCH_LAG_METRIC, now, lag));
+            }
         }
+    }
 
-        reportResults(results);
+    /**
+     * Publishes the number of tasks submitted to each saturated {@link StageExecutor} since the previous invocation
+     * to the log.
+     */
+    private void reportStageSaturation() {
+        for (StageExecutor stage : stages.all()) {
+            if (stage != null) {
+                long saturated = stage.drainSaturated();
+                if (saturated > 0) {
+                    StageExecutor.Statistics statistics = stage.getStatistics();
+                    Log.LOG.wStageSaturated(stage.getName(), saturated, statistics.getRejectionPolicy().name(),
+                            statistics.getActive(), statistics.getQueued());
+                }
+            }
+        }
     }
 
-    private void reportResults(List<PingStatus> results) {
+    /**
+     * @return the sizing and saturation of the {@link StageExecutor}s, empty in {@link ExecutionMode#ejb} mode
+     */
+    @Lock(LockType.READ)
+    public List<StageExecutor.Statistics> getStageStatistics() {
+        List<StageExecutor.Statistics> result = new ArrayList<>(3);
+        for (StageExecutor stage : stages.all()) {
+            if (stage != null) {
+                result.add(stage.getStatistics());
+            }
+        }
+        return result;
+    }
 
-        if (results.size() == 0) {
-            return;
+    /**
+     * Reports a result of the {@link ContinuousScheduler}, publishing its {@link Traits} only if they differ from the
+     * ones published for the same destination before.
+     *
+     * @param status the result of a ping
+     */
+    private void reportResult(PingStatus status) {
+        PingDestination destination = status.getDestination();
+        Traits traits = status.getTraits();
+        boolean publishTraits = traits == null || !traits.sameAs(publishedTraits.put(destination, traits));
+        if (!reportResult(status, publishTraits) && traits != null) {
+            /* publish the traits again next time */
+            publishedTraits.remove(destination, traits);
         }
+    }
 
-        for (PingStatus status : results) {
+    /**
+     * @param status the result of a ping
+     * @param publishTraits {@code true} if the {@link Traits} of the given {@link PingStatus} should be published
+     * @return {@code false} if the {@link Traits} should have been published but their publishing was dropped by
+     *         the saturated {@link Stages#traitsPublish}, {@code true} otherwise
+     */
+    private boolean reportResult(PingStatus status, boolean publishTraits) {
+        /* alert before anything else so that the state change is not delayed by the publishing */
+        AlertEvent alertEvent = alertEvaluator.evaluate(status);
+        if (alertEvent != null) {
+            alertSink.emit(alertEvent);
+        }
+        PingHistory.getInstance().record(status);
+        List<Rollup> rollups = LatencyRollups.getInstance().record(status);
+        /* read once, stopExecution() may replace the stages concurrently */
+        final Stages currentStages = stages;
+        final StageExecutor metricsPublishStage = currentStages.metricsPublish;
+        boolean traitsAccepted = true;
+        if (metricsPublishStage == null) {
             metricPublisher.sendToMetricsViaRest(status);
-            traitsPublisher.publish(status);
+            metricPublisher.sendStatusCodeToBus(status);
+            if (publishTraits) {
+                traitsPublisher.publish(status);
+            }
+            for (Rollup rollup : rollups) {
+                metricPublisher.sendRollupToMetricsViaRest(rollup);
+            }
+        } else {
+            metricsPublishStage.execute(() -> metricPublisher.doSendToMetricsViaRest(status));
+            metricsPublishStage.execute(() -> metricPublisher.doSendStatusCodeToBus(status));
+            if (publishTraits) {
+                traitsAccepted = currentStages.traitsPublish.execute(() -> traitsPublisher.doPublish(status));
+            }
+            for (Rollup rollup : rollups) {
+                metricsPublishStage.execute(() -> metricPublisher.doSendRollupToMetricsViaRest(rollup));
+            }
         }
-
+        return traitsAccepted;
     }
 
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.hawkular.component.pinger.Traits.TraitHeader;
+
+/**
+ * Records the response characteristics of the HTTP pings to a compact binary log, so that the pinger can be
+ * benchmarked offline against production-shaped traffic replayed from the log by a stub server. Each record holds
+ * the offset of the ping from the start of the recording, the status code, the timeout flag, the duration, the size
+ * of the response body and the response headers relevant to {@link Traits}. The URL and method of a destination are
+ * written only with its first record, the following ones refer to them by index.
+ * <p>
+ * The recording is switched on by setting {@code hawkular.pinger.record.file} to the path of the log file, see
+ * {@link #activate(String)}. {@link PingDestination.Probe#tcp} and {@link PingDestination.Probe#tls} pings are not
+ * recorded.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class PingRecorder implements AutoCloseable {
+
+    /**
+     * A single recorded ping.
+     */
+    static class Recording {
+        private final long offsetMillis;
+        private final String url;
+        private final String method;
+        private final int code;
+        private final boolean timedOut;
+        private final long durationMicros;
+        private final long bodySize;
+        /** Alternating header names and values */
+        private final String[] headers;
+
+        Recording(long offsetMillis, String url, String method, int code, boolean timedOut, long durationMicros,
+                long bodySize, String[] headers) {
+            super();
+            this.offsetMillis = offsetMillis;
+            this.url = url;
+            this.method = method;
+            this.code = code;
+            this.timedOut = timedOut;
+            this.durationMicros = durationMicros;
+            this.bodySize = bodySize;
+            this.headers = headers;
+        }
+
+        /**
+         * @return the number of milliseconds between the start of the recording and the start of this ping
+         */
+        long getOffsetMillis() {
+            return offsetMillis;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        int getCode() {
+            return code;
+        }
+
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        long getDurationMicros() {
+            return durationMicros;
+        }
+
+        /**
+         * @return the number of bytes of the response body or {@value PingRecorder#NO_BODY}
+         */
+        long getBodySize() {
+            return bodySize;
+        }
+
+        /**
+         * @return the recorded response headers as alternating names and values
+         */
+        String[] getHeaders() {
+            return headers;
+        }
+    }
+
+    /** The first four bytes of a recording, {@code HPR1} */
+    static final int MAGIC = 0x48505231;
+
+    /** A value of {@link Recording#getBodySize()} for responses without a body. The value is {@value} */
+    static final long NO_BODY = -1;
+
+    private static final String[] NO_HEADERS = new String[0];
+
+    /** Read without locking on every ping, written only in {@link #activate(String)} */
+    private static volatile PingRecorder active;
+    private static Path activePath;
+
+    /**
+     * @return the recorder the pings should be recorded by or {@code null} if the recording is switched off
+     */
+    static PingRecorder getActive() {
+        return active;
+    }
+
+    /**
+     * Starts recording to the given file, overwriting it. Does nothing if the recording to the given file is active
+     * already, so that a reconfiguration does not truncate the log. The recording to any other file is stopped.
+     *
+     * @param file the path to record to or an empty string to switch the recording off
+     */
+    static synchronized void activate(String file) {
+        Path path = file.isEmpty() ? null : Paths.get(file);
+        if (path != null && path.equals(activePath)) {
+            return;
+        }
+        PingRecorder previous = active;
+        if (previous != null) {
+            active = null;
+            activePath = null;
+            previous.close();
+        }
+        if (path != null) {
+            try {
+                active = new PingRecorder(Files.newOutputStream(path), System.currentTimeMillis(), file);
+                activePath = path;
+            } catch (IOException e) {
+                Log.LOG.eCouldNotRecord(file, e);
+            }
+        }
+    }
+
+    /**
+     * Reads all records from the given {@link InputStream} and closes it.
+     *
+     * @param in the stream to read from
+     * @return the records in the order of recording
+     * @throws IOException if the stream cannot be read or if it does not contain a recording
+     */
+    static List<Recording> read(InputStream in) throws IOException {
+        List<Recording> result = new ArrayList<>();
+        List<String[]> destinations = new ArrayList<>();
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a pinger recording");
+            }
+            while (true) {
+                final long offsetMillis;
+                try {
+                    offsetMillis = data.readLong();
+                } catch (EOFException e) {
+                    return result;
+                }
+                int index = data.readInt();
+                if (index == destinations.size()) {
+                    destinations.add(new String[] { data.readUTF(), data.readUTF() });
+                }
+                String[] destination = destinations.get(index);
+                int code = data.readShort();
+                boolean timedOut = data.readBoolean();
+                long durationMicros = data.readLong();
+                long bodySize = data.readLong();
+                String[] headers = new String[data.readUnsignedByte() * 2];
+                for (int i = 0; i < headers.length; i++) {
+                    headers[i] = data.readUTF();
+                }
+                result.add(new Recording(offsetMillis, destination[0], destination[1], code, timedOut,
+                        durationMicros, bodySize, headers));
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of the given {@link HttpEntity} like {@link org.apache.http.util.EntityUtils#consumeQuietly}
+     * does, but counts the bytes.
+     *
+     * @param entity the entity to consume, possibly {@code null}
+     * @return the number of bytes consumed or {@value #NO_BODY} if there is no entity
+     */
+    static long consume(HttpEntity entity) {
+        if (entity == null) {
+            return NO_BODY;
+        }
+        long result = 0;
+        try (InputStream in = entity.getContent()) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                result += count;
+            }
+        } catch (IOException e) {
+            /* ignored like EntityUtils.consumeQuietly() does */
+        }
+        return result;
+    }
+
+    private final DataOutputStream out;
+    private final long startMillis;
+    private final String name;
+    private final Map<PingDestination, Integer> indexes = new HashMap<>();
+    private boolean failed;
+
+    /**
+     * @param out the stream to write to
+     * @param startMillis the value of {@code System.currentTimeMillis()} the offsets of the records relate to
+     * @param name the name of the recording to use in log messages
+     * @throws IOException if the header cannot be written
+     */
+    PingRecorder(OutputStream out, long startMillis, String name) throws IOException {
+        super();
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.startMillis = startMillis;
+        this.name = name;
+        this.out.writeInt(MAGIC);
+    }
+
+    /**
+     * Appends a record of a ping that has received a response.
+     *
+     * @param destination the pinged destination
+     * @param startMillis the value of {@code System.currentTimeMillis()} when the ping started
+     * @param code the status code of the response
+     * @param durationMicros the duration of the ping
+     * @param bodySize the size of the response body or {@value #NO_BODY}
+     * @param headers all response headers, only those relevant to {@link Traits} are recorded
+     */
+    void record(PingDestination destination, long startMillis, int code, long durationMicros, long bodySize,
+            Header[] headers) {
+        List<String> traitHeaders = new ArrayList<>();
+        for (Header header : headers) {
+            if (TraitHeader.fastValueOf(header.getName()) != null) {
+                traitHeaders.add(header.getName());
+                traitHeaders.add(header.getValue());
+            }
+        }
+        write(destination, startMillis, code, false, durationMicros, bodySize,
+                traitHeaders.toArray(new String[traitHeaders.size()]));
+    }
+
+    /**
+     * Appends a record of a ping that has failed without any response.
+     *
+     * @param status the result of the ping
+     * @param startMillis the value of {@code System.currentTimeMillis()} when the ping started
+     */
+    void recordFailure(PingStatus status, long startMillis) {
+        write(status.getDestination(), startMillis, status.getCode(), status.isTimedOut(),
+                (status.getTimestamp() - startMillis) * 1000, NO_BODY, NO_HEADERS);
+    }
+
+    private synchronized void write(PingDestination destination, long pingStartMillis, int code, boolean timedOut,
+            long durationMicros, long bodySize, String[] headers) {
+        if (failed) {
+            return;
+        }
+        try {
+            out.writeLong(pingStartMillis - startMillis);
+            Integer index = indexes.get(destination);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(destination, index);
+                out.writeInt(index);
+                out.writeUTF(destination.getUrl());
+                out.writeUTF(destination.getMethod());
+            } else {
+                out.writeInt(index);
+            }
+            out.writeShort(code);
+            out.writeBoolean(timedOut);
+            out.writeLong(durationMicros);
+            out.writeLong(bodySize);
+            out.writeByte(headers.length / 2);
+            for (String value : headers) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            /* report once and stop recording rather than flooding the log */
+            failed = true;
+            Log.LOG.eCouldNotRecord(name, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        /* pings that got this recorder before it was replaced are not recorded anymore */
+        failed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.LOG.eCouldNotRecord(name, e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The state of a round of pings in {@link PingerConfiguration.ScheduleMode#rounds} mode, kept in parallel arrays
+ * indexed by a dense slot ID per destination. The arrays are allocated once and reused by all subsequent rounds;
+ * they are reallocated only when the set of destinations changes. Polling a round thus needs neither a map from
+ * futures to destinations nor a list of results.
+ * <p>
+ * The slot of a destination stays the same as long as the set of destinations does not change, which allows for
+ * remembering the {@link Traits} last published for each destination and publishing new ones only when they differ.
+ * <p>
+ * Not thread safe: a round is prepared, polled and reported by the thread running
+ * {@link PingManager#scheduleWork()}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class PingRound {
+
+    /** The ping of the slot is still running */
+    private static final byte PENDING = 0;
+    /** The ping of the slot has finished and its result is available */
+    private static final byte DONE = 1;
+    /** The ping of the slot has failed without a result */
+    private static final byte FAILED = 2;
+
+    /** The slot IDs by destination */
+    private final Map<PingDestination, Integer> slots = new HashMap<>();
+
+    private PingDestination[] destinations = new PingDestination[0];
+    private Future<PingStatus>[] futures = newFutures(0);
+    private PingStatus[] results = new PingStatus[0];
+    private byte[] states = new byte[0];
+
+    /** The {@link Traits} last published for each slot */
+    private Traits[] publishedTraits = new Traits[0];
+
+    private int pending;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Future<PingStatus>[] newFutures(int size) {
+        return new Future[size];
+    }
+
+    /**
+     * Prepares a new round of pings of the given destinations. The slots of the previous round are kept if the
+     * destinations did not change, otherwise the destinations get new slots and the {@link Traits} published for the
+     * destinations that are still present are carried over.
+     *
+     * @param current the destinations to ping in the new round
+     */
+    void reset(Set<PingDestination> current) {
+        if (current.size() != destinations.length || !slots.keySet().equals(current)) {
+            PingDestination[] newDestinations = new PingDestination[current.size()];
+            Traits[] newPublishedTraits = new Traits[current.size()];
+            Map<PingDestination, Integer> newSlots = new HashMap<>(current.size() * 2);
+            int slot = 0;
+            for (PingDestination destination : current) {
+                Integer oldSlot = slots.get(destination);
+                if (oldSlot != null) {
+                    newPublishedTraits[slot] = publishedTraits[oldSlot];
+                }
+                newDestinations[slot] = destination;
+                newSlots.put(destination, slot);
+                slot++;
+            }
+            slots.clear();
+            slots.putAll(newSlots);
+            destinations = newDestinations;
+            publishedTraits = newPublishedTraits;
+            futures = newFutures(current.size());
+            results = new PingStatus[current.size()];
+            states = new byte[current.size()];
+        } else {
+            Arrays.fill(states, PENDING);
+        }
+        pending = destinations.length;
+    }
+
+    /**
+     * @return the number of slots, i.e. the number of destinations in the current round
+     */
+    int size() {
+        return destinations.length;
+    }
+
+    /**
+     * @param slot the slot ID
+     * @return the destination having the given slot
+     */
+    PingDestination getDestination(int slot) {
+        return destinations[slot];
+    }
+
+    /**
+     * @param slot the slot ID
+     * @param future the running ping of the destination having the given slot
+     */
+    void submitted(int slot, Future<PingStatus> future) {
+        futures[slot] = future;
+    }
+
+    /**
+     * @return the number of pings still running
+     */
+    int getPending() {
+        return pending;
+    }
+
+    /**
+     * Takes the results of the pings that have finished since the last invocation.
+     */
+    void collect() {
+        for (int slot = 0; slot < states.length; slot++) {
+            if (states[slot] == PENDING && futures[slot].isDone()) {
+                try {
+                    results[slot] = futures[slot].get();
+                    states[slot] = DONE;
+                } catch (CancellationException e) {
+                    Log.LOG.debugf("Ping dropped by the saturated ping stage: %s", destinations[slot].getUrl());
+                    states[slot] = FAILED;
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.LOG.eStageTaskFailed("ping", e);
+                    states[slot] = FAILED;
+                }
+                futures[slot] = null;
+                pending--;
+            }
+        }
+    }
+
+    /**
+     * Cancels the pings that are still running and sets their results to timeouts.
+     *
+     * @param now the value of {@code System.currentTimeMillis()} to use as the timestamp of the timeouts
+     * @param timeoutMillis the duration to report for the timeouts
+     */
+    void timeOutPending(long now, int timeoutMillis) {
+        for (int slot = 0; slot < states.length && pending > 0; slot++) {
+            if (states[slot] == PENDING) {
+                futures[slot].cancel(true);
+                futures[slot] = null;
+                results[slot] = PingStatus.timeout(destinations[slot], now, timeoutMillis);
+                states[slot] = DONE;
+                pending--;
+                Log.LOG.debugf("Timed out: %s", destinations[slot].getUrl());
+            }
+        }
+    }
+
+    /**
+     * @param slot the slot ID
+     * @return the result of the ping of the given slot or {@code null} if the ping failed without a result
+     */
+    PingStatus getResult(int slot) {
+        return states[slot] == DONE ? results[slot] : null;
+    }
+
+    /**
+     * Remembers the {@link Traits} of the result of the given slot as published if they differ from the ones
+     * published before.
+     *
+     * @param slot the slot ID
+     * @return {@code true} if the {@link Traits} of the result of the given slot differ from the ones published
+     *         before and should thus be published, {@code false} otherwise
+     */
+    boolean traitsChanged(int slot) {
+        Traits traits = results[slot].getTraits();
+        if (traits != null && traits.sameAs(publishedTraits[slot])) {
+            return false;
+        }
+        publishedTraits[slot] = traits;
+        return true;
+    }
+
+    /**
+     * Forgets the {@link Traits} remembered by {@link #traitsChanged(int)}, so that they are published again after
+     * the next ping.
+     *
+     * @param slot the slot ID
+     */
+    void traitsNotPublished(int slot) {
+        publishedTraits[slot] = null;
+    }
+
+    /**
+     * Drops the references to the results of the finished round so that they can be garbage collected.
+     */
+    void clearResults() {
+        Arrays.fill(results, null);
+    }
+}
@@ -26,6 +26,18 @@ package org.hawkular.component.pinger;
  */
 public class PingStatus {
 
+    /**
+     * The kind of TLS handshake performed during a ping.
+     */
+    public enum TlsHandshake {
+        /** No handshake was performed: the ping was either sent over plain HTTP or over a reused connection */
+        none,
+        /** A full handshake establishing a new TLS session */
+        full,
+        /** An abbreviated handshake resuming a cached TLS session */
+        resumed
+    }
+
     /**
      * Returns a new {@link PingStatus} with the given {@link PingDestination}, {@code timestamp},
      * {@code duration} and {@link PingStatus#timedOut} set to {@code true}.
@@ -37,7 +49,8 @@ public class PingStatus {
      * @return a new {@link PingStatus}
      */
     public static final PingStatus timeout(PingDestination destination, long timestamp, int duration) {
-        return new PingStatus(destination, 503, timestamp, duration, true, Traits.empty(timestamp));
+        return new PingStatus(destination, 503, timestamp, duration, toMicros(duration), true,
+                Traits.empty(timestamp), TlsHandshake.none, INVALID_LAG);
     }
 
     /**
@@ -55,12 +68,23 @@ public class PingStatus {
      * duration. The value is {@value} */
     public static final int INVALID_DURATION = -1;
 
+    private static long toMicros(int durationMillis) {
+        return durationMillis == INVALID_DURATION ? INVALID_DURATION : durationMillis * 1000L;
+    }
+
+    /** A value for {@link #schedulingLag} in case the ping was not scheduled with a fixed intended start time. The
+     * value is {@value} */
+    public static final int INVALID_LAG = -1;
+
     /** The destination where the ping was sent */
     private final PingDestination destination;
 
     /** Ping round trip duration in milliseconds or {@value #INVALID_DURATION} if the ping timed out */
     private final int duration;
 
+    /** Ping round trip duration in microseconds or {@value #INVALID_DURATION} if the ping timed out */
+    private final long durationMicros;
+
     /** The HTTP status code of the ping response */
     private final int code;
 
@@ -74,6 +98,12 @@ public class PingStatus {
     /** The {@link Traits} collected from the ping response */
     private final Traits traits;
 
+    /** The kind of TLS handshake performed during the ping */
+    private final TlsHandshake tlsHandshake;
+
+    /** The number of milliseconds the ping started after its intended start time or {@value #INVALID_LAG} */
+    private final int schedulingLag;
+
     /**
      * Creates a new {@link PingStatus} with {@link #timedOut} set to {@code false}.
      *
@@ -87,7 +117,25 @@ public class PingStatus {
      * @see #error(PingDestination, int, long)
      */
     public PingStatus(PingDestination destination, int code, long timestamp, int duration, Traits traits) {
-        this(destination, code, timestamp, duration, false, traits);
+        this(destination, code, timestamp, duration, toMicros(duration), false, traits, TlsHandshake.none,
+                INVALID_LAG);
+    }
+
+    /**
+     * Creates a new {@link PingStatus} with {@link #timedOut} set to {@code false}.
+     *
+     * @param destination where the ping was sent
+     * @param code the HTTP response code
+     * @param timestamp the value of {@code System.currentTimeMillis()} when the response was received or when
+     *                  the timeout or other error was detected
+     * @param durationMicros ping round trip duration in microseconds
+     * @param traits the {@link Traits} collected from the ping response
+     * @param tlsHandshake the kind of TLS handshake performed during the ping
+     */
+    public PingStatus(PingDestination destination, int code, long timestamp, long durationMicros, Traits traits,
+            TlsHandshake tlsHandshake) {
+        this(destination, code, timestamp, (int) (durationMicros / 1000), durationMicros, false, traits,
+                tlsHandshake, INVALID_LAG);
     }
 
     /**
@@ -96,20 +144,39 @@ public class PingStatus {
      * @param timestamp the value of {@code System.currentTimeMillis()} when the response was received or when
      *                  the timeout or other error was detected
      * @param duration Ping round trip duration in milliseconds or {@value #INVALID_DURATION} if the ping timed out
+     * @param durationMicros Ping round trip duration in microseconds or {@value #INVALID_DURATION} if the ping
+     *        timed out
      * @param timedOut {@code true} if the ping timed out, {@code false} otherwise
-     * @param remoteAddress
+     * @param traits the {@link Traits} collected from the ping response
+     * @param tlsHandshake the kind of TLS handshake performed during the ping
+     * @param schedulingLag the number of milliseconds the ping started after its intended start time or
+     *        {@value #INVALID_LAG}
      *
      * @see #timeout(PingDestination, long, int)
      * @see #error(PingDestination, int, long)
      */
-    private PingStatus(PingDestination destination, int code, long timestamp, int duration, boolean timedOut,
-            Traits traits) {
+    private PingStatus(PingDestination destination, int code, long timestamp, int duration, long durationMicros,
+            boolean timedOut, Traits traits, TlsHandshake tlsHandshake, int schedulingLag) {
         this.destination = destination;
         this.code = code;
         this.timestamp = timestamp;
         this.duration = duration;
+        this.durationMicros = durationMicros;
         this.timedOut = timedOut;
         this.traits = traits;
+        this.tlsHandshake = tlsHandshake;
+        this.schedulingLag = schedulingLag;
+    }
+
+    /**
+     * Returns a copy of this {@link PingStatus} with {@link #schedulingLag} set to the given value.
+     *
+     * @param schedulingLag the number of milliseconds the ping started after its intended start time
+     * @return a new {@link PingStatus}
+     */
+    public PingStatus withSchedulingLag(int schedulingLag) {
+        return new PingStatus(destination, code, timestamp, duration, durationMicros, timedOut, traits,
+                tlsHandshake, schedulingLag);
     }
 
     /**
@@ -126,6 +193,13 @@ public class PingStatus {
         return duration;
     }
 
+    /**
+     * @return ping round trip duration in microseconds or {@value #INVALID_DURATION} if the ping timed out
+     */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
     /**
      * @return {@code true} if the ping timed out, {@code false} otherwise
      */
@@ -156,6 +230,21 @@ public class PingStatus {
         return traits;
     }
 
+    /**
+     * @return the kind of TLS handshake performed during the ping
+     */
+    public TlsHandshake getTlsHandshake() {
+        return tlsHandshake;
+    }
+
+    /**
+     * @return the number of milliseconds the ping started after its intended start time or {@value #INVALID_LAG} if
+     *         the ping was not scheduled with a fixed intended start time
+     */
+    public int getSchedulingLag() {
+        return schedulingLag;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -163,9 +252,12 @@ public class PingStatus {
         result = prime * result + code;
         result = prime * result + ((destination == null) ? 0 : destination.hashCode());
         result = prime * result + duration;
+        result = prime * result + (int) (durationMicros ^ (durationMicros >>> 32));
         result = prime * result + (timedOut ? 1231 : 1237);
         result = prime * result + (int) (timestamp ^ (timestamp >>> 32));
         result = prime * result + ((traits == null) ? 0 : traits.hashCode());
+        result = prime * result + ((tlsHandshake == null) ? 0 : tlsHandshake.hashCode());
+        result = prime * result + schedulingLag;
         return result;
     }
 
@@ -187,6 +279,8 @@ public class PingStatus {
             return false;
         if (duration != other.duration)
             return false;
+        if (durationMicros != other.durationMicros)
+            return false;
         if (timedOut != other.timedOut)
             return false;
         if (timestamp != other.timestamp)
@@ -196,13 +290,19 @@ public class PingStatus {
                 return false;
         } else if (!traits.equals(other.traits))
             return false;
+        if (tlsHandshake != other.tlsHandshake)
+            return false;
+        if (schedulingLag != other.schedulingLag)
+            return false;
         return true;
     }
 
     @Override
     public String toString() {
-        return "PingStatus [destination=" + destination + ", duration=" + duration + ", code=" + code + ", timedOut="
-                + timedOut + ", timestamp=" + timestamp + ", traits=" + traits + "]";
+        return "PingStatus [destination=" + destination + ", duration=" + duration + ", durationMicros="
+                + durationMicros + ", code=" + code + ", timedOut="
+                + timedOut + ", timestamp=" + timestamp + ", traits=" + traits + ", tlsHandshake=" + tlsHandshake
+                + ", schedulingLag=" + schedulingLag + "]";
     }
 
 }
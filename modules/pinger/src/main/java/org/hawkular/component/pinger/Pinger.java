@@ -17,39 +17,26 @@
 package org.hawkular.component.pinger;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
-import java.net.Socket;
 import java.net.UnknownHostException;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
 import java.util.concurrent.Future;
 
 import javax.ejb.AsyncResult;
 import javax.ejb.Asynchronous;
 import javax.ejb.Stateless;
-import javax.net.ssl.SSLContext;
 
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.methods.RequestBuilder;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLContextBuilder;
-import org.apache.http.conn.ssl.SSLContexts;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
 
 /**
- * Bean that does the pinging. {@link #ping(PingDestination)} runs asynchronously.
+ * Bean that does the pinging. {@link #ping(PingDestination)} runs asynchronously, {@link #doPing(PingDestination)}
+ * in the calling thread.
  *
  * @author Heiko W. Rupp
  * @author Martin Večeřa
@@ -59,101 +46,105 @@ import org.apache.http.util.EntityUtils;
 @Stateless
 public class Pinger {
 
-    /** A key to use when storing and retrieving remote IP address from and to {@link HttpContext} */
-    static final String REMOTE_ADDRESS_ATTRIBUTE = Pinger.class.getPackage().getName() + ".remoteAddress";
-
-    /**
-     * A custom connection manager used by this pinger
-     */
-    private final HttpClientConnectionManager connectionManager;
+    private final PingClient pingClient;
 
     private final CloseableHttpClient client;
 
-    public Pinger() throws Exception {
-        this.connectionManager = createConnectionManager();
-        this.client = HttpClientBuilder.create().setConnectionManager(connectionManager).build();
+    private final ProbeStates probeStates;
+
+    private final SocketProber socketProber;
+
+    public Pinger() {
+        this(PingClient.getInstance());
     }
 
     /**
-     * Creates a custom {@link HttpClientConnectionManager} that will be used by this pinger. The returned connection
-     * manager accepts all SSL certificates, and stores remote IP address into {@link HttpContext} under
-     * {@link #REMOTE_ADDRESS_ATTRIBUTE}.
+     * Creates a new {@link Pinger} sending its requests through the given {@link PingClient}.
      *
-     * @return a new {@link HttpClientConnectionManager}
+     * @param pingClient the client to use
      */
-    private HttpClientConnectionManager createConnectionManager() {
-
-        PlainConnectionSocketFactory plainSf = new PlainConnectionSocketFactory() {
-            @Override
-            public Socket connectSocket(int connectTimeout, Socket socket, org.apache.http.HttpHost host,
-                    java.net.InetSocketAddress remoteAddress, java.net.InetSocketAddress localAddress,
-                    HttpContext context) throws IOException {
-                InetAddress remoteInetAddress = remoteAddress.getAddress();
-                Log.LOG.tracef("Putting remote IP address to HttpContext %s", remoteInetAddress);
-                context.setAttribute(REMOTE_ADDRESS_ATTRIBUTE, remoteInetAddress);
-                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
-            }
-        };
-
-        SSLContext tmpSslContext;
-
-        try {
-            SSLContextBuilder builder = SSLContexts.custom();
-            builder.loadTrustMaterial(null, new TrustStrategy() {
-                @Override
-                public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-                    return true;
-                }
-            });
-            tmpSslContext = builder.build();
-
-        } catch (Exception e) {
-            tmpSslContext = null;
-        }
-
-        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(tmpSslContext, null, null,
-                SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
-
-        return new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory> create()
-                .register("http", plainSf).register("https", sslSocketFactory).build());
+    Pinger(PingClient pingClient) {
+        this.pingClient = pingClient;
+        this.client = pingClient.getClient();
+        this.probeStates = pingClient.getProbeStates();
+        this.socketProber = new SocketProber(pingClient);
     }
 
     /**
-     * Performs a test request against the given {@link PingDestination}.
+     * Performs a test request against the given {@link PingDestination} asynchronously.
      *
      * @param destination the destination to ping
      * @return a {@link Future}
      */
     @Asynchronous
     public Future<PingStatus> ping(final PingDestination destination) {
+        return new AsyncResult<>(doPing(destination));
+    }
+
+    /**
+     * Performs a test request against the given {@link PingDestination} in the calling thread.
+     *
+     * @param destination the destination to ping
+     * @return the outcome of the ping
+     */
+    public PingStatus doPing(final PingDestination destination) {
         Log.LOG.debugf("About to ping %s", destination.getUrl());
-        HttpUriRequest request = RequestBuilder.create(destination.getMethod()).setUri(destination.getUrl()).build();
+        if (!destination.getProbe().isHttp()) {
+            return socketProber.probe(destination);
+        }
+        HttpUriRequest request = probeStates.newRequest(destination).setConfig(pingClient.getRequestConfig())
+                .build();
 
+        final PingRecorder recorder = PingRecorder.getActive();
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         try {
-            long start = System.currentTimeMillis();
             HttpClientContext context = HttpClientContext.create();
             try (CloseableHttpResponse httpResponse = client.execute(request, context)) {
-                InetAddress remoteAddress = (InetAddress) context.getAttribute(REMOTE_ADDRESS_ATTRIBUTE);
+                InetAddress remoteAddress = (InetAddress) context.getAttribute(PingClient.REMOTE_ADDRESS_ATTRIBUTE);
+                TlsHandshake tlsHandshake = (TlsHandshake) context.getAttribute(PingClient.TLS_HANDSHAKE_ATTRIBUTE);
                 StatusLine statusLine = httpResponse.getStatusLine();
-                EntityUtils.consumeQuietly(httpResponse.getEntity());
+                probeStates.update(destination, request.getMethod(), httpResponse);
+                long bodySize = 0;
+                if (recorder == null) {
+                    EntityUtils.consumeQuietly(httpResponse.getEntity());
+                } else {
+                    bodySize = PingRecorder.consume(httpResponse.getEntity());
+                }
+                long durationMicros = (System.nanoTime() - startNanos) / 1000;
                 long now = System.currentTimeMillis();
 
                 final int code = statusLine.getStatusCode();
-                final int duration = (int) (now - start);
+                if (recorder != null) {
+                    recorder.record(destination, start, code, durationMicros, bodySize, httpResponse.getAllHeaders());
+                }
                 Traits traits = Traits.collect(httpResponse, now, remoteAddress);
-                PingStatus result = new PingStatus(destination, code, now, duration, traits);
+                PingStatus result = new PingStatus(destination, code, now, durationMicros, traits,
+                        tlsHandshake == null ? TlsHandshake.none : tlsHandshake);
                 Log.LOG.debugf("Got status code %d from %s", code, destination.getUrl());
-                return new AsyncResult<>(result);
+                return result;
             }
         } catch (UnknownHostException e) {
             PingStatus result = PingStatus.error(destination, 404, System.currentTimeMillis());
             Log.LOG.debugf("Got UnknownHostException for %s", destination.getUrl());
-            return new AsyncResult<>(result);
+            return recordFailure(recorder, result, start);
+        } catch (InterruptedIOException e) {
+            /* connect, connection request or socket timeout */
+            long now = System.currentTimeMillis();
+            Log.LOG.debugf("Timed out: %s", destination.getUrl());
+            return recordFailure(recorder, PingStatus.timeout(destination, now, (int) (now - start)), start);
         } catch (IOException e) {
             Log.LOG.dCouldNotPingUrl(destination.getUrl(), e);
             PingStatus result = PingStatus.error(destination, 500, System.currentTimeMillis());
-            return new AsyncResult<>(result);
+            return recordFailure(recorder, result, start);
         }
 
     }
+
+    private static PingStatus recordFailure(PingRecorder recorder, PingStatus status, long start) {
+        if (recorder != null) {
+            recorder.recordFailure(status, start);
+        }
+        return status;
+    }
 }
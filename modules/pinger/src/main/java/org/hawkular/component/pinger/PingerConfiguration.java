@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
  * and other contributors as indicated by the @author tags.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -16,36 +16,653 @@
  */
 package org.hawkular.component.pinger;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hawkular.component.pinger.StageExecutor.RejectionPolicy;
+
 /**
- * A class to have the REST end point URLs in one place.
+ * A class to have the REST end point URLs and the tuning knobs of the pinger in one place. The tuning knobs are read
+ * from a configuration file and from system properties prefixed with {@value #PROPERTY_PREFIX}, see {@link #load()}.
+ * Instances are immutable; a reloaded configuration replaces the current one as a whole, see
+ * {@link PingManager#reconfigure(PingerConfiguration)}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public class PingerConfiguration {
 
-    /** The singleton */
-    private static final PingerConfiguration INSTANCE;
-    static {
-        String host = System.getProperty("jboss.bind.address", "localhost");
-        String port = System.getProperty("jboss.http.port", "8080");
-        INSTANCE = new PingerConfiguration("http://"+ host + ":"+ port + "/hawkular/metrics");
+    /**
+     * How HTTPS pings should deal with TLS connections and sessions.
+     */
+    public enum TlsMode {
+        /**
+         * Pooled connections are kept alive and reused across pings, TLS sessions are cached in an
+         * {@link javax.net.ssl.SSLContext} shared by all pings, so that new connections can resume them with an
+         * abbreviated handshake.
+         */
+        resume,
+        /**
+         * Every ping opens a new connection and performs a full TLS handshake. Useful when the cost of a cold
+         * connection is what should be measured.
+         */
+        full
     }
 
     /**
-     * @return the singleton instance
+     * How the pings and the publishing of their results are executed.
+     */
+    public enum ExecutionMode {
+        /**
+         * Using {@link javax.ejb.Asynchronous} EJB methods, i.e. all stages share the bounded async thread pool of
+         * the container.
+         */
+        ejb,
+        /**
+         * Each stage runs on its own {@link StageExecutor}, i.e. a {@link java.util.concurrent.ThreadPoolExecutor}
+         * with a fixed number of threads and a bounded queue. A task submitted to a stage whose threads are busy and
+         * whose queue is full is handled according to the {@link StageExecutor.RejectionPolicy} of the stage.
+         */
+        executors
+    }
+
+    /**
+     * When the individual destinations are pinged.
+     */
+    public enum ScheduleMode {
+        /**
+         * All destinations are pinged together in a round triggered by the container timer every 20 seconds. A
+         * round waits for its slowest ping, so a round overrunning the tick delays the next round for all
+         * destinations.
+         */
+        rounds,
+        /**
+         * Each destination is pinged on its own schedule by a {@link ContinuousScheduler}, so that slow responses
+         * of one destination do not delay the pings of other destinations.
+         */
+        continuous
+    }
+
+    /**
+     * How the pings of the individual tenants share the ping concurrency.
+     */
+    public enum DispatchMode {
+        /** The pings are started in no particular order as soon as they are due */
+        unordered,
+        /**
+         * The pings are started by a {@link FairDispatcher} that serves the tenants by weighted round-robin under
+         * the global {@link PingerConfiguration#getPingConcurrency()} limit
+         */
+        fair
+    }
+
+    /**
+     * How the status codes of the pings are delivered to the availability computation.
+     */
+    public enum StatusCodesChannel {
+        /** The status codes are sent to {@link PingerConfiguration#getStatusCodesTopic()} */
+        bus,
+        /**
+         * The status codes are handed over to an availability computation deployed in the same server through
+         * {@link LocalAvailChannel}; they are sent to the bus if there is no such computation or if it is saturated
+         */
+        local
+    }
+
+    /** The prefix of the system properties and of the keys in the configuration file read by this configuration */
+    public static final String PROPERTY_PREFIX = "hawkular.pinger.";
+
+    /** The system property holding the path to the configuration file */
+    public static final String CONFIG_FILE_PROPERTY = PROPERTY_PREFIX + "config-file";
+
+    /** The name of the configuration file looked up in {@code jboss.server.config.dir} by default */
+    public static final String DEFAULT_CONFIG_FILE_NAME = "hawkular-pinger.properties";
+
+    /**
+     * The keys (without {@link #PROPERTY_PREFIX}) whose values are used only when the pinger starts so that changing
+     * them through {@link PingManager#reconfigure(PingerConfiguration)} has no effect before the next restart
+     */
+    static final Set<String> RESTART_REQUIRED_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "tls.mode", "tls.session-cache-size", "tls.session-timeout", "history.slots", "rollup.windows")));
+
+    /** The current configuration */
+    private static volatile PingerConfiguration instance = loadOrDefaults();
+
+    /**
+     * @return the current configuration
      */
     public static PingerConfiguration getInstance() {
-        return INSTANCE;
+        return instance;
+    }
+
+    /**
+     * Makes the given {@link PingerConfiguration} the current one. To be called only by
+     * {@link PingManager#reconfigure(PingerConfiguration)} that applies the new values to the running components.
+     *
+     * @param configuration the new current configuration
+     */
+    static void setInstance(PingerConfiguration configuration) {
+        instance = configuration;
+    }
+
+    /**
+     * Used on startup where an invalid configuration must not prevent the pinger from being deployed.
+     * {@link PingerConfigurationEndpoint#reload()} uses {@link #load()} so that an invalid configuration is rejected.
+     *
+     * @return the result of {@link #load()} or the default configuration if {@link #load()} fails
+     */
+    static PingerConfiguration loadOrDefaults() {
+        try {
+            return load();
+        } catch (IllegalArgumentException e) {
+            Log.LOG.eInvalidConfiguration(e);
+            return new PingerConfiguration(new Properties());
+        }
+    }
+
+    /**
+     * Reads a new {@link PingerConfiguration} from the configuration file overlaid by the system properties. The
+     * configuration file is the one set by {@value #CONFIG_FILE_PROPERTY} system property or
+     * {@value #DEFAULT_CONFIG_FILE_NAME} in {@code jboss.server.config.dir} if it exists.
+     *
+     * @return a new validated {@link PingerConfiguration}
+     * @throws IllegalArgumentException if the configuration file cannot be read or if any of the values is invalid
+     */
+    public static PingerConfiguration load() {
+        Properties properties = new Properties();
+        String path = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (path == null && System.getProperty("jboss.server.config.dir") != null) {
+            Path defaultPath = Paths.get(System.getProperty("jboss.server.config.dir"), DEFAULT_CONFIG_FILE_NAME);
+            path = Files.exists(defaultPath) ? defaultPath.toString() : null;
+        }
+        if (path != null) {
+            try (Reader in = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not read pinger configuration file [" + path + "]", e);
+            }
+        }
+        properties.putAll(System.getProperties());
+        return new PingerConfiguration(properties);
+    }
+
+    /**
+     * Reads the values out of {@link Properties}, remembering the effective values and the invalid ones.
+     */
+    private static final class ValueReader {
+        private final Properties properties;
+        private final Map<String, String> effectiveValues = new TreeMap<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private ValueReader(Properties properties) {
+            super();
+            this.properties = properties;
+        }
+
+        private String getString(String key, String defaultValue) {
+            String value = properties.getProperty(PROPERTY_PREFIX + key);
+            value = value == null ? defaultValue : value.trim();
+            effectiveValues.put(key, value);
+            return value;
+        }
+
+        private int toInt(String key, String value, int defaultValue, int min) {
+            try {
+                int result = Integer.parseInt(value.trim());
+                if (result >= min) {
+                    return result;
+                }
+            } catch (NumberFormatException e) {
+                /* reported below */
+            }
+            errors.add(PROPERTY_PREFIX + key + " must be an integer >= " + min + ", found [" + value + "]");
+            return defaultValue;
+        }
+
+        private int getInt(String key, int defaultValue, int min) {
+            return toInt(key, getString(key, String.valueOf(defaultValue)), defaultValue, min);
+        }
+
+        private <E extends Enum<E>> E getEnum(String key, E defaultValue) {
+            String value = getString(key, defaultValue.name());
+            for (E e : defaultValue.getDeclaringClass().getEnumConstants()) {
+                if (e.name().equals(value)) {
+                    return e;
+                }
+            }
+            errors.add(PROPERTY_PREFIX + key + " must be one of "
+                    + Arrays.toString(defaultValue.getDeclaringClass().getEnumConstants()) + ", found [" + value
+                    + "]");
+            return defaultValue;
+        }
+
+        private int[] getInts(String key, String defaultValue, int min) {
+            String value = getString(key, defaultValue);
+            if (value.isEmpty()) {
+                return new int[0];
+            }
+            String[] values = value.split(",");
+            int[] result = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = toInt(key, values[i], min, min);
+            }
+            return result;
+        }
+
+        private Map<String, Integer> getIntMap(String key, int min) {
+            String value = getString(key, "");
+            if (value.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, Integer> result = new HashMap<>();
+            for (String entry : value.split(",")) {
+                int eqPos = entry.indexOf('=');
+                if (eqPos < 0) {
+                    errors.add(PROPERTY_PREFIX + key + " must be a list of <key>=<value> pairs, found [" + entry
+                            + "]");
+                } else {
+                    result.put(entry.substring(0, eqPos).trim(),
+                            toInt(key, entry.substring(eqPos + 1), min, min));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        }
     }
 
     private final String metricsBaseUri;
+    private final TlsMode tlsMode;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeoutSeconds;
+    private final int maxConnections;
+    private final int maxConnectionsPerOrigin;
+    private final int connectionIdleTimeoutSeconds;
+    private final int warmUpConcurrency;
+    private final ExecutionMode executionMode;
+    private final int pingConcurrency;
+    private final int metricsPublishConcurrency;
+    private final int traitsPublishConcurrency;
+    private final int pingQueueSize;
+    private final RejectionPolicy pingRejectionPolicy;
+    private final int metricsPublishQueueSize;
+    private final RejectionPolicy metricsPublishRejectionPolicy;
+    private final int traitsPublishQueueSize;
+    private final RejectionPolicy traitsPublishRejectionPolicy;
+    private final ScheduleMode scheduleMode;
+    private final int scheduleIntervalMillis;
+    private final int roundsCount;
+    private final int roundsWaitMillis;
+    private final int pingTimeoutMillis;
+    private final int probeFullGetEvery;
+    private final int historySlots;
+    private final int[] rollupWindowsSeconds;
+    private final DispatchMode dispatchMode;
+    private final Map<String, Integer> tenantWeights;
+    private final int tenantDefaultWeight;
+    private final int tenantMaxConcurrency;
+    private final String alertSink;
+    private final String alertTopic;
+    private final String recordFile;
+    private final String statusCodesTopic;
+    private final StatusCodesChannel statusCodesChannel;
 
-    private PingerConfiguration(String metricsBaseUri) {
+    /** The values in effect by key without {@link #PROPERTY_PREFIX} */
+    private final Map<String, String> effectiveValues;
+
+    /**
+     * Creates a new {@link PingerConfiguration} out of the given {@link Properties}.
+     *
+     * @param properties typically {@link System#getProperties()}
+     * @throws IllegalArgumentException if any of the values is invalid
+     */
+    PingerConfiguration(Properties properties) {
         super();
-        this.metricsBaseUri = metricsBaseUri;
+        String host = properties.getProperty("jboss.bind.address", "localhost");
+        String port = properties.getProperty("jboss.http.port", "8080");
+        this.metricsBaseUri = "http://" + host + ":" + port + "/hawkular/metrics";
+
+        ValueReader reader = new ValueReader(properties);
+        this.tlsMode = reader.getEnum("tls.mode", TlsMode.resume);
+        this.tlsSessionCacheSize = reader.getInt("tls.session-cache-size", 10000, 0);
+        this.tlsSessionTimeoutSeconds = reader.getInt("tls.session-timeout", 3600, 0);
+        this.maxConnections = reader.getInt("connections.max", 200, 1);
+        this.maxConnectionsPerOrigin = reader.getInt("connections.max-per-origin", 4, 1);
+        this.connectionIdleTimeoutSeconds = reader.getInt("connections.idle-timeout", 60, 1);
+        this.warmUpConcurrency = reader.getInt("warmup.concurrency", 10, 0);
+        this.executionMode = reader.getEnum("execution.mode", ExecutionMode.ejb);
+        this.pingConcurrency = reader.getInt("ping.concurrency", 200, 1);
+        this.metricsPublishConcurrency = reader.getInt("metrics-publish.concurrency", 50, 1);
+        this.traitsPublishConcurrency = reader.getInt("traits-publish.concurrency", 20, 1);
+        this.pingQueueSize = reader.getInt("ping.queue-size", 0, 0);
+        this.pingRejectionPolicy = reader.getEnum("ping.rejection", RejectionPolicy.block);
+        this.metricsPublishQueueSize = reader.getInt("metrics-publish.queue-size", 10000, 0);
+        this.metricsPublishRejectionPolicy = reader.getEnum("metrics-publish.rejection", RejectionPolicy.block);
+        this.traitsPublishQueueSize = reader.getInt("traits-publish.queue-size", 1000, 0);
+        this.traitsPublishRejectionPolicy = reader.getEnum("traits-publish.rejection", RejectionPolicy.drop);
+        this.scheduleMode = reader.getEnum("schedule.mode", ScheduleMode.rounds);
+        this.scheduleIntervalMillis = reader.getInt("schedule.interval", 20000, 1);
+        this.roundsCount = reader.getInt("rounds.count", 15, 1);
+        this.roundsWaitMillis = reader.getInt("rounds.wait", 500, 1);
+        this.pingTimeoutMillis = reader.getInt("ping.timeout", 7500, 1);
+        this.probeFullGetEvery = reader.getInt("probe.full-get-every", 10, 1);
+        this.historySlots = reader.getInt("history.slots", 64, 1);
+        this.rollupWindowsSeconds = reader.getInts("rollup.windows", "", 1);
+        this.dispatchMode = reader.getEnum("ping.dispatch", DispatchMode.unordered);
+        this.tenantWeights = reader.getIntMap("tenant.weights", 1);
+        this.tenantDefaultWeight = reader.getInt("tenant.default-weight", 1, 1);
+        this.tenantMaxConcurrency = reader.getInt("tenant.max-concurrency", pingConcurrency, 1);
+        this.alertSink = reader.getString("alert.sink", AlertSink.BUS);
+        this.alertTopic = reader.getString("alert.topic", "HawkularPingerAlerts");
+        this.recordFile = reader.getString("record.file", "");
+        this.statusCodesTopic = reader.getString("status-codes.topic", "HawkularStatusCodes");
+        this.statusCodesChannel = reader.getEnum("status-codes.channel", StatusCodesChannel.bus);
+
+        if (!reader.errors.isEmpty()) {
+            throw new IllegalArgumentException("Invalid pinger configuration: " + reader.errors);
+        }
+        this.effectiveValues = Collections.unmodifiableMap(reader.effectiveValues);
+    }
+
+    /**
+     * @return the values in effect by key without {@link #PROPERTY_PREFIX}, including the default ones
+     */
+    public Map<String, String> getEffectiveValues() {
+        return effectiveValues;
+    }
+
+    /**
+     * @param other the configuration to compare with
+     * @return the keys from {@link #RESTART_REQUIRED_KEYS} whose values differ in this and the {@code other}
+     *         configuration
+     */
+    public List<String> getChangesRequiringRestart(PingerConfiguration other) {
+        List<String> result = new ArrayList<>();
+        for (String key : RESTART_REQUIRED_KEYS) {
+            if (!Objects.equals(effectiveValues.get(key), other.effectiveValues.get(key))) {
+                result.add(key);
+            }
+        }
+        Collections.sort(result);
+        return result;
     }
 
     public String getMetricsBaseUri() {
         return metricsBaseUri;
     }
+
+    /**
+     * @return the {@link TlsMode} to use for HTTPS pings
+     */
+    public TlsMode getTlsMode() {
+        return tlsMode;
+    }
+
+    /**
+     * @return the maximal number of TLS sessions kept in the client session cache, {@code 0} means no limit
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * @return the number of seconds after which a cached TLS session cannot be resumed anymore
+     */
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+
+    /**
+     * @return the maximal number of connections held in the ping connection pool
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the maximal number of pooled connections to a single origin (scheme, host and port)
+     */
+    public int getMaxConnectionsPerOrigin() {
+        return maxConnectionsPerOrigin;
+    }
+
+    /**
+     * @return the number of seconds after which idle pooled connections are evicted from the ping connection pool
+     */
+    public int getConnectionIdleTimeoutSeconds() {
+        return connectionIdleTimeoutSeconds;
+    }
+
+    /**
+     * @return the maximal number of origins whose connections are warmed up in parallel by {@link ConnectionWarmer}
+     *         or {@code 0} if the warm-up is disabled
+     */
+    public int getWarmUpConcurrency() {
+        return warmUpConcurrency;
+    }
+
+    /**
+     * @return how the pings and the publishing of their results are executed
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return the maximal number of concurrent pings, i.e. the number of threads of the ping {@link StageExecutor} in
+     *         {@link ExecutionMode#executors} mode, the global concurrency limit of the {@link FairDispatcher} in
+     *         {@link DispatchMode#fair} mode and the number of threads of the {@link ContinuousScheduler} in
+     *         {@link ScheduleMode#continuous} mode unless the pings are handed over to the {@link FairDispatcher}
+     */
+    public int getPingConcurrency() {
+        return pingConcurrency;
+    }
+
+    /**
+     * @return the maximal number of concurrent submissions to Hawkular Metrics in {@link ExecutionMode#executors}
+     *         mode
+     */
+    public int getMetricsPublishConcurrency() {
+        return metricsPublishConcurrency;
+    }
+
+    /**
+     * @return the maximal number of concurrent updates of traits in Hawkular Inventory in
+     *         {@link ExecutionMode#executors} mode
+     */
+    public int getTraitsPublishConcurrency() {
+        return traitsPublishConcurrency;
+    }
+
+    /**
+     * @return the maximal number of pings waiting for a thread of the ping stage in {@link ExecutionMode#executors}
+     *         mode
+     */
+    public int getPingQueueSize() {
+        return pingQueueSize;
+    }
+
+    /**
+     * @return what happens with pings submitted to the saturated ping stage in {@link ExecutionMode#executors} mode
+     */
+    public RejectionPolicy getPingRejectionPolicy() {
+        return pingRejectionPolicy;
+    }
+
+    /**
+     * @return the maximal number of submissions waiting for a thread of the metrics publishing stage in
+     *         {@link ExecutionMode#executors} mode
+     */
+    public int getMetricsPublishQueueSize() {
+        return metricsPublishQueueSize;
+    }
+
+    /**
+     * @return what happens with submissions to the saturated metrics publishing stage in
+     *         {@link ExecutionMode#executors} mode
+     */
+    public RejectionPolicy getMetricsPublishRejectionPolicy() {
+        return metricsPublishRejectionPolicy;
+    }
+
+    /**
+     * @return the maximal number of traits updates waiting for a thread of the traits publishing stage in
+     *         {@link ExecutionMode#executors} mode
+     */
+    public int getTraitsPublishQueueSize() {
+        return traitsPublishQueueSize;
+    }
+
+    /**
+     * @return what happens with traits updates submitted to the saturated traits publishing stage in
+     *         {@link ExecutionMode#executors} mode
+     */
+    public RejectionPolicy getTraitsPublishRejectionPolicy() {
+        return traitsPublishRejectionPolicy;
+    }
+
+    /**
+     * @return when the individual destinations are pinged
+     */
+    public ScheduleMode getScheduleMode() {
+        return scheduleMode;
+    }
+
+    /**
+     * @return the number of milliseconds between two consecutive pings of a destination in
+     *         {@link ScheduleMode#continuous} mode
+     */
+    public int getScheduleIntervalMillis() {
+        return scheduleIntervalMillis;
+    }
+
+    /**
+     * @return the number of times a round in {@link ScheduleMode#rounds} mode checks for finished pings before it
+     *         reports the unfinished ones as timed out
+     */
+    public int getRoundsCount() {
+        return roundsCount;
+    }
+
+    /**
+     * @return the number of milliseconds a round in {@link ScheduleMode#rounds} mode waits between two checks for
+     *         finished pings
+     */
+    public int getRoundsWaitMillis() {
+        return roundsWaitMillis;
+    }
+
+    /**
+     * @return rough timeout in milliseconds after which the unfinished pings of a round in
+     *         {@link ScheduleMode#rounds} mode are cancelled and reported as timed out
+     */
+    public int getRoundsTimeoutMillis() {
+        return roundsCount * roundsWaitMillis;
+    }
+
+    /**
+     * @return the number of milliseconds after which connecting, waiting for a pooled connection or waiting for
+     *         response data times out
+     */
+    public int getPingTimeoutMillis() {
+        return pingTimeoutMillis;
+    }
+
+    /**
+     * @return every how many pings a destination with {@link PingDestination.Probe#head} is pinged with a
+     *         {@code GET} request
+     */
+    public int getProbeFullGetEvery() {
+        return probeFullGetEvery;
+    }
+
+    /**
+     * @return the number of the most recent ping results kept in {@link PingHistory} per destination
+     */
+    public int getHistorySlots() {
+        return historySlots;
+    }
+
+    /**
+     * @return the lengths in seconds of the windows over which {@link LatencyRollups} computes the duration
+     *         percentiles, such as {@code 60,300,3600}; empty by default, which disables the rollups
+     */
+    public int[] getRollupWindowsSeconds() {
+        return rollupWindowsSeconds.clone();
+    }
+
+    /**
+     * @return how the pings of the individual tenants share the ping concurrency
+     */
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * @param tenantId the tenant whose weight should be returned
+     * @return the number of pings the given tenant may start in a single round of the {@link FairDispatcher}
+     */
+    public int getTenantWeight(String tenantId) {
+        Integer result = tenantWeights.get(tenantId);
+        return result == null ? tenantDefaultWeight : result.intValue();
+    }
+
+    /**
+     * @return the maximal number of concurrent pings of a single tenant in {@link DispatchMode#fair} mode
+     */
+    public int getTenantMaxConcurrency() {
+        return tenantMaxConcurrency;
+    }
+
+    /**
+     * @return {@value AlertSink#BUS}, {@value AlertSink#LOG} or the name of a class implementing {@link AlertSink},
+     *         see {@link AlertSink#create(String, String)}
+     */
+    public String getAlertSink() {
+        return alertSink;
+    }
+
+    /**
+     * @return the name of the Hawkular Bus topic the {@link BusAlertSink} sends the {@link AlertEvent}s to
+     */
+    public String getAlertTopic() {
+        return alertTopic;
+    }
+
+    /**
+     * @return the path of the file the {@link PingRecorder} records the pings to or an empty string if the pings
+     *         should not be recorded
+     */
+    public String getRecordFile() {
+        return recordFile;
+    }
+
+    /**
+     * @return the name of the Hawkular Bus topic the status codes of the pings are sent to, see
+     *         {@link MetricPublisher#doSendStatusCodeToBus(PingStatus)}; an empty string if the status codes should
+     *         not be sent. The default {@code HawkularStatusCodes} topic carries only status codes, unlike
+     *         {@code HawkularMetricData} where Hawkular Metrics republishes all stored data points
+     */
+    public String getStatusCodesTopic() {
+        return statusCodesTopic;
+    }
+
+    /**
+     * @return how the status codes of the pings are delivered to the availability computation
+     */
+    public StatusCodesChannel getStatusCodesChannel() {
+        return statusCodesChannel;
+    }
 }
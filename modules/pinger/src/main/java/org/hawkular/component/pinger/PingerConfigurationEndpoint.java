@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * Exposes the current {@link PingerConfiguration} and lets operators apply changes of the configuration file or of
+ * the system properties without redeploying the pinger.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Stateless
+@Path("/config")
+@Produces(APPLICATION_JSON)
+public class PingerConfigurationEndpoint {
+
+    @EJB
+    private PingManager pingManager;
+
+    /**
+     * @return the values in effect by key without {@link PingerConfiguration#PROPERTY_PREFIX}
+     */
+    @GET
+    @Path("/")
+    public Response getConfiguration() {
+        return Response.ok(PingerConfiguration.getInstance().getEffectiveValues()).build();
+    }
+
+    /**
+     * Reads the configuration anew using {@link PingerConfiguration#load()} and applies it. An invalid configuration
+     * is rejected as a whole and the current one stays in effect. Only users in the {@code admin} role may reload the
+     * configuration, see {@code web.xml}.
+     *
+     * @return the new values in effect and the keys whose changes require a restart of the pinger or a
+     *         {@code 400 Bad Request} with the validation errors
+     */
+    @POST
+    @Path("/reload")
+    public Response reload() {
+        PingerConfiguration configuration;
+        try {
+            configuration = PingerConfiguration.load();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        List<String> restartRequired = pingManager.reconfigure(configuration);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("effectiveValues", configuration.getEffectiveValues());
+        result.put("restartRequired", restartRequired);
+        return Response.ok(result).build();
+    }
+}
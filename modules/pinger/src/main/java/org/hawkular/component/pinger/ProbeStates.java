@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.RequestBuilder;
+import org.hawkular.component.pinger.PingDestination.Probe;
+
+/**
+ * Remembers the cache validators ({@code ETag} and {@code Last-Modified}) and the {@code HEAD} support of the
+ * destinations pinged with {@link Probe#conditional} or {@link Probe#head} and builds the ping requests accordingly.
+ * Destinations pinged with {@link Probe#full} or with another method than {@code GET} have no state here.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class ProbeStates {
+
+    private static final String GET = "GET";
+    private static final String HEAD = "HEAD";
+
+    /**
+     * The probe related state of a single destination.
+     */
+    private static final class State {
+        private static final byte HEAD_UNKNOWN = 0;
+        private static final byte HEAD_SUPPORTED = 1;
+        private static final byte HEAD_UNSUPPORTED = 2;
+
+        private String etag;
+        private String lastModified;
+
+        /** The status code of the last {@code GET} response or {@code 0} if there was none yet */
+        private int lastGetCode;
+        private int pingsSinceGet;
+        private byte headSupport = HEAD_UNKNOWN;
+
+        private synchronized RequestBuilder newRequest(PingDestination destination, int fullGetEvery) {
+            if (destination.getProbe() == Probe.head && lastGetCode != 0 && headSupport != HEAD_UNSUPPORTED
+                    && pingsSinceGet < fullGetEvery - 1) {
+                return RequestBuilder.head().setUri(destination.getUrl());
+            }
+            RequestBuilder result = RequestBuilder.get().setUri(destination.getUrl());
+            if (etag != null) {
+                result.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                result.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+            return result;
+        }
+
+        private synchronized void update(String method, HttpResponse response) {
+            int code = response.getStatusLine().getStatusCode();
+            if (HEAD.equals(method)) {
+                pingsSinceGet++;
+                if (code == HttpStatus.SC_METHOD_NOT_ALLOWED || code == HttpStatus.SC_NOT_IMPLEMENTED
+                        || (headSupport == HEAD_UNKNOWN && (code < 400) != (lastGetCode < 400))) {
+                    headSupport = HEAD_UNSUPPORTED;
+                } else {
+                    headSupport = HEAD_SUPPORTED;
+                }
+                return;
+            }
+            lastGetCode = code;
+            pingsSinceGet = 0;
+            if (code == HttpStatus.SC_OK) {
+                etag = value(response.getFirstHeader(HttpHeaders.ETAG));
+                lastModified = value(response.getFirstHeader(HttpHeaders.LAST_MODIFIED));
+            } else if (code != HttpStatus.SC_NOT_MODIFIED) {
+                etag = null;
+                lastModified = null;
+            }
+        }
+
+        private static String value(Header header) {
+            return header == null ? null : header.getValue();
+        }
+    }
+
+    private final ConcurrentMap<PingDestination, State> states = new ConcurrentHashMap<>();
+
+    /** Every how many pings a {@link Probe#head} destination is pinged with a {@code GET} request */
+    private volatile int fullGetEvery;
+
+    /**
+     * @param fullGetEvery every how many pings a {@link Probe#head} destination is pinged with a {@code GET} request
+     */
+    ProbeStates(int fullGetEvery) {
+        super();
+        this.fullGetEvery = fullGetEvery;
+    }
+
+    /**
+     * @param fullGetEvery every how many pings a {@link Probe#head} destination is pinged with a {@code GET} request
+     */
+    void setFullGetEvery(int fullGetEvery) {
+        this.fullGetEvery = fullGetEvery;
+    }
+
+    private static boolean hasState(PingDestination destination) {
+        return (destination.getProbe() == Probe.conditional || destination.getProbe() == Probe.head)
+                && GET.equals(destination.getMethod());
+    }
+
+    /**
+     * @param destination the destination to ping
+     * @return a {@link RequestBuilder} with the method and headers to use for the next ping of the given
+     *         {@code destination}
+     */
+    RequestBuilder newRequest(PingDestination destination) {
+        if (!hasState(destination)) {
+            return RequestBuilder.create(destination.getMethod()).setUri(destination.getUrl());
+        }
+        return states.computeIfAbsent(destination, d -> new State()).newRequest(destination, fullGetEvery);
+    }
+
+    /**
+     * Stores the validators from the given {@code response} and evaluates the {@code HEAD} support.
+     *
+     * @param destination the pinged destination
+     * @param method the method of the ping request
+     * @param response the response to the ping request
+     */
+    void update(PingDestination destination, String method, HttpResponse response) {
+        if (hasState(destination)) {
+            states.computeIfAbsent(destination, d -> new State()).update(method, response);
+        }
+    }
+
+    /**
+     * Forgets the states of the destinations that are not contained in the given {@link Collection}.
+     *
+     * @param destinations the destinations still being pinged
+     */
+    void retainAll(Collection<PingDestination> destinations) {
+        states.keySet().retainAll(destinations);
+    }
+
+    /**
+     * @return the number of destinations having a state
+     */
+    int size() {
+        return states.size();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.client.config.RequestConfig;
+import org.hawkular.component.pinger.PingDestination.Probe;
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
+import org.hawkular.component.pinger.PingerConfiguration.TlsMode;
+
+/**
+ * Performs the {@link Probe#tcp} and {@link Probe#tls} pings that only open a connection to the host and port of the
+ * destination URL, optionally perform a TLS handshake and close the connection without sending any request. The
+ * results use the same codes as the HTTP pings performed by {@link Pinger}: {@code 200} if the connection (and the
+ * handshake) succeeded, {@code 404} if the host is unknown and {@code 500} for other failures.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+class SocketProber {
+
+    private static final String TLS_1_3 = "TLSv1.3";
+
+    private final PingClient pingClient;
+
+    /**
+     * @param pingClient the client to take the {@link SSLContext}, the {@link TlsMode} and the timeouts from
+     */
+    SocketProber(PingClient pingClient) {
+        super();
+        this.pingClient = pingClient;
+    }
+
+    /**
+     * Returns the port to connect to: the port of the URL if it has one, otherwise {@code 443} for {@code https}
+     * URLs and {@link Probe#tls}, and {@code 80} for all others.
+     *
+     * @param uri the URL of the destination
+     * @param probe the probe of the destination
+     * @return the port to connect to
+     */
+    static int getPort(URI uri, Probe probe) {
+        if (uri.getPort() > 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) || probe == Probe.tls ? 443 : 80;
+    }
+
+    /**
+     * Connects to the given {@link PingDestination} in the calling thread.
+     *
+     * @param destination a destination with {@link Probe#tcp} or {@link Probe#tls}
+     * @return the outcome of the ping
+     */
+    PingStatus probe(PingDestination destination) {
+        final URI uri;
+        try {
+            uri = new URI(destination.getUrl());
+        } catch (URISyntaxException e) {
+            Log.LOG.dCouldNotPingUrl(destination.getUrl(), e);
+            return PingStatus.error(destination, 500, System.currentTimeMillis());
+        }
+        final Probe probe = destination.getProbe();
+        final RequestConfig requestConfig = pingClient.getRequestConfig();
+
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        try {
+            InetSocketAddress address = new InetSocketAddress(uri.getHost(), getPort(uri, probe));
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(uri.getHost());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(address, requestConfig.getConnectTimeout());
+                if (probe == Probe.tcp) {
+                    long durationMicros = (System.nanoTime() - startNanos) / 1000;
+                    long now = System.currentTimeMillis();
+                    Log.LOG.debugf("Connected to %s", destination.getUrl());
+                    return new PingStatus(destination, 200, now, durationMicros,
+                            new Traits(now, address.getAddress(), null, null), TlsHandshake.none);
+                }
+                SSLContext sslContext = pingClient.getSslContext();
+                if (sslContext == null) {
+                    throw new IOException("No SSLContext available");
+                }
+                if (pingClient.getTlsMode() == TlsMode.full) {
+                    PingClient.invalidateSessions(sslContext);
+                }
+                socket.setSoTimeout(requestConfig.getSocketTimeout());
+                /* the host and port identify the session to resume */
+                try (SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(socket,
+                        uri.getHost(), address.getPort(), true)) {
+                    sslSocket.startHandshake();
+                    long durationMicros = (System.nanoTime() - startNanos) / 1000;
+                    long now = System.currentTimeMillis();
+                    SSLSession session = sslSocket.getSession();
+                    TlsHandshake tlsHandshake = session.getCreationTime() < start ? TlsHandshake.resumed
+                            : TlsHandshake.full;
+                    if (TLS_1_3.equals(session.getProtocol()) && pingClient.getTlsMode() == TlsMode.resume) {
+                        awaitSessionTicket(sslSocket, now - start);
+                    }
+                    Log.LOG.debugf("Handshake with %s was %s", destination.getUrl(), tlsHandshake);
+                    return new PingStatus(destination, 200, now, durationMicros,
+                            new Traits(now, address.getAddress(), null, null, session.getProtocol()),
+                            tlsHandshake);
+                }
+            }
+        } catch (UnknownHostException e) {
+            Log.LOG.debugf("Got UnknownHostException for %s", destination.getUrl());
+            return PingStatus.error(destination, 404, System.currentTimeMillis());
+        } catch (InterruptedIOException e) {
+            /* connect or handshake timeout */
+            long now = System.currentTimeMillis();
+            Log.LOG.debugf("Timed out: %s", destination.getUrl());
+            return PingStatus.timeout(destination, now, (int) (now - start));
+        } catch (IOException | IllegalArgumentException e) {
+            Log.LOG.dCouldNotPingUrl(destination.getUrl(), e);
+            return PingStatus.error(destination, 500, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * With TLS 1.3, the server sends the ticket for resuming the session only after the handshake and the ticket is
+     * processed when reading from the socket. Therefore we read for at most about as long as the handshake took, so
+     * that the next ping can resume the session. The read is not part of the measured duration.
+     *
+     * @param sslSocket the socket that has just finished its handshake
+     * @param handshakeMillis how long the connect and the handshake took
+     */
+    private static void awaitSessionTicket(SSLSocket sslSocket, long handshakeMillis) {
+        try {
+            sslSocket.setSoTimeout((int) Math.max(1, handshakeMillis));
+            sslSocket.getInputStream().read();
+        } catch (IOException e) {
+            /* a timeout is expected, the session ticket has been processed anyway if it arrived */
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor dedicated to a single stage of the pinger pipeline (pinging, publishing to metrics, publishing traits).
+ * The tasks run on threads of their own stage so that blocking I/O in one stage cannot starve the other stages. At
+ * most {@code concurrency} tasks run at once and at most {@code queueSize} further tasks wait in a bounded queue. A
+ * task submitted to a saturated stage is handled according to the {@link RejectionPolicy} of the stage.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class StageExecutor {
+
+    /**
+     * What happens with a task submitted when all threads of the stage are busy and its queue is full.
+     */
+    public enum RejectionPolicy {
+        /** The submitting thread waits until there is space in the queue */
+        block,
+        /** The task is not run; the {@link Future} returned by {@link StageExecutor#submit(Callable)} is cancelled */
+        drop,
+        /** The task is run in the submitting thread */
+        caller
+    }
+
+    /**
+     * A snapshot of the sizing and saturation of a {@link StageExecutor}.
+     */
+    public static class Statistics {
+        private final String name;
+        private final int concurrency;
+        private final int queueCapacity;
+        private final RejectionPolicy rejectionPolicy;
+        private final int active;
+        private final int queued;
+        private final long completed;
+        private final long saturated;
+
+        Statistics(String name, int concurrency, int queueCapacity, RejectionPolicy rejectionPolicy, int active,
+                int queued, long completed, long saturated) {
+            super();
+            this.name = name;
+            this.concurrency = concurrency;
+            this.queueCapacity = queueCapacity;
+            this.rejectionPolicy = rejectionPolicy;
+            this.active = active;
+            this.queued = queued;
+            this.completed = completed;
+            this.saturated = saturated;
+        }
+
+        /**
+         * @return the name of the stage
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the maximal number of tasks running concurrently
+         */
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        /**
+         * @return the maximal number of tasks waiting for a thread
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * @return what happens with tasks submitted to the saturated stage
+         */
+        public RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        /**
+         * @return the number of tasks running at the time of the snapshot
+         */
+        public int getActive() {
+            return active;
+        }
+
+        /**
+         * @return the number of tasks waiting for a thread at the time of the snapshot
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        /**
+         * @return the number of tasks completed since the stage was started
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the number of tasks submitted to the saturated stage since the stage was started, i.e. the number
+         *         of tasks that were blocked, dropped or run by the caller depending on {@link #getRejectionPolicy()}
+         */
+        public long getSaturated() {
+            return saturated;
+        }
+    }
+
+    private final String name;
+    private final int concurrency;
+    private final int queueSize;
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+
+    /** The number of tasks submitted to the saturated stage since the stage was started */
+    private final AtomicLong saturated = new AtomicLong();
+
+    /** The number of tasks submitted to the saturated stage since the last {@link #drainSaturated()} */
+    private final AtomicLong saturatedSinceDrain = new AtomicLong();
+
+    /**
+     * Creates a stage without a queue that blocks the submitting thread while {@code concurrency} tasks are running.
+     *
+     * @param name the name of the stage, used in thread names
+     * @param concurrency the maximal number of tasks running concurrently
+     */
+    public StageExecutor(final String name, int concurrency) {
+        this(name, concurrency, 0, RejectionPolicy.block);
+    }
+
+    /**
+     * @param name the name of the stage, used in thread names
+     * @param concurrency the maximal number of tasks running concurrently
+     * @param queueSize the maximal number of tasks waiting for a thread
+     * @param rejectionPolicy what happens with tasks submitted when {@code concurrency} tasks are running and
+     *        {@code queueSize} tasks are waiting
+     */
+    public StageExecutor(final String name, int concurrency, int queueSize, RejectionPolicy rejectionPolicy) {
+        super();
+        this.name = name;
+        this.concurrency = concurrency;
+        this.queueSize = queueSize;
+        this.rejectionPolicy = rejectionPolicy;
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize)
+                : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, queue,
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread result = new Thread(r, "hawkular-pinger-" + name + "-" + counter.incrementAndGet());
+                        result.setDaemon(true);
+                        return result;
+                    }
+                }, new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Pinger stage " + name + " has been shut down");
+                        }
+                        saturated.incrementAndGet();
+                        saturatedSinceDrain.incrementAndGet();
+                        saturated(r, executor);
+                    }
+                });
+        /* idle stages should not hold their threads */
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private void saturated(Runnable r, ThreadPoolExecutor executor) {
+        switch (rejectionPolicy) {
+        case block:
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for pinger stage " + name, e);
+            }
+            /* all threads might have timed out in the meantime */
+            executor.prestartCoreThread();
+            break;
+        case drop:
+            if (r instanceof Future) {
+                ((Future<?>) r).cancel(false);
+            }
+            break;
+        case caller:
+            r.run();
+            break;
+        default:
+            throw new IllegalStateException("Unexpected " + RejectionPolicy.class.getSimpleName() + " "
+                    + rejectionPolicy);
+        }
+    }
+
+    /**
+     * Submits the given {@code task} for execution. If the stage is saturated, the task is handled according to the
+     * {@link RejectionPolicy} of this stage.
+     *
+     * @param task the task to run
+     * @return a {@link Future} representing the result of the {@code task}, cancelled if the {@code task} was dropped
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Like {@link #submit(Callable)} but for tasks without a result.
+     *
+     * @param task the task to run
+     * @return {@code true} if the {@code task} was accepted, {@code false} if it was dropped
+     */
+    public boolean execute(final Runnable task) {
+        Future<?> result = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    /* there is nobody to get the exception from a Future */
+                    Log.LOG.eStageTaskFailed(name, e);
+                }
+            }
+        });
+        return !result.isCancelled();
+    }
+
+    /**
+     * @return the name of this stage
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a snapshot of the sizing and saturation of this stage
+     */
+    public Statistics getStatistics() {
+        return new Statistics(name, concurrency, queueSize, rejectionPolicy, executor.getActiveCount(),
+                executor.getQueue().size(), executor.getCompletedTaskCount(), saturated.get());
+    }
+
+    /**
+     * @return the number of tasks submitted to the saturated stage since the last invocation of this method
+     */
+    public long drainSaturated() {
+        return saturatedSinceDrain.getAndSet(0);
+    }
+
+    /**
+     * Stops accepting new tasks and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stops accepting new tasks and lets the submitted ones finish.
+     */
+    public void shutdownGracefully() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * Serves the sizing and saturation of the {@link StageExecutor}s of the pinger pipeline, so that operators can see
+ * which stage is the bottleneck.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@Stateless
+@Path("/stages")
+@Produces(APPLICATION_JSON)
+public class StageStatisticsEndpoint {
+
+    @EJB
+    private PingManager pingManager;
+
+    /**
+     * @return a {@link StageExecutor.Statistics} per stage, empty in
+     *         {@link PingerConfiguration.ExecutionMode#ejb} mode
+     */
+    @GET
+    @Path("/")
+    public Response getStatistics() {
+        return Response.ok(pingManager.getStageStatistics()).build();
+    }
+}
@@ -21,11 +21,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeSet;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
 import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
 
 /**
  * A collection of traits retrieved from response headers. The headers that are considered to be interesting are listed
@@ -157,8 +159,10 @@ public class Traits {
             }
         }
 
+        ProtocolVersion protocolVersion = httpResponse.getProtocolVersion();
         return new Traits(timestamp, remoteAddress,
-                poweredByBuilder.length() == 0 ? null : poweredByBuilder.toString());
+                poweredByBuilder.length() == 0 ? null : poweredByBuilder.toString(),
+                protocolVersion == null ? null : protocolVersion.toString());
     };
 
     /**
@@ -168,7 +172,7 @@ public class Traits {
      * @return a new {@link Traits} with the given {@code timestamp} and no {@link #items}
      */
     public static Traits empty(long timestamp) {
-        return new Traits(timestamp, null, null);
+        return new Traits(timestamp, null, null, null);
     }
 
     /** A comma separated list of "powered by" items */
@@ -181,18 +185,44 @@ public class Traits {
     private final long timestamp;
 
     /**
-     * Creates new {@link Traits}.
+     * The HTTP version from the status line of the response, such as {@code HTTP/1.1}, can be {@code null}. Note that
+     * this is the version the server put on the status line rather than a negotiated application protocol.
+     */
+    private final String protocol;
+
+    /** The TLS protocol of the session established by a TLS probe, such as {@code TLSv1.2}, can be {@code null} */
+    private final String tlsProtocol;
+
+    /**
+     * Creates new {@link Traits} without {@link #tlsProtocol}.
      *
      * @param timestamp the UNIX timestamp when these {@link Traits} were collected
-     * @param items {@link Map} of trait headers, must be unmodifiable
+     * @param remoteAddress the remote IP address that replied to the ping, can be {@code null}
+     * @param poweredBy a comma separated list of "powered by" items, can be {@code null}
+     * @param protocol the HTTP version from the status line of the response, can be {@code null}
+     *
+     * @see #collect(HttpResponse, long, InetAddress)
+     */
+    Traits(long timestamp, InetAddress remoteAddress, String poweredBy, String protocol) {
+        this(timestamp, remoteAddress, poweredBy, protocol, null);
+    }
+
+    /**
+     * Creates new {@link Traits}.
      *
-     * @see #collect(HttpResponse, long)
+     * @param timestamp the UNIX timestamp when these {@link Traits} were collected
+     * @param remoteAddress the remote IP address that replied to the ping, can be {@code null}
+     * @param poweredBy a comma separated list of "powered by" items, can be {@code null}
+     * @param protocol the HTTP version from the status line of the response, can be {@code null}
+     * @param tlsProtocol the TLS protocol of the session established by a TLS probe, can be {@code null}
      */
-    Traits(long timestamp, InetAddress remoteAddress, String poweredBy) {
+    Traits(long timestamp, InetAddress remoteAddress, String poweredBy, String protocol, String tlsProtocol) {
         super();
         this.timestamp = timestamp;
         this.remoteAddress = remoteAddress;
         this.poweredBy = poweredBy;
+        this.protocol = protocol;
+        this.tlsProtocol = tlsProtocol;
     }
 
     /**
@@ -209,6 +239,21 @@ public class Traits {
         return remoteAddress;
     }
 
+    /**
+     * @return the HTTP version from the status line of the response, such as {@code HTTP/1.1}, can be {@code null}
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @return the TLS protocol of the session established by a TLS probe, such as {@code TLSv1.2}, can be
+     *         {@code null}
+     */
+    public String getTlsProtocol() {
+        return tlsProtocol;
+    }
+
     /**
      * @return the UNIX timestamp when these {@link Traits} were collected
      */
@@ -216,6 +261,17 @@ public class Traits {
         return timestamp;
     }
 
+    /**
+     * @param other the {@link Traits} to compare with, can be {@code null}
+     * @return {@code true} if the given {@link Traits} have the same items as these {@link Traits} regardless of
+     *         when they were collected, {@code false} otherwise
+     */
+    public boolean sameAs(Traits other) {
+        return other != null && Objects.equals(remoteAddress, other.remoteAddress)
+                && Objects.equals(poweredBy, other.poweredBy) && Objects.equals(protocol, other.protocol)
+                && Objects.equals(tlsProtocol, other.tlsProtocol);
+    }
+
     /** @see java.lang.Object#equals(java.lang.Object) */
     @Override
     public boolean equals(Object obj) {
@@ -238,6 +294,16 @@ public class Traits {
                 return false;
         } else if (!poweredBy.equals(other.poweredBy))
             return false;
+        if (protocol == null) {
+            if (other.protocol != null)
+                return false;
+        } else if (!protocol.equals(other.protocol))
+            return false;
+        if (tlsProtocol == null) {
+            if (other.tlsProtocol != null)
+                return false;
+        } else if (!tlsProtocol.equals(other.tlsProtocol))
+            return false;
         return true;
     }
 
@@ -249,13 +315,16 @@ public class Traits {
         result = prime * result + ((poweredBy == null) ? 0 : poweredBy.hashCode());
         result = prime * result + (int) (timestamp ^ (timestamp >>> 32));
         result = prime * result + ((remoteAddress == null) ? 0 : remoteAddress.hashCode());
+        result = prime * result + ((protocol == null) ? 0 : protocol.hashCode());
+        result = prime * result + ((tlsProtocol == null) ? 0 : tlsProtocol.hashCode());
         return result;
     }
 
     /** @see java.lang.Object#toString() */
     @Override
     public String toString() {
-        return "Traits [poweredBy=" + poweredBy + ", timestamp=" + timestamp + ", remoteAddress=" + remoteAddress + "]";
+        return "Traits [poweredBy=" + poweredBy + ", timestamp=" + timestamp + ", remoteAddress=" + remoteAddress
+                + ", protocol=" + protocol + ", tlsProtocol=" + tlsProtocol + "]";
     }
 
 
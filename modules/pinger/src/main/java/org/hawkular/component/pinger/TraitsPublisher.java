@@ -41,12 +41,21 @@ public class TraitsPublisher {
     private Inventory inventory;
 
     /**
-     * Stores the {@link Traits} of the given {@link PingStatus} in Hawkular Inventory.
+     * Stores the {@link Traits} of the given {@link PingStatus} in Hawkular Inventory asynchronously.
      *
      * @param status the {@link PingStatus} to publish
      */
     @Asynchronous
     public void publish(PingStatus status) {
+        doPublish(status);
+    }
+
+    /**
+     * Stores the {@link Traits} of the given {@link PingStatus} in Hawkular Inventory in the calling thread.
+     *
+     * @param status the {@link PingStatus} to publish
+     */
+    public void doPublish(PingStatus status) {
         final Traits traits = status.getTraits();
 
         PingDestination dest = status.getDestination();
@@ -75,6 +84,14 @@ public class TraitsPublisher {
             if (poweredBy != null) {
                 updateBuilder.withProperty(TRAIT_PROPERTY_PREFIX + "powered-by", poweredBy);
             }
+            String protocol = traits.getProtocol();
+            if (protocol != null) {
+                updateBuilder.withProperty(TRAIT_PROPERTY_PREFIX + "protocol", protocol);
+            }
+            String tlsProtocol = traits.getTlsProtocol();
+            if (tlsProtocol != null) {
+                updateBuilder.withProperty(TRAIT_PROPERTY_PREFIX + "tls-protocol", tlsProtocol);
+            }
 
             inventory.tenants().get(dest.getTenantId()).environments().get(dest.getEnvironmentId()).resources()
                     .update(dest.getResourceId(), updateBuilder.build());
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hawkular.component.pinger.AlertEvent.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AlertEvaluatorTest {
+
+    private static AlertRule rule(String codes, String duration, String failures) {
+        Map<String, Object> properties = new HashMap<>();
+        if (codes != null) {
+            properties.put(AlertRule.CODES_PROPERTY, codes);
+        }
+        if (duration != null) {
+            properties.put(AlertRule.DURATION_PROPERTY, duration);
+        }
+        if (failures != null) {
+            properties.put(AlertRule.FAILURES_PROPERTY, failures);
+        }
+        return AlertRule.from(properties);
+    }
+
+    private static PingStatus status(PingDestination destination, int code, int duration) {
+        return new PingStatus(destination, code, 1000, duration, Traits.empty(1000));
+    }
+
+    @Test
+    public void testRuleFrom() {
+        Assert.assertNull(AlertRule.from(Collections.<String, Object> emptyMap()));
+
+        AlertRule defaults = rule(null, null, "2");
+        Assert.assertEquals(2, defaults.getConsecutiveFailures());
+        Assert.assertEquals(AlertRule.NO_THRESHOLD, defaults.getDurationThresholdMillis());
+        Assert.assertEquals(rule("4xx, 5xx", null, "2"), defaults);
+
+        for (String[] invalid : new String[][] { { "5x", null, null }, { "6xx", null, null },
+                { null, "slow", null }, { null, null, "0" } }) {
+            try {
+                rule(invalid[0], invalid[1], invalid[2]);
+                Assert.fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testViolation() {
+        PingDestination destination = new PingDestination("t1", "env", "r1", "http://r1");
+        AlertRule rule = rule("5xx", "100", null);
+        Assert.assertNull(rule.getViolation(status(destination, 200, 100)));
+        Assert.assertNull(rule.getViolation(status(destination, 404, 10)));
+        Assert.assertEquals("code 503", rule.getViolation(status(destination, 503, 10)));
+        Assert.assertEquals("duration 101 ms > 100 ms", rule.getViolation(status(destination, 200, 101)));
+        Assert.assertEquals("timeout", rule.getViolation(PingStatus.timeout(destination, 1000, 7500)));
+    }
+
+    @Test
+    public void testStateChangesOnly() {
+        PingDestination destination = new PingDestination("t1", "env", "r1", "http://r1", "GET",
+                PingDestination.Probe.full, rule(null, null, "2"));
+        AlertEvaluator evaluator = new AlertEvaluator();
+
+        Assert.assertNull(evaluator.evaluate(status(destination, 200, 10)));
+        Assert.assertNull(evaluator.evaluate(status(destination, 500, 10)));
+        AlertEvent firing = evaluator.evaluate(status(destination, 500, 10));
+        Assert.assertEquals(State.firing, firing.getState());
+        Assert.assertEquals("code 500", firing.getReason());
+        Assert.assertEquals("r1", firing.getResourceId());
+        Assert.assertNull(evaluator.evaluate(status(destination, 500, 10)));
+
+        AlertEvent resolved = evaluator.evaluate(status(destination, 200, 10));
+        Assert.assertEquals(State.resolved, resolved.getState());
+        Assert.assertNull(resolved.getReason());
+        Assert.assertNull(evaluator.evaluate(status(destination, 200, 10)));
+
+        /* a single failure after the recovery does not fire */
+        Assert.assertNull(evaluator.evaluate(status(destination, 500, 10)));
+        evaluator.retainAll(Collections.<PingDestination> emptySet());
+        Assert.assertNull(evaluator.evaluate(status(destination, 500, 10)));
+        Assert.assertEquals(State.firing, evaluator.evaluate(status(destination, 500, 10)).getState());
+    }
+
+    @Test
+    public void testNoRule() {
+        PingDestination destination = new PingDestination("t1", "env", "r1", "http://r1");
+        Assert.assertNull(new AlertEvaluator().evaluate(status(destination, 500, 10)));
+    }
+}
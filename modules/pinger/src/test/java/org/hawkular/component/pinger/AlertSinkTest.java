@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class AlertSinkTest {
+
+    public static class NoopSink implements AlertSink {
+        @Override
+        public void emit(AlertEvent event) {
+        }
+    }
+
+    @Test
+    public void testCreateByClassName() {
+        Assert.assertTrue(AlertSink.create(NoopSink.class.getName(), null) instanceof NoopSink);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateMissingClass() {
+        AlertSink.create("org.hawkular.component.pinger.NoSuchSink", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateNotASink() {
+        AlertSink.create(String.class.getName(), null);
+    }
+
+}
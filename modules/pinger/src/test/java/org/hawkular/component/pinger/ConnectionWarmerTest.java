@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class ConnectionWarmerTest {
+
+    private static final int HTTP_PORT = 8879;
+
+    @Rule
+    public WireMockRule testServer = new WireMockRule(WireMockConfiguration.wireMockConfig().port(HTTP_PORT));
+
+    private static PingDestination newDestination(String resourceId, String url) {
+        return new PingDestination("t1", "env", resourceId, url);
+    }
+
+    @Test
+    public void testWarmUpDistinctOrigins() throws Exception {
+        testServer.stubFor(WireMock.head(WireMock.urlMatching(".*")).willReturn(WireMock.aResponse()));
+
+        PingClient pingClient = new PingClient(new PingerConfiguration(new Properties()));
+        ConnectionWarmer warmer = new ConnectionWarmer(pingClient);
+        List<PingDestination> destinations = Arrays.asList(
+                newDestination("r1", "http://localhost:" + HTTP_PORT + "/a"),
+                newDestination("r2", "http://localhost:" + HTTP_PORT + "/b"),
+                newDestination("r3", "http://127.0.0.1:" + HTTP_PORT + "/c"));
+
+        Assert.assertEquals(2, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+        testServer.verify(2, WireMock.headRequestedFor(WireMock.urlMatching(".*")));
+
+        /* the origins are warm now */
+        Assert.assertEquals(0, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+
+        /* evicted connections are warmed up again */
+        pingClient.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(2, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+
+        /* disabled warm-up */
+        pingClient.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(0, warmer.warmUp(destinations, 0).get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void testNotKeptAliveOriginWarmedUpOnce() throws Exception {
+        testServer.stubFor(WireMock.head(WireMock.urlMatching(".*"))
+                .willReturn(WireMock.aResponse().withHeader("Connection", "close")));
+
+        PingClient pingClient = new PingClient(new PingerConfiguration(new Properties()));
+        ConnectionWarmer warmer = new ConnectionWarmer(pingClient);
+        List<PingDestination> destinations = Arrays
+                .asList(newDestination("r1", "http://localhost:" + HTTP_PORT + "/"));
+
+        Assert.assertEquals(1, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+        Assert.assertEquals(0, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+        testServer.verify(1, WireMock.headRequestedFor(WireMock.urlMatching(".*")));
+    }
+
+    @Test
+    public void testOriginInProgressNotWarmedUpAgain() throws Exception {
+        testServer.stubFor(WireMock.head(WireMock.urlMatching(".*"))
+                .willReturn(WireMock.aResponse().withFixedDelay(500)));
+
+        PingClient pingClient = new PingClient(new PingerConfiguration(new Properties()));
+        ConnectionWarmer warmer = new ConnectionWarmer(pingClient);
+        try {
+            List<PingDestination> destinations = Arrays
+                    .asList(newDestination("r1", "http://localhost:" + HTTP_PORT + "/"));
+
+            CompletableFuture<Integer> first = warmer.warmUp(destinations, 4);
+            /* warmUp() does not wait for the requests */
+            Assert.assertFalse(first.isDone());
+            Assert.assertEquals(0, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+            Assert.assertEquals(1, first.get(5, TimeUnit.SECONDS).intValue());
+            Assert.assertEquals(0, warmer.warmUp(destinations, 4).get(5, TimeUnit.SECONDS).intValue());
+            testServer.verify(1, WireMock.headRequestedFor(WireMock.urlMatching(".*")));
+        } finally {
+            warmer.shutdown();
+        }
+    }
+
+    @Test
+    public void testRoutePerOrigin() {
+        Assert.assertEquals(ConnectionWarmer.toRoute("https://example.com/a"),
+                ConnectionWarmer.toRoute("https://example.com:443/b?c=d"));
+        Assert.assertNotEquals(ConnectionWarmer.toRoute("http://example.com/"),
+                ConnectionWarmer.toRoute("https://example.com/"));
+        Assert.assertNull(ConnectionWarmer.toRoute("not a url"));
+    }
+}
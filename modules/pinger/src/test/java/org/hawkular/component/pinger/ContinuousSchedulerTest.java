@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class ContinuousSchedulerTest {
+
+    /**
+     * A {@link ScheduledExecutorService} running in virtual time: the tasks are run in the calling thread of
+     * {@link #advanceTo(long)} in the order of their scheduled times. Every task behaves as if it had a thread of its
+     * own: {@link #elapse(long)} moves the {@link #now()} of the running task forward without delaying the other
+     * tasks.
+     */
+    static class VirtualTimeExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+        private class Task implements ScheduledFuture<Object> {
+            private final long time;
+            private final long sequence;
+            private final Runnable command;
+            private boolean cancelled;
+
+            private Task(long time, long sequence, Runnable command) {
+                this.time = time;
+                this.sequence = sequence;
+                this.command = command;
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(time - now(), TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed o) {
+                Task other = (Task) o;
+                int result = Long.compare(time, other.time);
+                return result != 0 ? result : Long.compare(sequence, other.sequence);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                cancelled = true;
+                return queue.remove(this);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return cancelled || !queue.contains(this);
+            }
+
+            @Override
+            public Object get() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Object get(long timeout, TimeUnit unit) {
+                throw new UnsupportedOperationException();
+            }
+        }
+
+        private final PriorityQueue<Task> queue = new PriorityQueue<>();
+        private long sequence;
+        private long taskTime;
+        private long taskElapsed;
+        private boolean shutdown;
+
+        /**
+         * Runs all tasks scheduled up to the given time, including those scheduled by the tasks themselves.
+         *
+         * @param time the virtual time to advance to
+         */
+        public void advanceTo(long time) {
+            while (!queue.isEmpty() && queue.peek().time <= time) {
+                Task task = queue.poll();
+                taskTime = task.time;
+                taskElapsed = 0;
+                task.command.run();
+            }
+            taskTime = time;
+            taskElapsed = 0;
+        }
+
+        /**
+         * Simulates that the running task takes the given number of milliseconds.
+         *
+         * @param millis the number of milliseconds to add to {@link #now()} of the running task
+         */
+        public void elapse(long millis) {
+            taskElapsed += millis;
+        }
+
+        /**
+         * @return the virtual time in milliseconds as seen by the running task
+         */
+        public long now() {
+            return taskTime + taskElapsed;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task task = new Task(now() + unit.toMillis(delay), sequence++, command);
+            if (!shutdown) {
+                queue.add(task);
+            }
+            return task;
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            schedule(command, 0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> result = new ArrayList<>();
+            for (Task task : queue) {
+                result.add(task.command);
+            }
+            queue.clear();
+            return result;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && queue.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+
+    private static final int INTERVAL_MILLIS = 100;
+
+    @Test
+    public void testSlowDestinationDoesNotDelayOthers() throws Exception {
+        final PingDestination fast = new PingDestination("tenant", "env", "fast", "http://fast", "GET");
+        final PingDestination slow = new PingDestination("tenant", "env", "slow", "http://slow", "GET");
+        final List<PingStatus> fastResults = new ArrayList<>();
+        final List<PingStatus> slowResults = new ArrayList<>();
+        final VirtualTimeExecutor executor = new VirtualTimeExecutor();
+
+        ContinuousScheduler scheduler = new ContinuousScheduler(INTERVAL_MILLIS, destination -> {
+            long start = executor.now();
+            if (destination == slow) {
+                executor.elapse(3 * INTERVAL_MILLIS + INTERVAL_MILLIS / 2);
+            }
+            return new PingStatus(destination, 200, start, 1, null);
+        }, status -> (status.getDestination() == slow ? slowResults : fastResults).add(status),
+                (destination, ping) -> ping.run(), executor, executor::now);
+        try {
+            scheduler.update(new HashSet<>(Arrays.asList(fast, slow)));
+            executor.advanceTo(20 * INTERVAL_MILLIS);
+        } finally {
+            scheduler.shutdown();
+        }
+
+        Assert.assertTrue("Expected at least 20 fast results but found " + fastResults.size(),
+                fastResults.size() >= 20);
+        assertSlots(fastResults, INTERVAL_MILLIS);
+
+        /* the slow pings take 3.5 intervals, so the next free slot is 4 intervals later */
+        Assert.assertTrue("Expected at least 5 slow results but found " + slowResults.size(),
+                slowResults.size() >= 5);
+        /* missed slots are skipped, so a slow destination must not accumulate lag */
+        assertSlots(slowResults, 4 * INTERVAL_MILLIS);
+    }
+
+    private static void assertSlots(List<PingStatus> results, long spacing) {
+        long previous = -1;
+        for (PingStatus status : results) {
+            Assert.assertEquals("Unexpected lag of " + status, 0, status.getSchedulingLag());
+            if (previous >= 0) {
+                Assert.assertEquals("Unexpected spacing of " + status, spacing, status.getTimestamp() - previous);
+            }
+            previous = status.getTimestamp();
+        }
+    }
+
+    @Test
+    public void testUpdateStopsRemovedDestinations() throws Exception {
+        final PingDestination destination = new PingDestination("tenant", "env", "r", "http://r", "GET");
+        final List<PingStatus> results = new ArrayList<>();
+        final VirtualTimeExecutor executor = new VirtualTimeExecutor();
+        ContinuousScheduler scheduler = new ContinuousScheduler(INTERVAL_MILLIS,
+                d -> new PingStatus(d, 200, executor.now(), 1, null), results::add, (d, ping) -> ping.run(),
+                executor, executor::now);
+        try {
+            scheduler.update(Collections.singleton(destination));
+            executor.advanceTo(3 * INTERVAL_MILLIS);
+            scheduler.update(Collections.<PingDestination> emptySet());
+            int size = results.size();
+            Assert.assertTrue(size >= 3);
+            executor.advanceTo(6 * INTERVAL_MILLIS);
+            Assert.assertEquals(size, results.size());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class FairDispatcherTest {
+
+    /**
+     * Blocks the only execution slot until tasks of two tenants are queued and then returns the order in which the
+     * queued tasks have run.
+     */
+    private static List<String> runQueued(FairDispatcher dispatcher, int bigTenantTasks, int smallTenantTasks)
+            throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.execute("blocker", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < bigTenantTasks; i++) {
+            futures.add(dispatcher.submit("big", () -> order.add("big")));
+        }
+        for (int i = 0; i < smallTenantTasks; i++) {
+            futures.add(dispatcher.submit("small", () -> order.add("small")));
+        }
+        release.countDown();
+        for (Future<?> f : futures) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        return order;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        FairDispatcher dispatcher = new FairDispatcher(1, tenantId -> 1, 1);
+        try {
+            List<String> order = runQueued(dispatcher, 6, 2);
+            Assert.assertEquals(
+                    Arrays.asList("big", "small", "big", "small", "big", "big", "big", "big"), order);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testWeights() throws Exception {
+        FairDispatcher dispatcher = new FairDispatcher(1, tenantId -> "small".equals(tenantId) ? 2 : 1, 1);
+        try {
+            List<String> order = runQueued(dispatcher, 4, 4);
+            Assert.assertEquals(
+                    Arrays.asList("big", "small", "small", "big", "small", "small", "big", "big"), order);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testTenantConcurrencyLimit() throws Exception {
+        FairDispatcher dispatcher = new FairDispatcher(10, tenantId -> 5, 2);
+        final Object lock = new Object();
+        final int[] running = new int[1];
+        final int[] maxRunning = new int[1];
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(dispatcher.submit("t", () -> {
+                    synchronized (lock) {
+                        maxRunning[0] = Math.max(maxRunning[0], ++running[0]);
+                    }
+                    Thread.sleep(5);
+                    synchronized (lock) {
+                        running[0]--;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(5, TimeUnit.SECONDS);
+            }
+            Assert.assertTrue("Expected at most 2 but found " + maxRunning[0], maxRunning[0] <= 2);
+
+            Map<String, Long> lags = dispatcher.drainLags();
+            Assert.assertTrue(lags.get("t") > 0);
+            Assert.assertTrue(dispatcher.drainLags().isEmpty());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownGracefully() throws Exception {
+        FairDispatcher dispatcher = new FairDispatcher(1, tenantId -> 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.execute("t1", () -> {
+            started.countDown();
+            try {
+                release.await();
+                finished.add("running");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.execute("t1", () -> finished.add("queued"));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.shutdownGracefully();
+        Assert.assertFalse(dispatcher.awaitTermination(10, TimeUnit.MILLISECONDS));
+        release.countDown();
+        Assert.assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+        /* the running task was not interrupted and the queued one was dropped */
+        Assert.assertEquals(Collections.singletonList("running"), finished);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hawkular.component.pinger.LatencyRollups.Rollup;
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class LatencyRollupsTest {
+
+    private static final PingDestination DESTINATION = new PingDestination("t1", "env", "r1", "http://r1");
+
+    private static PingStatus status(long timestamp, long durationMicros) {
+        return new PingStatus(DESTINATION, 200, timestamp, durationMicros, null, TlsHandshake.none);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " but found " + actual,
+                Math.abs(expected - actual) <= expected / 100);
+    }
+
+    @Test
+    public void testWindowClose() {
+        LatencyRollups rollups = new LatencyRollups(new int[] { 60, 3600 });
+        for (int i = 1; i <= 100; i++) {
+            /* 1.5 ms, 2.5 ms, ..., 100.5 ms */
+            List<Rollup> closed = rollups.record(status(i * 500, i * 1000 + 500));
+            Assert.assertTrue(closed.isEmpty());
+        }
+        /* timeouts do not affect the percentiles, they are counted separately */
+        Assert.assertTrue(rollups.record(PingStatus.timeout(DESTINATION, 59000, 7500)).isEmpty());
+
+        List<Rollup> closed = rollups.record(status(60000, 1000));
+        Assert.assertEquals(1, closed.size());
+        Rollup rollup = closed.get(0);
+        Assert.assertEquals("1m", rollup.getWindow());
+        Assert.assertEquals(0, rollup.getWindowStart());
+        Assert.assertEquals(100, rollup.getCount());
+        Assert.assertEquals(1, rollup.getTimeouts());
+        assertClose(50500, rollup.getP50());
+        assertClose(95500, rollup.getP95());
+        assertClose(99500, rollup.getP99());
+        assertClose(100500, rollup.getMax());
+
+        closed = rollups.record(status(3600000, 1000));
+        Assert.assertEquals(2, closed.size());
+        Assert.assertEquals("1m", closed.get(0).getWindow());
+        Assert.assertEquals(60000, closed.get(0).getWindowStart());
+        Assert.assertEquals(1, closed.get(0).getCount());
+        Assert.assertEquals("1h", closed.get(1).getWindow());
+        Assert.assertEquals(101, closed.get(1).getCount());
+        Assert.assertEquals(1, closed.get(1).getTimeouts());
+    }
+
+    @Test
+    public void testFlush() {
+        LatencyRollups rollups = new LatencyRollups(new int[] { 60 });
+        rollups.record(status(1000, 1000));
+        rollups.record(PingStatus.timeout(DESTINATION, 2000, 7500));
+        Assert.assertTrue(rollups.flush(59999).isEmpty());
+
+        List<Rollup> closed = rollups.flush(60000);
+        Assert.assertEquals(1, closed.size());
+        Assert.assertEquals(0, closed.get(0).getWindowStart());
+        Assert.assertEquals(1, closed.get(0).getCount());
+        Assert.assertEquals(1, closed.get(0).getTimeouts());
+
+        /* nothing left to flush and the next ping does not close the flushed window again */
+        Assert.assertTrue(rollups.flush(120000).isEmpty());
+        Assert.assertTrue(rollups.record(status(61000, 1000)).isEmpty());
+        /* a late result of the flushed window is dropped */
+        Assert.assertTrue(rollups.record(status(59000, 1000)).isEmpty());
+        Assert.assertEquals(1, rollups.flush(120000).get(0).getCount());
+    }
+
+    @Test
+    public void testRetainAllClosesCurrentWindows() {
+        LatencyRollups rollups = new LatencyRollups(new int[] { 60, 3600 });
+        rollups.record(status(1000, 1000));
+        Assert.assertTrue(rollups.retainAll(Collections.singleton(DESTINATION)).isEmpty());
+
+        List<Rollup> closed = rollups.retainAll(Collections.<PingDestination> emptySet());
+        Assert.assertEquals(2, closed.size());
+        Assert.assertEquals(1, closed.get(0).getCount());
+        Assert.assertEquals(1, closed.get(1).getCount());
+        Assert.assertTrue(rollups.flush(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testDisabled() {
+        LatencyRollups rollups = new LatencyRollups(new int[0]);
+        Assert.assertTrue(rollups.record(status(1000, 1000)).isEmpty());
+        Assert.assertTrue(rollups.record(status(3600000, 1000)).isEmpty());
+        Assert.assertTrue(rollups.retainAll(Collections.<PingDestination> emptySet()).isEmpty());
+    }
+
+    @Test
+    public void testWindowName() {
+        Assert.assertEquals("30s", LatencyRollups.windowName(30));
+        Assert.assertEquals("5m", LatencyRollups.windowName(300));
+        Assert.assertEquals("1h", LatencyRollups.windowName(3600));
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class LocalAvailChannelTest {
+
+    /** Mimics the management interface of the avail-creator's receiver */
+    public interface ReceiverMXBean {
+        boolean offer(String tenantId, String resourceId, long timestamp, int code, int duration);
+    }
+
+    @Test
+    public void testOffer() throws Exception {
+        PingDestination destination = new PingDestination("t1", "env", "r1", "http://r1");
+        PingStatus status = new PingStatus(destination, 503, 1000, 42, Traits.empty(1000));
+        /* no receiver deployed */
+        Assert.assertFalse(LocalAvailChannel.offer(status));
+
+        final StringBuilder offered = new StringBuilder();
+        final boolean[] accept = { true };
+        ReceiverMXBean receiver = (tenantId, resourceId, timestamp, code, duration) -> {
+            offered.append(tenantId).append('/').append(resourceId).append('@').append(timestamp).append(' ')
+                    .append(code).append(' ').append(duration);
+            return accept[0];
+        };
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LocalAvailChannel.OBJECT_NAME);
+        server.registerMBean(new StandardMBean(receiver, ReceiverMXBean.class, true), name);
+        try {
+            Assert.assertTrue(LocalAvailChannel.offer(status));
+            Assert.assertEquals("t1/r1@1000 503 42", offered.toString());
+            /* a saturated receiver */
+            accept[0] = false;
+            Assert.assertFalse(LocalAvailChannel.offer(status));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
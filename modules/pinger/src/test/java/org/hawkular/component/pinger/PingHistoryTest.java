@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.SecurityContext;
+
+import org.hawkular.component.pinger.PingHistory.Sample;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingHistoryTest {
+
+    private static final PingDestination DESTINATION_1 = new PingDestination("t1", "env", "r1", "http://r1");
+    private static final PingDestination DESTINATION_2 = new PingDestination("t1", "env", "r2", "http://r2");
+
+    @Test
+    public void testRingWrapsAround() {
+        PingHistory history = new PingHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.record(new PingStatus(DESTINATION_1, 200 + i, 1000 + i, 10 * i, null));
+        }
+        history.record(PingStatus.timeout(DESTINATION_1, 1006, PingStatus.INVALID_DURATION));
+
+        List<Sample> samples = history.getLatest("t1", "r1", 10);
+        Assert.assertEquals(3, samples.size());
+
+        Sample timeout = samples.get(0);
+        Assert.assertEquals(1006, timeout.getTimestamp());
+        Assert.assertEquals(503, timeout.getCode());
+        Assert.assertEquals(PingStatus.INVALID_DURATION, timeout.getDuration());
+        Assert.assertTrue(timeout.isTimedOut());
+
+        Sample oldest = samples.get(2);
+        Assert.assertEquals(1004, oldest.getTimestamp());
+        Assert.assertEquals(204, oldest.getCode());
+        Assert.assertEquals(40, oldest.getDuration());
+        Assert.assertFalse(oldest.isTimedOut());
+
+        Assert.assertEquals(1, history.getLatest("t1", "r1", 1).size());
+        Assert.assertNull(history.getLatest("t1", "unknown", 1));
+    }
+
+    @Test
+    public void testLatestPerTenant() {
+        PingHistory history = new PingHistory(4);
+        history.record(new PingStatus(DESTINATION_1, 200, 1000, 10, null));
+        history.record(new PingStatus(DESTINATION_1, 500, 1020, 12, null));
+        history.record(new PingStatus(DESTINATION_2, 404, 1010, 8, null));
+
+        Map<String, Sample> latest = history.getLatest("t1");
+        Assert.assertEquals(2, latest.size());
+        Assert.assertEquals(500, latest.get("r1").getCode());
+        Assert.assertEquals(404, latest.get("r2").getCode());
+        Assert.assertTrue(history.getLatest("t2").isEmpty());
+
+        history.retainAll(Collections.singleton(DESTINATION_2));
+        Assert.assertEquals(Collections.singleton("r2"), history.getLatest("t1").keySet());
+        history.retainAll(Collections.<PingDestination> emptySet());
+        Assert.assertTrue(history.getLatest("t1").isEmpty());
+    }
+
+
+    @Test
+    public void testTenantFromPrincipal() {
+        SecurityContext security = new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return () -> "t1";
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return false;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return "KEYCLOAK";
+            }
+        };
+        Assert.assertEquals("t1", PingHistoryEndpoint.tenantOf(security, null));
+        Assert.assertEquals("t1", PingHistoryEndpoint.tenantOf(security, "t1"));
+        Assert.assertNull(PingHistoryEndpoint.tenantOf(security, "t2"));
+        Assert.assertNull(PingHistoryEndpoint.tenantOf(null, "t1"));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.hawkular.component.pinger.PingRecorder.Recording;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingRecorderTest {
+
+    private static final int HTTP_PORT = 8880;
+
+    @Rule
+    public WireMockRule testServer = new WireMockRule(WireMockConfiguration.wireMockConfig().port(HTTP_PORT));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        testServer.stubFor(WireMock.get(WireMock.urlEqualTo("/ok")).willReturn(WireMock.aResponse()
+                .withHeader("X-Powered-By", "Servlet/3.0").withHeader("Content-Type", "text/plain")
+                .withBody("Hello world!")));
+        testServer.stubFor(WireMock.get(WireMock.urlEqualTo("/missing")).willReturn(WireMock.aResponse()
+                .withStatus(404).withFixedDelay(50)));
+
+        PingDestination ok = new PingDestination("t1", "env", "r1", "http://localhost:" + HTTP_PORT + "/ok");
+        PingDestination missing = new PingDestination("t1", "env", "r2",
+                "http://localhost:" + HTTP_PORT + "/missing");
+
+        File file = temporaryFolder.newFile("pings.bin");
+        Pinger pinger = new Pinger(new PingClient(PingerConfiguration.getInstance()));
+        PingStatus originalOk;
+        try {
+            PingRecorder.activate(file.getPath());
+            originalOk = pinger.doPing(ok);
+            pinger.doPing(missing);
+            pinger.doPing(ok);
+        } finally {
+            PingRecorder.activate("");
+        }
+
+        List<Recording> recordings = PingRecorder.read(new FileInputStream(file));
+        Assert.assertEquals(3, recordings.size());
+        Recording first = recordings.get(0);
+        Assert.assertEquals(ok.getUrl(), first.getUrl());
+        Assert.assertEquals("GET", first.getMethod());
+        Assert.assertEquals(200, first.getCode());
+        Assert.assertEquals(12, first.getBodySize());
+        /* WireMock adds a Server header */
+        List<String> headers = Arrays.asList(first.getHeaders());
+        Assert.assertEquals("Servlet/3.0", headers.get(headers.indexOf("X-Powered-By") + 1));
+        Assert.assertFalse(headers.contains("Content-Type"));
+        Recording second = recordings.get(1);
+        Assert.assertEquals(missing.getUrl(), second.getUrl());
+        Assert.assertEquals(404, second.getCode());
+        Assert.assertTrue(second.getDurationMicros() >= 50000);
+        Assert.assertEquals(ok.getUrl(), recordings.get(2).getUrl());
+        Assert.assertTrue(recordings.get(2).getOffsetMillis() >= second.getOffsetMillis());
+
+        try (PingReplayServer server = new PingReplayServer(recordings, 10, 2)) {
+            List<PingDestination> replayed = server.getDestinations("t1", "env");
+            Assert.assertEquals(2, replayed.size());
+            PingStatus replayedOk = pinger.doPing(replayed.get(0));
+            Assert.assertEquals(200, replayedOk.getCode());
+            Assert.assertEquals(originalOk.getTraits().getPoweredBy(), replayedOk.getTraits().getPoweredBy());
+            PingStatus replayedMissing = pinger.doPing(replayed.get(1));
+            Assert.assertEquals(404, replayedMissing.getCode());
+        }
+    }
+
+    @Test
+    public void testReplayTimeout() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(PingerConfiguration.PROPERTY_PREFIX + "ping.timeout", "200");
+        PingerConfiguration configuration = new PingerConfiguration(properties);
+        Pinger pinger = new Pinger(new PingClient(configuration));
+        /* recorded with a shorter timeout than the replaying client uses */
+        List<Recording> recordings = Arrays.asList(new Recording(0, "http://example.com/", "GET", 503, true, 100000,
+                0, new String[0]));
+
+        try (PingReplayServer server = new PingReplayServer(recordings, 1, 2,
+                configuration.getPingTimeoutMillis())) {
+            PingStatus status = pinger.doPing(server.getDestinations("t1", "env").get(0));
+            Assert.assertTrue(status.toString(), status.isTimedOut());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.component.pinger.PingRecorder.Recording;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time needed to ping all recorded destinations and to publish the results to Hawkular Metrics through
+ * the real {@link Pinger}, {@link MetricPublisher} and {@link StageExecutor}s, with the destinations and the metrics
+ * served by a {@link PingReplayServer}. Comparing the results of two builds on the same recording shows the
+ * throughput impact of the changes in between.
+ * <p>
+ * The recording is read from the file set by {@value #RECORDING_PROPERTY}, see {@link PingRecorder}; a synthetic
+ * recording of {@value #SYNTHETIC_DESTINATIONS} destinations is used if the property is not set. Run from the
+ * {@code modules/pinger} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.pinger.PingReplayBenchmark \
+ *     -Dhawkular.pinger.replay.file=/path/to/recording.bin
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PingReplayBenchmark {
+
+    /** The system property holding the path of the recording to replay */
+    public static final String RECORDING_PROPERTY = "hawkular.pinger.replay.file";
+
+    private static final int SYNTHETIC_DESTINATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PingReplayBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-D" + RECORDING_PROPERTY + "=" + System.getProperty(RECORDING_PROPERTY, "")).build())
+                .run();
+    }
+
+    /** The factor to divide the recorded durations by */
+    @Param({ "1", "10" })
+    public double speedup;
+
+    /** The number of threads of the stub server */
+    @Param({ "50" })
+    public int serverConcurrency;
+
+    private PingReplayServer server;
+    private List<PingDestination> destinations;
+    private Pinger pinger;
+    private MetricPublisher metricPublisher;
+    private StageExecutor pingStage;
+    private StageExecutor metricsPublishStage;
+
+    private static List<Recording> synthesize() {
+        Random random = new Random(0);
+        List<Recording> result = new ArrayList<>(SYNTHETIC_DESTINATIONS);
+        for (int i = 0; i < SYNTHETIC_DESTINATIONS; i++) {
+            int code = random.nextInt(20) == 0 ? 500 : 200;
+            result.add(new Recording(0, "http://example.com/" + i, "GET", code, false,
+                    5000 + random.nextInt(45000), 1000 + random.nextInt(50000),
+                    new String[] { "Server", "Apache" }));
+        }
+        return result;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String file = System.getProperty(RECORDING_PROPERTY, "");
+        List<Recording> recordings = file.isEmpty() ? synthesize() : PingRecorder.read(new FileInputStream(file));
+        server = new PingReplayServer(recordings, speedup, serverConcurrency);
+        destinations = server.getDestinations("replay", "test");
+
+        Properties properties = new Properties();
+        properties.setProperty("jboss.bind.address", "localhost");
+        properties.setProperty("jboss.http.port", String.valueOf(server.getPort()));
+        /* the recorded origins are all replayed from a single one */
+        properties.setProperty(PingerConfiguration.PROPERTY_PREFIX + "connections.max-per-origin",
+                System.getProperty(PingerConfiguration.PROPERTY_PREFIX + "connections.max", "200"));
+        PingerConfiguration configuration = new PingerConfiguration(properties);
+        PingerConfiguration.setInstance(configuration);
+
+        pinger = new Pinger(new PingClient(configuration));
+        metricPublisher = new MetricPublisher();
+        pingStage = new StageExecutor("ping", configuration.getPingConcurrency());
+        metricsPublishStage = new StageExecutor("metrics-publish", configuration.getMetricsPublishConcurrency());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pingStage.shutdown();
+        metricsPublishStage.shutdown();
+        server.close();
+    }
+
+    @Benchmark
+    public long pingAndPublishRound() throws Exception {
+        List<Future<PingStatus>> pings = new ArrayList<>(destinations.size());
+        for (PingDestination destination : destinations) {
+            pings.add(pingStage.submit(() -> pinger.doPing(destination)));
+        }
+        List<Future<Void>> publishes = new ArrayList<>(destinations.size());
+        for (Future<PingStatus> ping : pings) {
+            PingStatus status = ping.get();
+            publishes.add(metricsPublishStage.submit(() -> {
+                metricPublisher.doSendToMetricsViaRest(status);
+                return null;
+            }));
+        }
+        for (Future<Void> publish : publishes) {
+            publish.get();
+        }
+        return server.getMetricPosts();
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hawkular.component.pinger.PingRecorder.Recording;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stub server replaying the responses recorded by {@link PingRecorder}. Each recorded destination is served
+ * under its own path, see {@link #getDestinations(String, String)}; its requests are answered with its recorded
+ * responses in the order of recording, starting over after the last one. A response is delayed by the recorded
+ * duration divided by {@code speedup}, so that the original timing can be kept or scaled up. A recorded timeout is
+ * replayed by keeping the connection open without a response until the client has timed out.
+ * <p>
+ * The server also accepts the metrics posted by {@link MetricPublisher} under {@value #METRICS_PATH} so that the
+ * whole ping and publish pipeline can run against it, see {@link #getMetricPosts()}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingReplayServer implements AutoCloseable {
+
+    /** The base path under which the stub Hawkular Metrics accept the posted metrics */
+    public static final String METRICS_PATH = "/hawkular/metrics";
+
+    private static final String REPLAY_PATH = "/replay/";
+
+    /** How much longer than the client's timeout a replayed timeout keeps the connection open */
+    private static final long TIMEOUT_MARGIN_MILLIS = 500;
+
+    static {
+        /* do not let the delayed ACKs distort the replayed timing */
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * The recorded responses of a single destination.
+     */
+    private static class ReplayedDestination {
+        private final String method;
+        private final List<Recording> recordings = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private ReplayedDestination(String method) {
+            super();
+            this.method = method;
+        }
+
+        private Recording next() {
+            return recordings.get(Math.floorMod(next.getAndIncrement(), recordings.size()));
+        }
+    }
+
+    private final List<ReplayedDestination> destinations;
+    private final double speedup;
+    private final long clientTimeoutMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong metricPosts = new AtomicLong();
+
+    /**
+     * Starts a new server for clients using the default {@link PingerConfiguration#getPingTimeoutMillis()}.
+     *
+     * @param recordings the recordings to replay
+     * @param speedup the factor to divide the recorded durations by, {@code 1} keeps the original timing
+     * @param concurrency the number of threads serving the requests
+     * @throws IOException if the server cannot be started
+     */
+    public PingReplayServer(List<Recording> recordings, double speedup, int concurrency) throws IOException {
+        this(recordings, speedup, concurrency, new PingerConfiguration(new Properties()).getPingTimeoutMillis());
+    }
+
+    /**
+     * Starts a new server.
+     *
+     * @param recordings the recordings to replay
+     * @param speedup the factor to divide the recorded durations by, {@code 1} keeps the original timing
+     * @param concurrency the number of threads serving the requests
+     * @param clientTimeoutMillis the socket timeout of the client; the recorded timeouts are replayed by not
+     *        responding for longer than that
+     * @throws IOException if the server cannot be started
+     */
+    public PingReplayServer(List<Recording> recordings, double speedup, int concurrency, long clientTimeoutMillis)
+            throws IOException {
+        super();
+        Map<String, ReplayedDestination> byUrl = new LinkedHashMap<>();
+        for (Recording recording : recordings) {
+            byUrl.computeIfAbsent(recording.getMethod() + " " + recording.getUrl(),
+                    k -> new ReplayedDestination(recording.getMethod())).recordings.add(recording);
+        }
+        this.destinations = Collections.unmodifiableList(new ArrayList<>(byUrl.values()));
+        this.speedup = speedup;
+        this.clientTimeoutMillis = clientTimeoutMillis;
+        this.executor = Executors.newFixedThreadPool(concurrency);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), concurrency);
+        this.server.createContext(REPLAY_PATH, this::replay);
+        this.server.createContext(METRICS_PATH, this::acceptMetrics);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @param tenantId the tenant to own the destinations
+     * @param environmentId the environment of the destinations
+     * @return a {@link PingDestination} for each recorded destination pointing to this server
+     */
+    public List<PingDestination> getDestinations(String tenantId, String environmentId) {
+        List<PingDestination> result = new ArrayList<>(destinations.size());
+        for (int i = 0; i < destinations.size(); i++) {
+            result.add(new PingDestination(tenantId, environmentId, "replay-" + i,
+                    "http://localhost:" + getPort() + REPLAY_PATH + i, destinations.get(i).method));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of metrics posts accepted so far
+     */
+    public long getMetricPosts() {
+        return metricPosts.get();
+    }
+
+    private void replay(HttpExchange exchange) throws IOException {
+        try {
+            int index = Integer.parseInt(exchange.getRequestURI().getPath().substring(REPLAY_PATH.length()));
+            Recording recording = destinations.get(index).next();
+            long delayMicros = (long) (recording.getDurationMicros() / speedup);
+            if (recording.isTimedOut()) {
+                /* closing the connection earlier would make the client see an error rather than a timeout */
+                delayMicros = Math.max(delayMicros,
+                        TimeUnit.MILLISECONDS.toMicros(clientTimeoutMillis + TIMEOUT_MARGIN_MILLIS));
+            }
+            TimeUnit.MICROSECONDS.sleep(delayMicros);
+            if (recording.isTimedOut()) {
+                /* the client has given up already */
+                return;
+            }
+            String[] headers = recording.getHeaders();
+            for (int i = 0; i < headers.length; i += 2) {
+                exchange.getResponseHeaders().add(headers[i], headers[i + 1]);
+            }
+            long bodySize = recording.getBodySize();
+            boolean hasBody = bodySize > 0 && !"HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(recording.getCode(), hasBody ? bodySize : -1);
+            if (hasBody) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    byte[] buffer = new byte[4096];
+                    for (long remaining = bodySize; remaining > 0; remaining -= buffer.length) {
+                        out.write(buffer, 0, (int) Math.min(remaining, buffer.length));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(404, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void acceptMetrics(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) >= 0) {
+                /* drain */
+            }
+            metricPosts.incrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
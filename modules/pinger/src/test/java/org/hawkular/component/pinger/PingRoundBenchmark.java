@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the bookkeeping of a round of pings in {@link PingManager} before and after the introduction of
+ * {@link PingRound}: a map from futures to destinations and a list of results per round versus the reused
+ * {@link PingRound} arrays. The pings themselves are not part of the measurement: they are completed futures created
+ * in the set up. The traits are unchanged across rounds, so that {@link #pingRound(Blackhole)} publishes none of them.
+ * <p>
+ * Run from the {@code modules/pinger} directory using the following command; {@code -prof gc} adds the allocation
+ * rate and the GC counts to the results:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.pinger.PingRoundBenchmark -Dexec.args="-prof gc"
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PingRoundBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(PingRoundBenchmark.class.getSimpleName());
+        if (args.length > 1 && "-prof".equals(args[0])) {
+            options.addProfiler(args[1]);
+        }
+        new Runner(options.build()).run();
+    }
+
+    /** The number of destinations pinged in a round */
+    @Param({ "50000" })
+    public int destinations;
+
+    private Set<PingDestination> destinationSet;
+    private Map<PingDestination, Future<PingStatus>> pings;
+    private PingRound round;
+
+    @Setup
+    public void setUp() {
+        destinationSet = new LinkedHashSet<>(destinations * 2);
+        pings = new HashMap<>(destinations * 2);
+        InetAddress address = InetAddress.getLoopbackAddress();
+        for (int i = 0; i < destinations; i++) {
+            PingDestination destination = new PingDestination("tenant-" + (i % 100), "env", "r" + i,
+                    "http://host-" + i + ".example.com/");
+            destinationSet.add(destination);
+            pings.put(destination, CompletableFuture.completedFuture(new PingStatus(destination, 200, 1000L, 10,
+                    new Traits(1000L, address, "Jetty", "HTTP/1.1"))));
+        }
+        round = new PingRound();
+        /* the first round publishes all traits, the measured ones none */
+        round.reset(destinationSet);
+        for (int slot = 0; slot < round.size(); slot++) {
+            round.submitted(slot, pings.get(round.getDestination(slot)));
+        }
+        round.collect();
+        for (int slot = 0; slot < round.size(); slot++) {
+            round.traitsChanged(slot);
+        }
+        round.clearResults();
+    }
+
+    /**
+     * The bookkeeping of a round as done by {@code PingManager.doThePing()} before {@link PingRound}.
+     */
+    @Benchmark
+    public void objectPerResult(Blackhole blackhole) throws Exception {
+        Map<Future<PingStatus>, PingDestination> futures = new HashMap<>(destinationSet.size());
+        for (PingDestination destination : destinationSet) {
+            futures.put(pings.get(destination), destination);
+        }
+        List<PingStatus> results = new ArrayList<>(destinationSet.size());
+        Iterator<Future<PingStatus>> iterator = futures.keySet().iterator();
+        while (iterator.hasNext()) {
+            Future<PingStatus> f = iterator.next();
+            if (f.isDone()) {
+                results.add(f.get());
+                iterator.remove();
+            }
+        }
+        for (PingStatus status : results) {
+            /* metrics and traits */
+            blackhole.consume(status);
+            blackhole.consume(status.getTraits());
+        }
+    }
+
+    /**
+     * The bookkeeping of a round using {@link PingRound}.
+     */
+    @Benchmark
+    public void pingRound(Blackhole blackhole) {
+        round.reset(destinationSet);
+        final int size = round.size();
+        for (int slot = 0; slot < size; slot++) {
+            round.submitted(slot, pings.get(round.getDestination(slot)));
+        }
+        round.collect();
+        for (int slot = 0; slot < size; slot++) {
+            PingStatus status = round.getResult(slot);
+            blackhole.consume(status);
+            if (round.traitsChanged(slot)) {
+                blackhole.consume(status.getTraits());
+            }
+        }
+        round.clearResults();
+    }
+}
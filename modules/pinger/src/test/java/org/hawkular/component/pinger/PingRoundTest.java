@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.net.InetAddress;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingRoundTest {
+
+    private static final PingDestination DESTINATION_1 = new PingDestination("t1", "env", "r1", "http://r1");
+    private static final PingDestination DESTINATION_2 = new PingDestination("t1", "env", "r2", "http://r2");
+    private static final PingDestination DESTINATION_3 = new PingDestination("t1", "env", "r3", "http://r3");
+
+    private static Set<PingDestination> setOf(PingDestination... destinations) {
+        Set<PingDestination> result = new LinkedHashSet<>();
+        for (PingDestination destination : destinations) {
+            result.add(destination);
+        }
+        return result;
+    }
+
+    private static PingStatus ok(PingDestination destination, long timestamp, String poweredBy) throws Exception {
+        return new PingStatus(destination, 200, timestamp, 10,
+                new Traits(timestamp, InetAddress.getLoopbackAddress(), poweredBy, "HTTP/1.1"));
+    }
+
+    @Test
+    public void testCollectAndTimeout() throws Exception {
+        PingRound round = new PingRound();
+        round.reset(setOf(DESTINATION_1, DESTINATION_2));
+        Assert.assertEquals(2, round.size());
+
+        CompletableFuture<PingStatus> hanging = new CompletableFuture<>();
+        for (int slot = 0; slot < round.size(); slot++) {
+            PingDestination destination = round.getDestination(slot);
+            round.submitted(slot, destination == DESTINATION_1
+                    ? CompletableFuture.completedFuture(ok(destination, 1000, "Jetty")) : hanging);
+        }
+        round.collect();
+        Assert.assertEquals(1, round.getPending());
+
+        round.timeOutPending(2000, 7500);
+        Assert.assertEquals(0, round.getPending());
+        Assert.assertTrue(hanging.isCancelled());
+        for (int slot = 0; slot < round.size(); slot++) {
+            PingStatus status = round.getResult(slot);
+            if (round.getDestination(slot) == DESTINATION_1) {
+                Assert.assertEquals(200, status.getCode());
+            } else {
+                Assert.assertTrue(status.isTimedOut());
+                Assert.assertEquals(2000, status.getTimestamp());
+            }
+        }
+
+        round.clearResults();
+        Assert.assertNull(round.getResult(0));
+    }
+
+    @Test
+    public void testTraitsPublishedOnChange() throws Exception {
+        PingRound round = new PingRound();
+
+        Assert.assertTrue(runRound(round, setOf(DESTINATION_1, DESTINATION_2), 1000, "Jetty")[0]);
+        /* only the timestamp differs */
+        Assert.assertFalse(runRound(round, setOf(DESTINATION_1, DESTINATION_2), 2000, "Jetty")[0]);
+        Assert.assertTrue(runRound(round, setOf(DESTINATION_1, DESTINATION_2), 3000, "Undertow")[0]);
+
+        /* the published traits survive a change of the destinations */
+        boolean[] changed = runRound(round, setOf(DESTINATION_3, DESTINATION_2), 4000, "Undertow");
+        Assert.assertTrue(changed[0]);
+        Assert.assertFalse(changed[1]);
+    }
+
+    /**
+     * @return whether the traits changed for the given destinations in the given order
+     */
+    private static boolean[] runRound(PingRound round, Set<PingDestination> destinations, long timestamp,
+            String poweredBy) throws Exception {
+        round.reset(destinations);
+        for (int slot = 0; slot < round.size(); slot++) {
+            round.submitted(slot,
+                    CompletableFuture.completedFuture(ok(round.getDestination(slot), timestamp, poweredBy)));
+        }
+        round.collect();
+        boolean[] result = new boolean[destinations.size()];
+        int i = 0;
+        for (PingDestination destination : destinations) {
+            for (int slot = 0; slot < round.size(); slot++) {
+                if (round.getDestination(slot) == destination) {
+                    result[i++] = round.traitsChanged(slot);
+                }
+            }
+        }
+        round.clearResults();
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.hawkular.component.pinger.PingerConfiguration.ScheduleMode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class PingerConfigurationTest {
+
+    private static Properties properties(String... keysAndValues) {
+        Properties result = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.setProperty(PingerConfiguration.PROPERTY_PREFIX + keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    @Test
+    public void testDefaults() {
+        PingerConfiguration configuration = new PingerConfiguration(new Properties());
+        Assert.assertEquals(ScheduleMode.rounds, configuration.getScheduleMode());
+        Assert.assertEquals(15, configuration.getRoundsCount());
+        Assert.assertEquals(500, configuration.getRoundsWaitMillis());
+        Assert.assertEquals(7500, configuration.getRoundsTimeoutMillis());
+        Assert.assertEquals(configuration.getPingConcurrency(), configuration.getTenantMaxConcurrency());
+        Assert.assertEquals("", configuration.getEffectiveValues().get("rollup.windows"));
+        Assert.assertEquals(0, configuration.getRollupWindowsSeconds().length);
+    }
+
+    @Test
+    public void testInvalidValuesReportedTogether() {
+        try {
+            new PingerConfiguration(properties("rounds.count", "0", "schedule.mode", "sometimes", "ping.timeout",
+                    "soon"));
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            Assert.assertTrue(message, message.contains(PingerConfiguration.PROPERTY_PREFIX + "rounds.count"));
+            Assert.assertTrue(message, message.contains(PingerConfiguration.PROPERTY_PREFIX + "schedule.mode"));
+            Assert.assertTrue(message, message.contains(PingerConfiguration.PROPERTY_PREFIX + "ping.timeout"));
+        }
+    }
+
+    @Test
+    public void testChangesRequiringRestart() {
+        PingerConfiguration previous = new PingerConfiguration(properties("rounds.count", "10"));
+        PingerConfiguration next = new PingerConfiguration(
+                properties("rounds.count", "20", "history.slots", "128", "tls.mode", "full"));
+        Assert.assertEquals(20, next.getRoundsCount());
+        Assert.assertEquals(Arrays.asList("history.slots", "tls.mode"), previous.getChangesRequiringRestart(next));
+        Assert.assertEquals(Collections.emptyList(), next.getChangesRequiringRestart(next));
+    }
+
+    @Test
+    public void testInvalidConfigurationOnStartup() {
+        String key = PingerConfiguration.PROPERTY_PREFIX + "rounds.count";
+        System.setProperty(key, "0");
+        try {
+            Assert.assertEquals(15, PingerConfiguration.loadOrDefaults().getRoundsCount());
+            try {
+                PingerConfiguration.load();
+                Assert.fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException expected) {
+                /* reload stays strict */
+            }
+        } finally {
+            System.clearProperty(key);
+        }
+    }
+}
@@ -16,10 +16,17 @@
  */
 package org.hawkular.component.pinger;
 
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.component.pinger.PingDestination.Probe;
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
+import org.hawkular.component.pinger.PingerConfiguration.TlsMode;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.github.tomakehurst.wiremock.client.RequestPatternBuilder;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
@@ -118,4 +125,154 @@ public class PingerTest {
         Assert.assertFalse(status.isTimedOut());
     }
 
+    @Test
+    public void testSslSessionResumption() throws Exception {
+
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withBody("Hello world!")));
+
+        PingClient pingClient = new PingClient(newConfiguration(TlsMode.resume));
+        Pinger pinger = new Pinger(pingClient);
+        PingDestination destination = newDestination(httpsUrl(), "GET");
+
+        Assert.assertEquals(TlsHandshake.full, pinger.ping(destination).get().getTlsHandshake());
+
+        /* the pooled connection is reused */
+        PingStatus status = pinger.ping(destination).get();
+        Assert.assertEquals(200, status.getCode());
+        Assert.assertEquals(TlsHandshake.none, status.getTlsHandshake());
+        Assert.assertNotNull(status.getTraits().getRemoteAddress());
+
+        /* a new connection resumes the cached session */
+        pingClient.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(TlsHandshake.resumed, pinger.ping(destination).get().getTlsHandshake());
+    }
+
+    @Test
+    public void testSslFullHandshakes() throws Exception {
+
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withBody("Hello world!")));
+
+        Pinger pinger = new Pinger(new PingClient(newConfiguration(TlsMode.full)));
+        PingDestination destination = newDestination(httpsUrl(), "GET");
+
+        for (int i = 0; i < 3; i++) {
+            PingStatus status = pinger.ping(destination).get();
+            Assert.assertEquals(200, status.getCode());
+            Assert.assertEquals(TlsHandshake.full, status.getTlsHandshake());
+        }
+    }
+
+    @Test
+    public void testConditionalProbe() throws Exception {
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withHeader("ETag", "\"v1\"")
+                        .withBody("Hello world!")));
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*"))
+                .withHeader("If-None-Match", WireMock.equalTo("\"v1\"")).willReturn(
+                        WireMock.aResponse().withStatus(304)));
+
+        Pinger pinger = new Pinger(new PingClient(newConfiguration(TlsMode.resume)));
+        PingDestination destination = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                httpUrl(), "GET", Probe.conditional);
+
+        Assert.assertEquals(200, pinger.ping(destination).get().getCode());
+        PingStatus status = pinger.ping(destination).get();
+        Assert.assertEquals(304, status.getCode());
+        Assert.assertNotEquals(PingStatus.INVALID_DURATION, status.getDuration());
+        Assert.assertFalse(status.isTimedOut());
+    }
+
+    @Test
+    public void testHeadProbe() throws Exception {
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withBody("Hello world!")));
+        testServer.stubFor(WireMock.head(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain")));
+
+        Properties props = new Properties();
+        props.setProperty(PingerConfiguration.PROPERTY_PREFIX + "probe.full-get-every", "3");
+        Pinger pinger = new Pinger(new PingClient(new PingerConfiguration(props)));
+        PingDestination destination = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                httpUrl(), "GET", Probe.head);
+
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(200, pinger.ping(destination).get().getCode());
+        }
+        /* GET, HEAD, HEAD, GET, HEAD, HEAD */
+        testServer.verify(2, WireMock.getRequestedFor(WireMock.urlMatching(".*")));
+        testServer.verify(4, WireMock.headRequestedFor(WireMock.urlMatching(".*")));
+    }
+
+    @Test
+    public void testHeadProbeUnsupported() throws Exception {
+        testServer.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withBody("Hello world!")));
+        testServer.stubFor(WireMock.head(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withStatus(405)));
+
+        Pinger pinger = new Pinger(new PingClient(newConfiguration(TlsMode.resume)));
+        PingDestination destination = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                httpUrl(), "GET", Probe.head);
+
+        for (int i = 0; i < 4; i++) {
+            pinger.ping(destination).get();
+        }
+        /* a single HEAD attempt, GET afterwards */
+        testServer.verify(3, WireMock.getRequestedFor(WireMock.urlMatching(".*")));
+        testServer.verify(1, WireMock.headRequestedFor(WireMock.urlMatching(".*")));
+    }
+
+    @Test
+    public void testTcpProbe() throws Exception {
+        Pinger pinger = new Pinger(new PingClient(newConfiguration(TlsMode.resume)));
+        PingDestination destination = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                "tcp://" + TEST_HOST + ":" + HTTP_PORT, null, Probe.tcp);
+
+        PingStatus status = pinger.doPing(destination);
+        Assert.assertEquals(200, status.getCode());
+        Assert.assertFalse(status.isTimedOut());
+        Assert.assertEquals(TlsHandshake.none, status.getTlsHandshake());
+        Assert.assertNotNull(status.getTraits().getRemoteAddress());
+
+        /* nothing listens on port 1 */
+        PingDestination closed = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                "tcp://" + TEST_HOST + ":1", null, Probe.tcp);
+        Assert.assertEquals(500, pinger.doPing(closed).getCode());
+
+        /* no HTTP request was sent */
+        testServer.verify(0, RequestPatternBuilder.allRequests());
+    }
+
+    @Test
+    public void testTlsProbe() throws Exception {
+        Pinger pinger = new Pinger(new PingClient(newConfiguration(TlsMode.resume)));
+        PingDestination destination = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                httpsUrl(), null, Probe.tls);
+
+        PingStatus status = pinger.doPing(destination);
+        Assert.assertEquals(200, status.getCode());
+        Assert.assertEquals(TlsHandshake.full, status.getTlsHandshake());
+        Assert.assertNull(status.getTraits().getProtocol());
+        Assert.assertTrue(status.getTraits().getTlsProtocol(),
+                status.getTraits().getTlsProtocol().startsWith("TLS"));
+
+        /* the cached session is resumed */
+        Assert.assertEquals(TlsHandshake.resumed, pinger.doPing(destination).getTlsHandshake());
+
+        /* a plain HTTP port fails the handshake */
+        PingDestination plain = new PingDestination(TEST_TENANT_ID, TEST_ENVIRONMENT_ID, TEST_RESOURCE_ID,
+                httpUrl(), null, Probe.tls);
+        Assert.assertEquals(500, pinger.doPing(plain).getCode());
+
+        testServer.verify(0, RequestPatternBuilder.allRequests());
+    }
+
+    private static PingerConfiguration newConfiguration(TlsMode tlsMode) {
+        Properties props = new Properties();
+        props.setProperty(PingerConfiguration.PROPERTY_PREFIX + "tls.mode", tlsMode.name());
+        return new PingerConfiguration(props);
+    }
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.component.pinger.PingStatus.TlsHandshake;
+import org.hawkular.component.pinger.PingerConfiguration.TlsMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+/**
+ * Measures the cost of 1000 HTTPS pings against a local TLS stub in the individual {@link TlsMode}s. Besides the
+ * time per 1000 pings reported by JMH, the CPU time consumed by the pinging thread per 1000 pings and the numbers of
+ * full and resumed handshakes are printed when each trial finishes.
+ * <p>
+ * Run from the {@code modules/pinger} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.pinger.PingerTlsBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PingerTlsBenchmark {
+
+    private static final int PINGS_PER_INVOCATION = 1000;
+    private static final int HTTPS_PORT = 8879;
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PingerTlsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /** The {@link TlsMode} to use */
+    @Param({ "full", "resume" })
+    public String tlsMode;
+
+    /**
+     * If {@code false} the pooled connections are closed after each ping so that every ping needs a handshake, full
+     * or abbreviated depending on {@link #tlsMode}
+     */
+    @Param({ "true", "false" })
+    public boolean reuseConnections;
+
+    private final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    private WireMockServer server;
+    private PingClient pingClient;
+    private Pinger pinger;
+    private PingDestination destination;
+
+    private long cpuNanos;
+    private long pings;
+    private long fullHandshakes;
+    private long resumedHandshakes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new WireMockServer(WireMockConfiguration.wireMockConfig().port(HTTPS_PORT - 1)
+                .httpsPort(HTTPS_PORT));
+        server.start();
+        server.stubFor(WireMock.get(WireMock.urlMatching(".*")).willReturn(
+                WireMock.aResponse().withHeader("Content-Type", "text/plain").withBody("Hello world!")));
+
+        Properties props = new Properties();
+        props.setProperty(PingerConfiguration.PROPERTY_PREFIX + "tls.mode", tlsMode);
+        pingClient = new PingClient(new PingerConfiguration(props));
+        pinger = new Pinger(pingClient);
+        destination = new PingDestination("tenant", "env", "resource", "https://localhost:" + HTTPS_PORT, "GET");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+        System.out.printf("%nCPU per %d pings: %.3f ms; full handshakes: %d; resumed handshakes: %d; pings: %d%n",
+                PINGS_PER_INVOCATION, (cpuNanos / 1e6) * PINGS_PER_INVOCATION / pings, fullHandshakes,
+                resumedHandshakes, pings);
+    }
+
+    @Benchmark
+    public int ping1k() throws Exception {
+        int result = 0;
+        long cpuStart = threadMxBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < PINGS_PER_INVOCATION; i++) {
+            PingStatus status = pinger.ping(destination).get();
+            result += status.getCode();
+            if (status.getTlsHandshake() == TlsHandshake.full) {
+                fullHandshakes++;
+            } else if (status.getTlsHandshake() == TlsHandshake.resumed) {
+                resumedHandshakes++;
+            }
+            if (!reuseConnections) {
+                pingClient.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+        }
+        cpuNanos += threadMxBean.getCurrentThreadCpuTime() - cpuStart;
+        pings += PINGS_PER_INVOCATION;
+        return result;
+    }
+}
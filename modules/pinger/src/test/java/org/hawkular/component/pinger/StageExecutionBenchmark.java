@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.component.pinger.PingerConfiguration.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the time needed to complete a round of pings in the individual {@link ExecutionMode}s while the traits
+ * of the previous round are still being published to a slow inventory. The container's async pool used in
+ * {@link ExecutionMode#ejb} mode is modelled by a fixed thread pool shared by all stages. Pings and publishing are
+ * simulated by sleeping, i.e. by blocking the thread like blocking I/O does.
+ * <p>
+ * Run from the {@code modules/pinger} directory using
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.hawkular.component.pinger.StageExecutionBenchmark
+ * </pre>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StageExecutionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(StageExecutionBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Param({ "ejb", "executors" })
+    public String executionMode;
+
+    /** The number of destinations pinged in a round */
+    @Param({ "200" })
+    public int destinations;
+
+    /** The size of the modelled container async pool */
+    @Param({ "10" })
+    public int ejbPoolSize;
+
+    /** The simulated duration of a single ping */
+    @Param({ "5" })
+    public int pingMillis;
+
+    /** The simulated duration of a single update of traits in a slow inventory */
+    @Param({ "20" })
+    public int traitsPublishMillis;
+
+    private ExecutorService ejbPool;
+    private StageExecutor pingStage;
+    private StageExecutor traitsPublishStage;
+
+    private Thread backlogSubmitter;
+    private List<Future<?>> backlog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PingerConfiguration configuration = PingerConfiguration.getInstance();
+        if (ExecutionMode.valueOf(executionMode) == ExecutionMode.ejb) {
+            ejbPool = Executors.newFixedThreadPool(ejbPoolSize);
+        } else {
+            pingStage = new StageExecutor("ping", configuration.getPingConcurrency());
+            traitsPublishStage = new StageExecutor("traits-publish", configuration.getTraitsPublishConcurrency());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (ejbPool != null) {
+            ejbPool.shutdownNow();
+        } else {
+            pingStage.shutdown();
+            traitsPublishStage.shutdown();
+        }
+    }
+
+    /**
+     * Submits the traits publishing of the previous round from a separate thread, because submitting to a
+     * {@link StageExecutor} blocks once its concurrency limit is reached.
+     */
+    @Setup(Level.Invocation)
+    public void submitBacklog() {
+        backlog = new ArrayList<>(destinations);
+        backlogSubmitter = new Thread(() -> {
+            for (int i = 0; i < destinations; i++) {
+                Callable<Void> traitsPublish = sleep(traitsPublishMillis);
+                Future<?> f = ejbPool != null ? ejbPool.submit(traitsPublish)
+                        : traitsPublishStage.submit(traitsPublish);
+                synchronized (backlog) {
+                    backlog.add(f);
+                }
+            }
+        });
+        backlogSubmitter.start();
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitBacklog() throws Exception {
+        backlogSubmitter.join();
+        for (Future<?> f : backlog) {
+            f.get();
+        }
+    }
+
+    @Benchmark
+    public int pingRound() throws Exception {
+        List<Future<Void>> futures = new ArrayList<>(destinations);
+        for (int i = 0; i < destinations; i++) {
+            Callable<Void> ping = sleep(pingMillis);
+            futures.add(ejbPool != null ? ejbPool.submit(ping) : pingStage.submit(ping));
+        }
+        for (Future<Void> f : futures) {
+            f.get();
+        }
+        return futures.size();
+    }
+
+    private static Callable<Void> sleep(final int millis) {
+        return () -> {
+            Thread.sleep(millis);
+            return null;
+        };
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.component.pinger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.component.pinger.StageExecutor.RejectionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class StageExecutorTest {
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final int concurrency = 3;
+        StageExecutor stage = new StageExecutor("test", concurrency);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final int value = i;
+                futures.add(stage.submit(() -> {
+                    int current = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(current, Math::max);
+                    Thread.sleep(10);
+                    running.decrementAndGet();
+                    return value;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Assert.assertEquals(Integer.valueOf(i), futures.get(i).get());
+            }
+            Assert.assertTrue("Expected at most " + concurrency + " but found " + maxRunning.get(),
+                    maxRunning.get() <= concurrency);
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropWhenSaturated() throws Exception {
+        StageExecutor stage = new StageExecutor("test", 1, 1, RejectionPolicy.drop);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<Integer> running = stage.submit(() -> {
+                started.countDown();
+                release.await();
+                return 1;
+            });
+            started.await();
+            Future<Integer> queued = stage.submit(() -> 2);
+            Future<Integer> dropped = stage.submit(() -> 3);
+            Assert.assertTrue(dropped.isCancelled());
+            Assert.assertFalse(stage.execute(() -> {
+            }));
+
+            StageExecutor.Statistics statistics = stage.getStatistics();
+            Assert.assertEquals(1, statistics.getActive());
+            Assert.assertEquals(1, statistics.getQueued());
+            Assert.assertEquals(2, statistics.getSaturated());
+            Assert.assertEquals(2, stage.drainSaturated());
+            Assert.assertEquals(0, stage.drainSaturated());
+
+            release.countDown();
+            Assert.assertEquals(Integer.valueOf(1), running.get());
+            Assert.assertEquals(Integer.valueOf(2), queued.get());
+        } finally {
+            release.countDown();
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated() throws Exception {
+        StageExecutor stage = new StageExecutor("test", 1, 0, RejectionPolicy.caller);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            stage.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Thread caller = Thread.currentThread();
+            Future<Thread> f = stage.submit(() -> Thread.currentThread());
+            Assert.assertSame(caller, f.get());
+            Assert.assertEquals(1, stage.getStatistics().getSaturated());
+        } finally {
+            release.countDown();
+            stage.shutdown();
+        }
+    }
+}
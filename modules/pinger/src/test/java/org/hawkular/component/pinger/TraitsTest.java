@@ -53,6 +53,15 @@ public class TraitsTest {
 
     }
 
+    @Test
+    public void testCollectProtocol() {
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        Assert.assertEquals("HTTP/1.1", Traits.collect(response, 0, null).getProtocol());
+        Assert.assertNull(Traits.empty(0).getProtocol());
+
+    }
+
     @Test
     public void testCollectEmpty() {
 